@@ -0,0 +1,65 @@
+package com.example.texteditorapi.editor;
+
+/**
+ * Coalesces every edit made to a buffer into the single range that differs between the
+ * text before and after, by tracking how many leading and trailing characters were never touched.
+ */
+public final class ChangedRange implements TextBuffer.EditListener {
+
+    private final int oldLength;
+    private int length;
+    private int prefix;
+    private int suffix;
+    private boolean changed;
+
+    public ChangedRange(int initialLength) {
+        if (initialLength < 0) throw new IllegalArgumentException("initialLength cannot be negative");
+        this.oldLength = initialLength;
+        this.length = initialLength;
+        this.prefix = initialLength;
+        this.suffix = initialLength;
+    }
+
+    @Override
+    public void inserted(int pos, CharSequence text) {
+        prefix = Math.min(prefix, pos);
+        suffix = Math.min(suffix, length - pos);
+        length += text.length();
+        changed = true;
+    }
+
+    @Override
+    public void deleted(int pos, CharSequence removed) {
+        prefix = Math.min(prefix, pos);
+        suffix = Math.min(suffix, length - pos - removed.length());
+        length -= removed.length();
+        changed = true;
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /** Start of the changed range, the same in old and new coordinates. */
+    public int getStart() {
+        return prefix;
+    }
+
+    /** End (exclusive) of the replaced range in the text before the edits. */
+    public int getOldEnd() {
+        return oldLength - suffix;
+    }
+
+    /** End (exclusive) of the replacement in the text after the edits. */
+    public int getNewEnd() {
+        return length - suffix;
+    }
+
+    public int getOldLength() {
+        return oldLength;
+    }
+
+    public int getNewLength() {
+        return length;
+    }
+}
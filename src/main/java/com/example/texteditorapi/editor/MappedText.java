@@ -0,0 +1,63 @@
+package com.example.texteditorapi.editor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spools text to a temporary file as UTF-16 and maps it back read-only, so a very large text is
+ * read in place by the OS page cache instead of occupying the heap. The file is deleted once it
+ * is mapped; the mapping stays valid until the views are garbage collected.
+ */
+public final class MappedText {
+
+    // A single mapping cannot exceed 2 GB, so longer texts are mapped in several segments
+    static final int SEGMENT_CHARS = 1 << 28;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private MappedText() {}
+
+    /** Write {@code pieces} to a file in {@code dir} and return read-only views of the text, in order. */
+    public static List<CharSequence> spool(Iterable<? extends CharSequence> pieces, Path dir) throws IOException {
+        Path file = Files.createTempFile(dir, "document-", ".utf16");
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            long length = 0;
+
+            for (CharSequence piece : pieces) {
+                for (int i = 0; i < piece.length(); i++) {
+                    if (!out.hasRemaining()) {
+                        drain(out, channel);
+                    }
+                    out.putChar(piece.charAt(i));
+                }
+                length += piece.length();
+            }
+            drain(out, channel);
+
+            List<CharSequence> views = new ArrayList<>();
+            for (long start = 0; start < length; start += SEGMENT_CHARS) {
+                long chars = Math.min(SEGMENT_CHARS, length - start);
+                views.add(channel.map(FileChannel.MapMode.READ_ONLY, start * 2, chars * 2).asCharBuffer());
+            }
+            return views;
+        }
+    }
+
+    private static void drain(ByteBuffer out, FileChannel channel) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
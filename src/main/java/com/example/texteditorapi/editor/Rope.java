@@ -0,0 +1,303 @@
+package com.example.texteditorapi.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable text stored as a height-balanced tree of small leaves. Edits return a new rope that
+ * shares every untouched subtree with the old one, so copies of a rope cost nothing and diverge
+ * only where they are edited.
+ */
+public abstract class Rope implements CharSequence {
+
+    static final int MAX_LEAF = 2048;
+
+    // Leaves of viewed text are not copied, so they can be larger without making edits more expensive
+    static final int MAX_VIEW_LEAF = 1 << 16;
+
+    private static final Rope EMPTY = new Leaf("");
+
+    private Rope() {
+    }
+
+    public static Rope empty() {
+        return EMPTY;
+    }
+
+    public static Rope of(CharSequence text) {
+        if (text == null) throw new IllegalArgumentException("text cannot be null");
+        if (text instanceof Rope rope) return rope;
+
+        int length = text.length();
+        if (length == 0) return EMPTY;
+
+        List<Rope> leaves = new ArrayList<>((length + MAX_LEAF - 1) / MAX_LEAF);
+        for (int i = 0; i < length; i += MAX_LEAF) {
+            leaves.add(new Leaf(text.subSequence(i, Math.min(length, i + MAX_LEAF)).toString()));
+        }
+        return build(leaves, 0, leaves.size());
+    }
+
+    /**
+     * A rope over {@code parts} that reads them in place instead of copying them. The parts must
+     * never change; edits to the rope leave them untouched and only allocate the edited text.
+     */
+    public static Rope view(List<? extends CharSequence> parts) {
+        List<Rope> leaves = new ArrayList<>();
+        for (CharSequence part : parts) {
+            for (int i = 0; i < part.length(); i += MAX_VIEW_LEAF) {
+                leaves.add(new Leaf(part.subSequence(i, Math.min(part.length(), i + MAX_VIEW_LEAF))));
+            }
+        }
+        return leaves.isEmpty() ? EMPTY : build(leaves, 0, leaves.size());
+    }
+
+    public Rope insert(int pos, CharSequence s) {
+        checkRange(pos, pos);
+        if (s.length() == 0) return this;
+        return concat(concat(prefix(pos), of(s)), suffix(pos));
+    }
+
+    public Rope delete(int start, int end) {
+        checkRange(start, end);
+        if (start == end) return this;
+        return concat(prefix(start), suffix(end));
+    }
+
+    @Override
+    public Rope subSequence(int start, int end) {
+        checkRange(start, end);
+        return prefix(end).suffix(start);
+    }
+
+    /** Index of the first {@code c} at or after {@code from}, or -1. */
+    public abstract int indexOf(char c, int from);
+
+    /** Index of the last {@code c} at or before {@code from}, or -1. */
+    public abstract int lastIndexOf(char c, int from);
+
+    /** Number of occurrences of {@code c} in [start, end). */
+    public abstract int count(char c, int start, int end);
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length());
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    abstract int height();
+
+    abstract void appendTo(StringBuilder sb);
+
+    abstract Rope prefix(int end);
+
+    abstract Rope suffix(int start);
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("range [" + start + ", " + end + ") out of bounds for length " + length());
+        }
+    }
+
+    private static Rope build(List<Rope> leaves, int from, int to) {
+        if (to - from == 1) return leaves.get(from);
+        int mid = (from + to) >>> 1;
+        return new Node(build(leaves, from, mid), build(leaves, mid, to));
+    }
+
+    static Rope concat(Rope a, Rope b) {
+        if (a.length() == 0) return b;
+        if (b.length() == 0) return a;
+
+        if (a instanceof Leaf la && b instanceof Leaf lb && a.length() + b.length() <= MAX_LEAF) {
+            return new Leaf(la.text.toString() + lb.text);
+        }
+
+        // Walk down the spine of the taller tree until the heights match, rebalancing on the way back up
+        if (a.height() > b.height() + 1) {
+            Node n = (Node) a;
+            return balance(n.left, concat(n.right, b));
+        }
+        if (b.height() > a.height() + 1) {
+            Node n = (Node) b;
+            return balance(concat(a, n.left), n.right);
+        }
+        return new Node(a, b);
+    }
+
+    private static Rope balance(Rope left, Rope right) {
+        if (left.height() > right.height() + 1) {
+            Node l = (Node) left;
+            if (l.left.height() >= l.right.height()) {
+                return new Node(l.left, new Node(l.right, right));
+            }
+            Node lr = (Node) l.right;
+            return new Node(new Node(l.left, lr.left), new Node(lr.right, right));
+        }
+        if (right.height() > left.height() + 1) {
+            Node r = (Node) right;
+            if (r.right.height() >= r.left.height()) {
+                return new Node(new Node(left, r.left), r.right);
+            }
+            Node rl = (Node) r.left;
+            return new Node(new Node(left, rl.left), new Node(rl.right, r.right));
+        }
+        return new Node(left, right);
+    }
+
+    private static final class Leaf extends Rope {
+        private final CharSequence text;
+
+        Leaf(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        public int indexOf(char c, int from) {
+            for (int i = Math.max(from, 0); i < text.length(); i++) {
+                if (text.charAt(i) == c) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(char c, int from) {
+            for (int i = Math.min(from, text.length() - 1); i >= 0; i--) {
+                if (text.charAt(i) == c) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int count(char c, int start, int end) {
+            int n = 0;
+            for (int i = Math.max(start, 0); i < Math.min(end, text.length()); i++) {
+                if (text.charAt(i) == c) n++;
+            }
+            return n;
+        }
+
+        @Override
+        int height() {
+            return 0;
+        }
+
+        @Override
+        void appendTo(StringBuilder sb) {
+            sb.append(text);
+        }
+
+        @Override
+        Rope prefix(int end) {
+            if (end == text.length()) return this;
+            return end == 0 ? EMPTY : new Leaf(text.subSequence(0, end));
+        }
+
+        @Override
+        Rope suffix(int start) {
+            if (start == 0) return this;
+            return start == text.length() ? EMPTY : new Leaf(text.subSequence(start, text.length()));
+        }
+    }
+
+    private static final class Node extends Rope {
+        private final Rope left;
+        private final Rope right;
+        private final int length;
+        private final int height;
+
+        Node(Rope left, Rope right) {
+            this.left = left;
+            this.right = right;
+            this.length = left.length() + right.length();
+            this.height = Math.max(left.height(), right.height()) + 1;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Rope r = this;
+            while (r instanceof Node n) {
+                if (index < n.left.length()) {
+                    r = n.left;
+                } else {
+                    index -= n.left.length();
+                    r = n.right;
+                }
+            }
+            return r.charAt(index);
+        }
+
+        @Override
+        public int indexOf(char c, int from) {
+            int split = left.length();
+            if (from < split) {
+                int i = left.indexOf(c, from);
+                if (i >= 0) return i;
+            }
+            int j = right.indexOf(c, Math.max(0, from - split));
+            return j < 0 ? -1 : j + split;
+        }
+
+        @Override
+        public int lastIndexOf(char c, int from) {
+            int split = left.length();
+            if (from >= split) {
+                int j = right.lastIndexOf(c, from - split);
+                if (j >= 0) return j + split;
+            }
+            return left.lastIndexOf(c, Math.min(from, split - 1));
+        }
+
+        @Override
+        public int count(char c, int start, int end) {
+            if (start >= end || end <= 0 || start >= length) return 0;
+
+            int split = left.length();
+            int n = 0;
+            if (start < split) n += left.count(c, start, end);
+            if (end > split) n += right.count(c, start - split, end - split);
+            return n;
+        }
+
+        @Override
+        int height() {
+            return height;
+        }
+
+        @Override
+        void appendTo(StringBuilder sb) {
+            left.appendTo(sb);
+            right.appendTo(sb);
+        }
+
+        @Override
+        Rope prefix(int end) {
+            int split = left.length();
+            if (end <= split) return left.prefix(end);
+            return concat(left, right.prefix(end - split));
+        }
+
+        @Override
+        Rope suffix(int start) {
+            int split = left.length();
+            if (start >= split) return right.suffix(start - split);
+            return concat(left.suffix(start), right);
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package com.example.texteditorapi.editor;
 
+import com.example.texteditorapi.editor.search.SearchMatches;
+import com.example.texteditorapi.editor.search.SearchQuery;
+
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.List;
 
 public final class TextBuffer {
 
+    /** Notified after every change to the text, including the ones made by undo and redo. */
+    public interface EditListener {
+        void inserted(int pos, CharSequence text);
+        void deleted(int pos, CharSequence removed);
+    }
+
+    /**
+     * Buffer state at one point in time. The text is an immutable view sharing the buffer's
+     * storage, so taking a snapshot copies nothing and later edits do not show through it.
+     */
     public static final class Snapshot {
-        public final String text;
+        public final CharSequence text;
         public final int cursor;
         public final int anchor;
         public final int preferredColumn;
 
-        public Snapshot(String text, int cursor, int anchor, int preferredColumn) {
+        public Snapshot(CharSequence text, int cursor, int anchor, int preferredColumn) {
             if (text == null) throw new IllegalArgumentException("text cannot be null");
             this.text = text;
             this.cursor = cursor;
@@ -20,9 +36,20 @@ public final class TextBuffer {
         }
     }
 
+    /** A selection between anchor and cursor; when they are equal it is just a caret. */
+    public record Selection(int anchor, int cursor) {
+        public int start() {
+            return Math.min(anchor, cursor);
+        }
+
+        public int end() {
+            return Math.max(anchor, cursor);
+        }
+    }
+
     public Snapshot snapshot() {
         return new Snapshot(
-                text.toString(),
+                text,
                 cursor,
                 anchor,
                 preferredColumn
@@ -31,19 +58,26 @@ public final class TextBuffer {
 
     public static TextBuffer fromSnapshot(Snapshot s) {
         if (s == null) throw new IllegalArgumentException("snapshot cannot be null");
+        return fromRope(Rope.of(s.text), s.cursor, s.anchor, s.preferredColumn);
+    }
 
-        TextBuffer b = new TextBuffer(s.text);
+    /** Restore a buffer over existing rope text, which may view storage outside the heap. */
+    public static TextBuffer fromRope(Rope text, int cursor, int anchor, int preferredColumn) {
+        if (text == null) throw new IllegalArgumentException("text cannot be null");
+
+        TextBuffer b = new TextBuffer();
+        b.text = text;
 
         // Validate against the text length
         int len = b.text.length();
-        if (s.cursor < 0 || s.cursor > len) throw new IllegalArgumentException("snapshot.cursor out of bounds");
-        if (s.anchor < 0 || s.anchor > len) throw new IllegalArgumentException("snapshot.anchor out of bounds");
-        if (s.preferredColumn < 0) throw new IllegalArgumentException("snapshot.preferredColumn cannot be negative");
+        if (cursor < 0 || cursor > len) throw new IllegalArgumentException("snapshot.cursor out of bounds");
+        if (anchor < 0 || anchor > len) throw new IllegalArgumentException("snapshot.anchor out of bounds");
+        if (preferredColumn < 0) throw new IllegalArgumentException("snapshot.preferredColumn cannot be negative");
 
         // Restore state (DO NOT call setCursor() because it clears selection)
-        b.cursor = s.cursor;
-        b.anchor = s.anchor;
-        b.preferredColumn = s.preferredColumn;
+        b.cursor = cursor;
+        b.anchor = anchor;
+        b.preferredColumn = preferredColumn;
 
         // Option A: history is empty on restore
         b.undo.clear();
@@ -55,7 +89,15 @@ public final class TextBuffer {
     private enum EditType {
         INSERT,
         DELETE,
+        // deltaText replaced replacedText at pos, undone and redone as one step
+        REPLACE,
+        // parts applied in order, undone in reverse order as one step
+        COMPOUND,
     }
+
+    /** One INSERT or DELETE of a COMPOUND edit. */
+    private record Part(EditType type, int pos, CharSequence text) {}
+
     private static final class Edit {
         final EditType type;
         final int pos;
@@ -65,9 +107,60 @@ public final class TextBuffer {
         final int anchorAfter;
         final int colBefore;
         final int colAfter;
-        final String deltaText;
+        final CharSequence deltaText;
+        final CharSequence replacedText;
+
+        // COMPOUND only: the parts, and the extra selections before and after them
+        final List<Part> parts;
+        final List<Selection> extrasBefore;
+        final List<Selection> extrasAfter;
+
+        Edit(
+                EditType type,
+                int pos,
+                int cursorBefore,
+                int cursorAfter,
+                int anchorBefore,
+                int anchorAfter,
+                int colBefore,
+                int colAfter,
+                CharSequence deltaText
+        ) {
+            this(type, pos, cursorBefore, cursorAfter, anchorBefore, anchorAfter, colBefore, colAfter, deltaText, "");
+        }
+
+        Edit(
+                EditType type,
+                int pos,
+                int cursorBefore,
+                int cursorAfter,
+                int anchorBefore,
+                int anchorAfter,
+                int colBefore,
+                int colAfter,
+                CharSequence deltaText,
+                CharSequence replacedText
+        ) {
+            this(type, pos, cursorBefore, cursorAfter, anchorBefore, anchorAfter, colBefore, colAfter,
+                    deltaText, replacedText, List.of(), List.of(), List.of());
+        }
 
         Edit(
+                int cursorBefore,
+                int cursorAfter,
+                int anchorBefore,
+                int anchorAfter,
+                int colBefore,
+                int colAfter,
+                List<Part> parts,
+                List<Selection> extrasBefore,
+                List<Selection> extrasAfter
+        ) {
+            this(EditType.COMPOUND, 0, cursorBefore, cursorAfter, anchorBefore, anchorAfter, colBefore, colAfter,
+                    "", "", parts, extrasBefore, extrasAfter);
+        }
+
+        private Edit(
                 EditType type,
                 int pos,
                 int cursorBefore,
@@ -76,7 +169,11 @@ public final class TextBuffer {
                 int anchorAfter,
                 int colBefore,
                 int colAfter,
-                String deltaText
+                CharSequence deltaText,
+                CharSequence replacedText,
+                List<Part> parts,
+                List<Selection> extrasBefore,
+                List<Selection> extrasAfter
         ) {
             if (type == null) throw new IllegalArgumentException("kind cannot be null");
             if (deltaText == null) throw new IllegalArgumentException("deltaText cannot be null");
@@ -85,6 +182,7 @@ public final class TextBuffer {
             this.type = type;
             this.pos = pos;
             this.deltaText = deltaText;
+            this.replacedText = replacedText;
 
             this.cursorBefore = cursorBefore;
             this.cursorAfter = cursorAfter;
@@ -94,17 +192,33 @@ public final class TextBuffer {
 
             this.colBefore = colBefore;
             this.colAfter = colAfter;
+
+            this.parts = parts;
+            this.extrasBefore = extrasBefore;
+            this.extrasAfter = extrasAfter;
         }
     }
 
-    private final StringBuilder text;
+    /** All selections sorted by start, overlapping ones merged, and which of them is the primary one. */
+    private record Cursors(List<Selection> all, int primary) {}
+
+    private Rope text;
     private int cursor;
     private int preferredColumn;
     private int anchor;
 
+    // Selections besides the primary cursor/anchor, sorted by start, for the commands that act at
+    // every cursor. Other commands act on the primary selection only; their edits shift these.
+    private List<Selection> extras = new ArrayList<>();
+
     private Deque<Edit> undo = new ArrayDeque<>();
     private Deque<Edit> redo = new ArrayDeque<>();
 
+    private final List<EditListener> listeners = new ArrayList<>();
+
+    // Matches of the last query searched for, kept up to date by listening to edits
+    private SearchMatches search;
+
     public TextBuffer(){
         this("");
     }
@@ -113,33 +227,240 @@ public final class TextBuffer {
         if (initialText == null) {
             throw new IllegalArgumentException("initialText cannot be null");
         }
-        this.text = new StringBuilder(initialText);
+        this.text = Rope.of(initialText);
         this.cursor = this.text.length();
         this.anchor = this.cursor;
         this.preferredColumn = getColumn();
     }
 
+    /**
+     * A new buffer with the same text and selection but no history. The text structure is shared
+     * with this buffer, so forking is O(1) and the two only diverge as either one is edited.
+     */
+    public TextBuffer fork() {
+        TextBuffer b = new TextBuffer();
+        b.text = text;
+        b.cursor = cursor;
+        b.anchor = anchor;
+        b.preferredColumn = preferredColumn;
+        b.extras = new ArrayList<>(extras);
+        return b;
+    }
+
     public String getText() {
         return text.toString();
     }
 
+    /** The current text. The returned sequence is immutable and does not follow later edits. */
+    public CharSequence contents() {
+        return text;
+    }
+
+    public String substring(int start, int end) {
+        return text.subSequence(start, end).toString();
+    }
+
+    public char charAt(int pos) {
+        return text.charAt(pos);
+    }
+
     public int length(){
         return text.length();
     }
 
+    public void addEditListener(EditListener listener) {
+        if (listener == null) throw new IllegalArgumentException("listener cannot be null");
+        listeners.add(listener);
+    }
+
+    public void removeEditListener(EditListener listener) {
+        listeners.remove(listener);
+    }
+
     public int getCursor() {
         return cursor;
     }
 
+    /** Move the cursor to {@code pos}, dropping the selection and every other cursor. */
     public void setCursor(int pos) {
         setCursorCore(pos);
         clearSelection();
+        extras.clear();
+    }
+
+    /** Every selection, the primary one included, sorted by start. */
+    public List<Selection> getSelections() {
+        return Collections.unmodifiableList(cursors().all());
+    }
+
+    /**
+     * Add a caret at {@code pos} besides the existing selections, for the commands that act at
+     * every cursor. Returns false if a selection already covers pos.
+     */
+    public boolean addCursor(int pos) {
+        if (pos < 0 || pos > text.length()) {
+            throw new IllegalArgumentException("Cursor out of bounds");
+        }
+        if (getSelectionStart() <= pos && pos <= getSelectionEnd()) {
+            return false;
+        }
+
+        int lo = 0;
+        int hi = extras.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (extras.get(mid).start() < pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if ((lo > 0 && extras.get(lo - 1).end() >= pos) || (lo < extras.size() && extras.get(lo).start() == pos)) {
+            return false;
+        }
+
+        extras.add(lo, new Selection(pos, pos));
+        return true;
+    }
+
+    /**
+     * Type {@code s} at every cursor, replacing the text of every selection. All cursors are
+     * edited in one pass and the whole change is a single undo step.
+     */
+    public void insertAtCursors(String s) {
+        if (s == null) {
+            throw new IllegalArgumentException("s cannot be null");
+        }
+
+        Cursors c = cursors();
+        int[] from = new int[c.all().size()];
+        int[] to = new int[from.length];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = c.all().get(i).start();
+            to[i] = c.all().get(i).end();
+        }
+        replaceAtCursors(c, from, to, s);
+    }
+
+    /** {@link #deleteLeft} at every cursor, as a single undo step. */
+    public void deleteLeftAtCursors() {
+        Cursors c = cursors();
+        int[] from = new int[c.all().size()];
+        int[] to = new int[from.length];
+        for (int i = 0; i < from.length; i++) {
+            Selection sel = c.all().get(i);
+            to[i] = sel.end();
+            from[i] = sel.start() < sel.end() ? sel.start() : Math.max(0, sel.start() - 1);
+        }
+        replaceAtCursors(c, from, to, "");
+    }
+
+    /** {@link #deleteRight} at every cursor, as a single undo step. */
+    public void deleteRightAtCursors() {
+        Cursors c = cursors();
+        int[] from = new int[c.all().size()];
+        int[] to = new int[from.length];
+        for (int i = 0; i < from.length; i++) {
+            Selection sel = c.all().get(i);
+            from[i] = sel.start();
+            to[i] = sel.start() < sel.end() ? sel.end() : Math.min(text.length(), sel.end() + 1);
+        }
+        replaceAtCursors(c, from, to, "");
+    }
+
+    /**
+     * Replace [from[i], to[i]) with {@code insert} for every cursor i, leaving each cursor after its
+     * insert. The ranges are disjoint and sorted, so editing from the last one to the first keeps
+     * every position valid until it is reached.
+     */
+    private void replaceAtCursors(Cursors c, int[] from, int[] to, String insert) {
+        int cursorBefore = cursor;
+        int anchorBefore = anchor;
+        int colBefore = preferredColumn;
+        List<Selection> extrasBefore = List.copyOf(extras);
+
+        // The cursors are placed again below, so there is nothing to shift along the way
+        extras = new ArrayList<>();
+
+        List<Part> parts = new ArrayList<>();
+        for (int i = from.length - 1; i >= 0; i--) {
+            if (from[i] < to[i]) {
+                CharSequence removed = text.subSequence(from[i], to[i]);
+                applyDeleteAt(from[i], removed);
+                parts.add(new Part(EditType.DELETE, from[i], removed));
+            }
+            if (!insert.isEmpty()) {
+                applyInsertAt(from[i], insert);
+                parts.add(new Part(EditType.INSERT, from[i], insert));
+            }
+        }
+
+        if (parts.isEmpty()) {
+            extras = new ArrayList<>(extrasBefore);
+            return;
+        }
+
+        // Each cursor moves by the length change of every edit before it
+        int shift = 0;
+        for (int i = 0; i < from.length; i++) {
+            int caret = from[i] + shift + insert.length();
+            shift += insert.length() - (to[i] - from[i]);
+
+            if (i == c.primary()) {
+                cursor = caret;
+                anchor = caret;
+            } else if (extras.isEmpty() || extras.get(extras.size() - 1).cursor() != caret) {
+                extras.add(new Selection(caret, caret));
+            }
+        }
+        extras.removeIf(sel -> sel.cursor() == cursor);
+        preferredColumn = getColumn();
+
+        undo.push(new Edit(
+                cursorBefore,
+                cursor,
+                anchorBefore,
+                anchor,
+                colBefore,
+                preferredColumn,
+                parts,
+                extrasBefore,
+                List.copyOf(extras)
+        ));
+        redo.clear();
+    }
+
+    private Cursors cursors() {
+        Selection main = new Selection(anchor, cursor);
+        int mainAt = 0;
+        while (mainAt < extras.size() && extras.get(mainAt).start() < main.start()) {
+            mainAt++;
+        }
+        List<Selection> sorted = new ArrayList<>(extras);
+        sorted.add(mainAt, main);
+
+        List<Selection> merged = new ArrayList<>(sorted.size());
+        int primary = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            Selection next = sorted.get(i);
+            Selection last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+
+            // Selections that overlap or touch would edit the same text, so they become one
+            if (last != null && next.start() <= last.end()) {
+                merged.set(merged.size() - 1, new Selection(last.start(), Math.max(last.end(), next.end())));
+            } else {
+                merged.add(next);
+            }
+            if (i == mainAt) {
+                primary = merged.size() - 1;
+            }
+        }
+        return new Cursors(merged, primary);
     }
 
     private void deleteSelection() {
         int start = getSelectionStart();
-        int end = getSelectionEnd();
-        text.delete(start, end);
+        applyDeleteAt(start, selection());
 
         setCursorCore(start);
         clearSelection();
@@ -160,7 +481,7 @@ public final class TextBuffer {
             int anchorBeforeDeletion = anchor;
             int colBeforeDeletion = preferredColumn;
             int posBeforeDeletion = getSelectionStart();
-            String deletedText = getSelectedText();
+            CharSequence deletedText = selection();
 
             deleteSelection();
 
@@ -190,7 +511,7 @@ public final class TextBuffer {
         int columnBeforeInsertion = preferredColumn;
         int posBeforeInsertion = cursor;
 
-        text.insert(cursor, s);
+        applyInsertAt(cursor, s);
 
         cursor += s.length();
         anchor = cursor;
@@ -216,6 +537,52 @@ public final class TextBuffer {
         redo.clear();
     }
 
+    /**
+     * Replace every non-overlapping match of {@code query} in one pass over the text. The whole
+     * replacement is a single undo step. Returns the number of matches replaced.
+     */
+    public int replaceAll(SearchQuery query, String replacement) {
+        if (query == null) throw new IllegalArgumentException("query cannot be null");
+
+        SearchQuery.Replacement r = query.replaceAll(text, replacement);
+        if (r.count() == 0) {
+            return 0;
+        }
+
+        int cursorBefore = cursor;
+        int anchorBefore = anchor;
+        int colBefore = preferredColumn;
+        CharSequence replaced = text.subSequence(r.start(), r.end());
+
+        applyDeleteAt(r.start(), replaced);
+        applyInsertAt(r.start(), r.replacement());
+
+        // Positions after the replaced range shift with it; positions inside it move to its end
+        int newEnd = r.start() + r.replacement().length();
+        if (cursor >= r.end()) {
+            cursor += newEnd - r.end();
+        } else if (cursor > r.start()) {
+            cursor = newEnd;
+        }
+        anchor = cursor;
+        preferredColumn = getColumn();
+
+        undo.push(new Edit(
+                EditType.REPLACE,
+                r.start(),
+                cursorBefore,
+                cursor,
+                anchorBefore,
+                anchor,
+                colBefore,
+                preferredColumn,
+                r.replacement(),
+                replaced
+        ));
+        redo.clear();
+        return r.count();
+    }
+
     public void moveLeft() {
         moveLeftCore();
         clearSelection();
@@ -249,7 +616,7 @@ public final class TextBuffer {
     public void deleteLeft() {
         if (hasSelection()) {
             int pos = getSelectionStart();
-            String deletedText = getSelectedText();
+            CharSequence deletedText = selection();
 
             int cursorBefore = cursor;
             int anchorBefore = anchor;
@@ -289,7 +656,7 @@ public final class TextBuffer {
         int anchorBefore = anchor;
         int colBefore = preferredColumn;
 
-        text.deleteCharAt(pos);
+        applyDeleteAt(pos, deletedText);
         cursor--;
         anchor = cursor;
         preferredColumn = getColumn();
@@ -318,7 +685,7 @@ public final class TextBuffer {
         // Case A: selection exists -> delete selection (one DELETE edit)
         if (hasSelection()) {
             int pos = getSelectionStart();
-            String deletedText = getSelectedText();
+            CharSequence deletedText = selection();
 
             int cursorBefore = cursor;
             int anchorBefore = anchor;
@@ -360,7 +727,7 @@ public final class TextBuffer {
         int anchorBefore = anchor;
         int colBefore = preferredColumn;
 
-        text.deleteCharAt(pos);
+        applyDeleteAt(pos, deletedText);
         // cursor stays the same
         anchor = cursor;
         preferredColumn = getColumn();
@@ -386,54 +753,23 @@ public final class TextBuffer {
     }
 
     public int getLine() {
-        int lines = 0;
-        char newLine = '\n';
-
-        for (int i = 0; i < cursor; i++) {
-            char c = text.charAt(i);
-
-            if (c == newLine) {
-                lines++;
-            }
-        }
-
-        return lines;
+        return text.count('\n', 0, cursor);
     }
 
     public int getColumn() {
-        int column = 0;
-        char c = '\n';
-
-        for (int i = cursor-1; i >= 0; i--) {
-            if (text.charAt(i) == c){
-                break;
-            }
-            column++;
-        }
-
-        return column;
+        return cursor - lineStart(cursor);
     }
 
     private int lineStart(int pos) {
-        char c = '\n';
         int i = Math.min(pos, text.length());
-
-        while (i > 0 && text.charAt(i - 1) != c) {
-            i--;
-        }
-
-        return i;
+        return text.lastIndexOf('\n', i - 1) + 1;
     }
 
     private int lineEnd(int pos) {
-        char c = '\n';
         int i = Math.min(pos, text.length());
+        int newLine = text.indexOf('\n', i);
 
-        while (i < text.length() && text.charAt(i) != c) {
-            i++;
-        }
-
-        return i;
+        return newLine < 0 ? text.length() : newLine;
     }
 
     public void startSelection() { anchor = cursor; }   // aka setAnchor
@@ -445,8 +781,12 @@ public final class TextBuffer {
     public int getSelectionEnd()   { return Math.max(anchor, cursor); }
 
     public String getSelectedText() {
-        if (!hasSelection()) return "";
-        return text.substring(getSelectionStart(), getSelectionEnd());
+        return selection().toString();
+    }
+
+    /** The selected text as an immutable view of the buffer's storage, without copying it. */
+    public CharSequence selection() {
+        return text.subSequence(getSelectionStart(), getSelectionEnd());
     }
 
     public void moveLeftSelection() {
@@ -498,6 +838,59 @@ public final class TextBuffer {
         setCursorCore(pos);
     }
 
+    /** The matches of {@code query}, reusing the cached ones if it is the last query searched for. */
+    public SearchMatches matches(SearchQuery query) {
+        if (query == null) throw new IllegalArgumentException("query cannot be null");
+
+        if (search == null || !search.getQuery().equals(query)) {
+            if (search != null) {
+                listeners.remove(search);
+            }
+            search = new SearchMatches(query, () -> text);
+            listeners.add(search);
+        }
+        return search;
+    }
+
+    /**
+     * Select the next match after the selection, or at the cursor if nothing is selected,
+     * wrapping around to the start. Returns false and leaves the selection alone if there is none.
+     */
+    public boolean findNext(SearchQuery query) {
+        SearchMatches m = matches(query);
+        if (m.size() == 0) {
+            return false;
+        }
+
+        int i = m.firstAtOrAfter(hasSelection() ? getSelectionStart() + 1 : cursor);
+        if (i == m.size()) {
+            i = 0;
+        }
+        selectMatch(m.start(i), m.end(i));
+        return true;
+    }
+
+    /** Select the last match starting before the selection, wrapping around to the end. */
+    public boolean findPrevious(SearchQuery query) {
+        SearchMatches m = matches(query);
+        if (m.size() == 0) {
+            return false;
+        }
+
+        int i = m.firstAtOrAfter(getSelectionStart()) - 1;
+        if (i < 0) {
+            i = m.size() - 1;
+        }
+        selectMatch(m.start(i), m.end(i));
+        return true;
+    }
+
+    private void selectMatch(int start, int end) {
+        anchor = start;
+        cursor = end;
+        preferredColumn = getColumn();
+    }
+
     private void moveLeftCore() {
         if (cursor <= 0) {
             return;
@@ -571,12 +964,37 @@ public final class TextBuffer {
         cursor = pos;
     }
 
-    private void applyInsertAt(int pos, String s) {
-        text.insert(pos, s);
+    // Every text mutation goes through these two, so listeners see each one exactly once
+    private void applyInsertAt(int pos, CharSequence s) {
+        if (s.length() == 0) return;
+        text = text.insert(pos, s);
+        shiftExtras(pos, s.length(), 0);
+        for (EditListener l : listeners) {
+            l.inserted(pos, s);
+        }
+    }
+
+    private void applyDeleteAt(int pos, CharSequence removed) {
+        if (removed.length() == 0) return;
+        text = text.delete(pos, pos + removed.length());
+        shiftExtras(pos, 0, removed.length());
+        for (EditListener l : listeners) {
+            l.deleted(pos, removed);
+        }
     }
 
-    private void applyDeleteRange(int start, int end) {
-        text.delete(start, end);
+    // Keep the extra selections on the same text when an edit before them moves it
+    private void shiftExtras(int pos, int inserted, int removed) {
+        for (int i = 0; i < extras.size(); i++) {
+            Selection sel = extras.get(i);
+            extras.set(i, new Selection(shift(sel.anchor(), pos, inserted, removed), shift(sel.cursor(), pos, inserted, removed)));
+        }
+    }
+
+    private static int shift(int p, int pos, int inserted, int removed) {
+        if (p <= pos) return p;
+        if (p < pos + removed) return pos;
+        return p - removed + inserted;
     }
 
     private void restoreBefore(Edit e) {
@@ -601,7 +1019,21 @@ public final class TextBuffer {
         // Reverse the text change
         if (e.type == EditType.INSERT) {
             // Undo insert = delete the inserted text
-            applyDeleteRange(e.pos, e.pos + e.deltaText.length());
+            applyDeleteAt(e.pos, e.deltaText);
+        } else if (e.type == EditType.REPLACE) {
+            applyDeleteAt(e.pos, e.deltaText);
+            applyInsertAt(e.pos, e.replacedText);
+        } else if (e.type == EditType.COMPOUND) {
+            extras = new ArrayList<>();
+            for (int i = e.parts.size() - 1; i >= 0; i--) {
+                Part p = e.parts.get(i);
+                if (p.type() == EditType.INSERT) {
+                    applyDeleteAt(p.pos(), p.text());
+                } else {
+                    applyInsertAt(p.pos(), p.text());
+                }
+            }
+            extras = new ArrayList<>(e.extrasBefore);
         } else { // DELETE
             // Undo delete = re-insert the deleted text
             applyInsertAt(e.pos, e.deltaText);
@@ -625,8 +1057,21 @@ public final class TextBuffer {
         // Re-apply the text change
         if (e.type == EditType.INSERT) {
             applyInsertAt(e.pos, e.deltaText);
+        } else if (e.type == EditType.REPLACE) {
+            applyDeleteAt(e.pos, e.replacedText);
+            applyInsertAt(e.pos, e.deltaText);
+        } else if (e.type == EditType.COMPOUND) {
+            extras = new ArrayList<>();
+            for (Part p : e.parts) {
+                if (p.type() == EditType.INSERT) {
+                    applyInsertAt(p.pos(), p.text());
+                } else {
+                    applyDeleteAt(p.pos(), p.text());
+                }
+            }
+            extras = new ArrayList<>(e.extrasAfter);
         } else { // DELETE
-            applyDeleteRange(e.pos, e.pos + e.deltaText.length());
+            applyDeleteAt(e.pos, e.deltaText);
         }
 
         // Restore exact post state
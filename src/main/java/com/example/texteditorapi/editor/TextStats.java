@@ -0,0 +1,126 @@
+package com.example.texteditorapi.editor;
+
+import java.util.function.Supplier;
+
+/**
+ * Character, word and line counts of a text, kept current from the edits made to a buffer in
+ * time proportional to each edit. A word is a maximal run of non-whitespace characters, and a
+ * line is anything up to and including a newline, so even empty text has one line.
+ *
+ * An edit can only change whether a word starts at the positions it touches plus the one right
+ * after it, so only those positions are checked on each edit.
+ */
+public final class TextStats implements TextBuffer.EditListener {
+
+    /** Counts a text that arrives in consecutive pieces, such as a streamed upload. */
+    public static final class Counter {
+        private int chars;
+        private int words;
+        private int lines = 1;
+        private char previous = ' ';
+
+        public void add(CharSequence piece) {
+            for (int i = 0; i < piece.length(); i++) {
+                char c = piece.charAt(i);
+                if (c == '\n') lines++;
+                if (startsWord(c, previous)) words++;
+                previous = c;
+            }
+            chars += piece.length();
+        }
+
+        public TextStats toStats() {
+            return new TextStats(chars, words, lines, null);
+        }
+    }
+
+    private final Supplier<CharSequence> text;
+    private int chars;
+    private int words;
+    private int lines;
+
+    public TextStats(int chars, int words, int lines, Supplier<CharSequence> text) {
+        this.chars = chars;
+        this.words = words;
+        this.lines = lines;
+        this.text = text;
+    }
+
+    /** Count everything in {@code text} from scratch. */
+    public static TextStats of(CharSequence text) {
+        Counter counter = new Counter();
+        counter.add(text);
+        return new TextStats(counter.chars, counter.words, counter.lines, () -> text);
+    }
+
+    @Override
+    public void inserted(int pos, CharSequence inserted) {
+        CharSequence t = text.get();
+        int end = pos + inserted.length();
+
+        // Before the insert, the character now at end sat at pos, right after t[pos - 1]
+        if (end < t.length() && startsWord(t.charAt(end), pos == 0 ? ' ' : t.charAt(pos - 1))) words--;
+        words += wordStarts(t, pos, Math.min(end + 1, t.length()));
+
+        chars += inserted.length();
+        lines += newLines(inserted);
+    }
+
+    @Override
+    public void deleted(int pos, CharSequence removed) {
+        CharSequence t = text.get();
+
+        // Word starts in the removed text and at the character following it, in the old text
+        char previous = pos == 0 ? ' ' : t.charAt(pos - 1);
+        for (int i = 0; i < removed.length(); i++) {
+            if (startsWord(removed.charAt(i), previous)) words--;
+            previous = removed.charAt(i);
+        }
+        if (pos < t.length() && startsWord(t.charAt(pos), previous)) words--;
+        words += wordStarts(t, pos, Math.min(pos + 1, t.length()));
+
+        chars -= removed.length();
+        lines -= newLines(removed);
+    }
+
+    public int getChars() {
+        return chars;
+    }
+
+    public int getWords() {
+        return words;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    private static int wordStarts(CharSequence t, int start, int end) {
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (isWordStart(t, i)) n++;
+        }
+        return n;
+    }
+
+    private static boolean isWordStart(CharSequence t, int i) {
+        return startsWord(t.charAt(i), i == 0 ? ' ' : t.charAt(i - 1));
+    }
+
+    private static boolean startsWord(char c, char previous) {
+        return !isWhitespace(c) && isWhitespace(previous);
+    }
+
+    private static int newLines(CharSequence s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') n++;
+        }
+        return n;
+    }
+
+    // Kept in step with the character class the V6 migration uses to count words in existing documents
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.texteditorapi.editor.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a stream of commands, accepted by the command endpoint as an
+ * alternative to JSON. Each command is:
+ *
+ * <pre>
+ *   opcode    1 byte, the CommandType ordinal (new types are only ever appended)
+ *   pos       unsigned LEB128 varint        SET_CURSOR, SET_CURSOR_SELECTION, ADD_CURSOR
+ *   text      varint byte length + UTF-8    INSERT, INSERT_AT_CURSORS
+ *   flags     1 byte, bit 0 = regex         FIND_NEXT, FIND_PREV, REPLACE_ALL
+ *   query     varint byte length + UTF-8    FIND_NEXT, FIND_PREV, REPLACE_ALL
+ *   replace   varint byte length + UTF-8    REPLACE_ALL
+ * </pre>
+ *
+ * A movement command is a single byte.
+ */
+public final class BinaryCommandCodec {
+
+    public static final String MEDIA_TYPE = "application/x-texteditor-commands";
+
+    static final int MAX_TEXT_BYTES = 64 * 1024 * 1024;
+    // A whole batch is decoded before it is applied, so it is bounded as well as each command in it
+    static final int MAX_COMMANDS = 100_000;
+    static final long MAX_BATCH_BYTES = MAX_TEXT_BYTES + 1024 * 1024;
+
+    private static final int READ_BUFFER_BYTES = 8192;
+    private static final int FLAG_REGEX = 1;
+    private static final CommandType[] TYPES = CommandType.values();
+
+    private BinaryCommandCodec() {}
+
+    /**
+     * Read commands from {@code in} until it ends, decoding each one as soon as its bytes have
+     * arrived. A stream of more than MAX_COMMANDS commands or MAX_BATCH_BYTES bytes is rejected.
+     */
+    public static List<CommandRequest> readAll(InputStream in) throws IOException {
+        List<CommandRequest> commands = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        long total = 0;
+
+        while (true) {
+            int n = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (n > 0) {
+                buffer.position(buffer.position() + n);
+                total += n;
+                if (total > MAX_BATCH_BYTES) {
+                    throw new IllegalArgumentException("Command batch is larger than " + MAX_BATCH_BYTES + " bytes");
+                }
+            }
+
+            buffer.flip();
+            CommandRequest command;
+            while ((command = decode(buffer)) != null) {
+                if (commands.size() == MAX_COMMANDS) {
+                    throw new IllegalArgumentException("Command batch has more than " + MAX_COMMANDS + " commands");
+                }
+                commands.add(command);
+            }
+            buffer.compact();
+
+            if (n < 0) {
+                if (buffer.position() > 0) {
+                    throw new IllegalArgumentException("Command stream ends in the middle of a command");
+                }
+                return commands;
+            }
+            if (!buffer.hasRemaining()) {
+                // A single command is larger than the buffer: grow it so the command can complete
+                if (buffer.capacity() >= MAX_TEXT_BYTES + 16) {
+                    throw new IllegalArgumentException("Command is too large");
+                }
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+
+    /**
+     * Decode the next command from {@code in}, or return null and leave {@code in} untouched if it
+     * does not hold a complete command yet.
+     */
+    public static CommandRequest decode(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            return null;
+        }
+
+        int start = in.position();
+        try {
+            int opcode = in.get() & 0xFF;
+            if (opcode >= TYPES.length) {
+                throw new IllegalArgumentException("Unknown command opcode: " + opcode);
+            }
+
+            CommandType type = TYPES[opcode];
+            return switch (type) {
+                case INSERT, INSERT_AT_CURSORS -> new CommandRequest(type, readText(in), null, null, null, null);
+                case SET_CURSOR, SET_CURSOR_SELECTION, ADD_CURSOR -> new CommandRequest(type, null, readVarint(in), null, null, null);
+                case FIND_NEXT, FIND_PREV -> {
+                    boolean regex = (in.get() & FLAG_REGEX) != 0;
+                    yield new CommandRequest(type, null, null, readText(in), null, regex);
+                }
+                case REPLACE_ALL -> {
+                    boolean regex = (in.get() & FLAG_REGEX) != 0;
+                    String query = readText(in);
+                    yield new CommandRequest(type, null, null, query, readText(in), regex);
+                }
+                default -> new CommandRequest(type, null, null, null, null, null);
+            };
+        } catch (BufferUnderflowException e) {
+            in.position(start);
+            return null;
+        }
+    }
+
+    public static void encode(CommandRequest command, ByteArrayOutputStream out) {
+        CommandType type = command.type();
+        out.write(type.ordinal());
+
+        switch (type) {
+            case INSERT, INSERT_AT_CURSORS -> writeText(command.text(), out);
+            case SET_CURSOR, SET_CURSOR_SELECTION, ADD_CURSOR -> writeVarint(command.pos(), out);
+            case FIND_NEXT, FIND_PREV -> {
+                out.write(Boolean.TRUE.equals(command.regex()) ? FLAG_REGEX : 0);
+                writeText(command.query(), out);
+            }
+            case REPLACE_ALL -> {
+                out.write(Boolean.TRUE.equals(command.regex()) ? FLAG_REGEX : 0);
+                writeText(command.query(), out);
+                writeText(command.replacement(), out);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            // The fifth byte only has room for the top four bits of an int
+            if (shift == 28 && (b & 0x70) != 0) {
+                throw new IllegalArgumentException("Varint out of range");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Varint out of range");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is longer than 5 bytes");
+    }
+
+    private static String readText(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Command text is too large");
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        ByteBuffer bytes = in.slice();
+        bytes.limit(length);
+        in.position(in.position() + length);
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            return decoder.decode(bytes).toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Command text is not valid UTF-8");
+        }
+    }
+
+    private static void writeVarint(int value, ByteArrayOutputStream out) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeText(String text, ByteArrayOutputStream out) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length, out);
+        out.write(bytes, 0, bytes.length);
+    }
+}
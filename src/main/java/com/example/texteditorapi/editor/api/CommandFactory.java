@@ -1,46 +1,97 @@
 package com.example.texteditorapi.editor.api;
 
 import com.example.texteditorapi.editor.commands.*;
+import com.example.texteditorapi.editor.search.SearchQuery;
 
+/**
+ * Turns requests into commands. Stateless commands are shared singletons, so only a request with
+ * parameters allocates a command, once when it is decoded; search queries are compiled then too,
+ * so applying a command allocates nothing beyond the edit it makes. Parameters are validated
+ * here, before any command runs.
+ */
 public final class CommandFactory {
     private CommandFactory() {}
 
+    private static final Command UNDO = new UndoCommand();
+    private static final Command REDO = new RedoCommand();
+
+    private static final Command MOVE_LEFT = new MoveLeftCommand();
+    private static final Command MOVE_RIGHT = new MoveRightCommand();
+    private static final Command MOVE_UP = new MoveUpCommand();
+    private static final Command MOVE_DOWN = new MoveDownCommand();
+    private static final Command MOVE_LINE_START = new MoveToLineStartCommand();
+    private static final Command MOVE_LINE_END = new MoveToLineEndCommand();
+
+    private static final Command DELETE_LEFT = new DeleteLeftCommand();
+    private static final Command DELETE_RIGHT = new DeleteRightCommand();
+    private static final Command DELETE_LEFT_AT_CURSORS = new DeleteLeftAtCursorsCommand();
+    private static final Command DELETE_RIGHT_AT_CURSORS = new DeleteRightAtCursorsCommand();
+
+    private static final Command MOVE_LEFT_SELECTION = new MoveLeftSelectionCommand();
+    private static final Command MOVE_RIGHT_SELECTION = new MoveRightSelectionCommand();
+    private static final Command MOVE_UP_SELECTION = new MoveUpSelectionCommand();
+    private static final Command MOVE_DOWN_SELECTION = new MoveDownSelectionCommand();
+    private static final Command MOVE_LINE_START_SELECTION = new MoveToLineStartSelectionCommand();
+    private static final Command MOVE_LINE_END_SELECTION = new MoveToLineEndSelectionCommand();
+
     public static Command from(CommandRequest r) {
         return switch (r.type()) {
-            case INSERT -> new InsertCommand(requireText(r));
+            case UNDO -> UNDO;
+            case REDO -> REDO;
+
+            case MOVE_LEFT -> MOVE_LEFT;
+            case MOVE_RIGHT -> MOVE_RIGHT;
+            case MOVE_UP -> MOVE_UP;
+            case MOVE_DOWN -> MOVE_DOWN;
+            case MOVE_LINE_START -> MOVE_LINE_START;
+            case MOVE_LINE_END -> MOVE_LINE_END;
 
-            case UNDO -> new UndoCommand();
-            case REDO -> new RedoCommand();
+            case DELETE_LEFT -> DELETE_LEFT;
+            case DELETE_RIGHT -> DELETE_RIGHT;
+            case DELETE_LEFT_AT_CURSORS -> DELETE_LEFT_AT_CURSORS;
+            case DELETE_RIGHT_AT_CURSORS -> DELETE_RIGHT_AT_CURSORS;
 
-            case MOVE_LEFT -> new MoveLeftCommand();
-            case MOVE_RIGHT -> new MoveRightCommand();
-            case MOVE_UP -> new MoveUpCommand();
-            case MOVE_DOWN -> new MoveDownCommand();
-            case MOVE_LINE_START -> new MoveToLineStartCommand();
-            case MOVE_LINE_END -> new MoveToLineEndCommand();
+            case MOVE_LEFT_SELECTION -> MOVE_LEFT_SELECTION;
+            case MOVE_RIGHT_SELECTION -> MOVE_RIGHT_SELECTION;
+            case MOVE_UP_SELECTION -> MOVE_UP_SELECTION;
+            case MOVE_DOWN_SELECTION -> MOVE_DOWN_SELECTION;
+            case MOVE_LINE_START_SELECTION -> MOVE_LINE_START_SELECTION;
+            case MOVE_LINE_END_SELECTION -> MOVE_LINE_END_SELECTION;
 
-            case DELETE_LEFT -> new DeleteLeftCommand();
-            case DELETE_RIGHT -> new DeleteRightCommand();
+            case INSERT -> new InsertCommand(requireText(r));
+            case INSERT_AT_CURSORS -> new InsertAtCursorsCommand(requireText(r));
 
             case SET_CURSOR -> new SetCursorCommand(requirePos(r));
             case SET_CURSOR_SELECTION -> new SetCursorSelectionCommand(requirePos(r));
+            case ADD_CURSOR -> new AddCursorCommand(requirePos(r));
 
-            case MOVE_LEFT_SELECTION -> new MoveLeftSelectionCommand();
-            case MOVE_RIGHT_SELECTION -> new MoveRightSelectionCommand();
-            case MOVE_UP_SELECTION -> new MoveUpSelectionCommand();
-            case MOVE_DOWN_SELECTION -> new MoveDownSelectionCommand();
-            case MOVE_LINE_START_SELECTION -> new MoveToLineStartSelectionCommand();
-            case MOVE_LINE_END_SELECTION -> new MoveToLineEndSelectionCommand();
+            case FIND_NEXT -> new FindNextCommand(requireQuery(r));
+            case FIND_PREV -> new FindPreviousCommand(requireQuery(r));
+            case REPLACE_ALL -> new ReplaceAllCommand(requireQuery(r), requireReplacement(r));
         };
     }
 
     private static String requireText(CommandRequest r) {
         if (r.text() == null) {
-            throw new IllegalArgumentException("text is required for INSERT");
+            throw new IllegalArgumentException("text is required for " + r.type());
         }
         return r.text();
     }
 
+    private static SearchQuery requireQuery(CommandRequest r) {
+        if (r.query() == null || r.query().isEmpty()) {
+            throw new IllegalArgumentException("query is required for this command");
+        }
+        return SearchQuery.of(r.query(), Boolean.TRUE.equals(r.regex()));
+    }
+
+    private static String requireReplacement(CommandRequest r) {
+        if (r.replacement() == null) {
+            throw new IllegalArgumentException("replacement is required for REPLACE_ALL");
+        }
+        return r.replacement();
+    }
+
     private static int requirePos(CommandRequest r) {
         if (r.pos() == null) {
             throw new IllegalArgumentException("pos is required for this command");
@@ -10,5 +10,11 @@ public record CommandRequest(
         String text,
 
         @PositiveOrZero(message = "pos must be zero or greater")
-        Integer pos
+        Integer pos,
+
+        String query,
+
+        String replacement,
+
+        Boolean regex
 ) {}
\ No newline at end of file
@@ -24,5 +24,14 @@ public enum CommandType {
     MOVE_UP_SELECTION,
     MOVE_DOWN_SELECTION,
     MOVE_LINE_START_SELECTION,
-    MOVE_LINE_END_SELECTION
+    MOVE_LINE_END_SELECTION,
+
+    FIND_NEXT,
+    FIND_PREV,
+    REPLACE_ALL,
+
+    ADD_CURSOR,
+    INSERT_AT_CURSORS,
+    DELETE_LEFT_AT_CURSORS,
+    DELETE_RIGHT_AT_CURSORS
 }
\ No newline at end of file
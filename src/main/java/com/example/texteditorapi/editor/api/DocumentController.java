@@ -1,13 +1,41 @@
 package com.example.texteditorapi.editor.api;
 
-import com.example.texteditorapi.editor.persistence.DocumentEntity;
+import com.example.texteditorapi.editor.commands.BatchCommand;
+import com.example.texteditorapi.editor.commands.Command;
+import com.example.texteditorapi.editor.diff.TextDiff;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionEntity;
+import com.example.texteditorapi.editor.service.CommandAdmission;
+import com.example.texteditorapi.editor.service.DocumentChunkStore;
+import com.example.texteditorapi.editor.service.DocumentHistory;
+import com.example.texteditorapi.editor.service.DocumentResponseCache;
 import com.example.texteditorapi.editor.service.DocumentService;
+import com.example.texteditorapi.editor.store.DocumentStore;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -15,67 +43,393 @@ import java.util.UUID;
 @CrossOrigin
 public final class DocumentController {
 
+    // Documents created per transaction by a bulk import
+    static final int IMPORT_BATCH_SIZE = 1000;
+
     private final DocumentService service;
+    private final JsonMapper json;
+    private final DocumentResponseCache responses;
+    private final CommandAdmission admission;
+    private final Validator validator;
 
-    public DocumentController(DocumentService service) {
+    public DocumentController(
+            DocumentService service,
+            JsonMapper json,
+            DocumentResponseCache responses,
+            CommandAdmission admission,
+            Validator validator
+    ) {
         this.service = service;
+        this.json = json;
+        this.responses = responses;
+        this.admission = admission;
+        this.validator = validator;
     }
 
     @PostMapping
     public DocumentStateResponse create(@Valid @RequestBody CreateDocumentRequest req) {
         UUID id = service.create(req.title(), req.text());
-        DocumentEntity entity = service.get(id);
-        return toResponse(entity);
+        DocumentStore.StoredDocument doc = service.get(id);
+        return toResponse(doc);
+    }
+
+    /**
+     * Create documents from an NDJSON stream of {@link CreateDocumentRequest}s, one per line. They
+     * are inserted {@value #IMPORT_BATCH_SIZE} at a time, each batch in its own transaction, and
+     * the id of every document is streamed back as an NDJSON line once its batch commits. A line
+     * that is not a valid request ends the import: the documents before it are still created, and
+     * a final line reports the error. So does a batch that cannot be stored, reported at the line
+     * the batch starts on.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> createAll(InputStream body) {
+        StreamingResponseBody out = stream -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            List<DocumentService.NewDocument> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            long lineNumber = 0;
+            long batchStart = 0;
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                DocumentService.NewDocument document;
+                try {
+                    document = parseImportLine(line);
+                } catch (IllegalArgumentException e) {
+                    if (writeCreated(stream, batch, batchStart)) {
+                        writeLine(stream, new ImportErrorResponse(lineNumber, e.getMessage()));
+                    }
+                    return;
+                }
+
+                if (batch.isEmpty()) {
+                    batchStart = lineNumber;
+                }
+                batch.add(document);
+                if (batch.size() == IMPORT_BATCH_SIZE && !writeCreated(stream, batch, batchStart)) {
+                    return;
+                }
+            }
+            writeCreated(stream, batch, batchStart);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(out);
     }
 
+    /**
+     * The state of a document, served from its cached serialized form while the document is
+     * unchanged, and gzip-compressed when the client accepts it.
+     */
     @GetMapping("/{id}")
-    public DocumentStateResponse get(@PathVariable UUID id) {
-        DocumentEntity entity = service.get(id);
-        return toResponse(entity);
+    public ResponseEntity<byte[]> get(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        DocumentResponseCache.Entry cached = responses.get(id, service.currentVersion(id));
+        if (cached == null) {
+            DocumentStore.StoredDocument doc = service.get(id);
+            cached = responses.put(id, doc.version(), json.writeValueAsBytes(toResponse(doc)));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (cached.gzipped() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzipped());
+        }
+        return response.body(cached.body());
     }
 
     @GetMapping
     public List<DocumentSummaryResponse> getAll() {
         List<DocumentSummaryResponse> summaries = new ArrayList<>();
-        List<DocumentEntity> documents = service.getAll();
+        List<DocumentStore.Summary> documents = service.getAll();
 
-        for (DocumentEntity document : documents) {
+        for (DocumentStore.Summary document : documents) {
             summaries.add(toSummaryResponse(document));
         }
 
         return summaries;
     }
 
+    @GetMapping("/search")
+    public List<DocumentSummaryResponse> search(@RequestParam String q) {
+        List<DocumentSummaryResponse> summaries = new ArrayList<>();
+
+        for (DocumentStore.Summary document : service.search(q)) {
+            summaries.add(toSummaryResponse(document));
+        }
+
+        return summaries;
+    }
+
+    @PostMapping("/{id}/clone")
+    public DocumentStateResponse clone(@PathVariable UUID id) {
+        UUID cloneId = service.clone(id);
+        DocumentStore.StoredDocument doc = service.get(cloneId);
+        return toResponse(doc);
+    }
+
+    /**
+     * Stream the text of a document as UTF-8, chunk by chunk. A single byte range may be requested
+     * with a {@code Range} header, for resuming a download or fetching a window of a large document;
+     * only the chunks overlapping it are read. The ETag is the document's version, and a range
+     * guarded by {@code If-Range} is only sent if the document is still at that version, otherwise
+     * the whole text is.
+     */
+    @GetMapping(path = "/{id}/content", produces = "text/plain;charset=UTF-8")
+    public ResponseEntity<StreamingResponseBody> getContent(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange
+    ) {
+        RequestedRange requested = parseRange(range);
+        if (requested != null) {
+            DocumentService.ContentRange ranged = service.getContentRange(id, requested.first(), requested.last());
+            // If-Range compares strongly, so a weak tag or a date never matches and gets the whole text
+            if (ifRange == null || ifRange.equals(etag(ranged.version()))) {
+                return partialContent(ranged);
+            }
+        }
+
+        DocumentService.Content content = service.getContent(id);
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            for (String piece : content.pieces()) {
+                writer.write(piece);
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(etag(content.version()))
+                .body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> partialContent(DocumentService.ContentRange ranged) {
+        DocumentChunkStore.ByteWindow window = ranged.window();
+        if (window.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + window.total())
+                    .build();
+        }
+
+        StreamingResponseBody body = out -> {
+            for (byte[] part : window.parts()) {
+                out.write(part);
+            }
+        };
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + window.start() + "-" + (window.end() - 1) + "/" + window.total())
+                .eTag(etag(ranged.version()))
+                .contentLength(window.end() - window.start())
+                .body(body);
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /** Replace the text of a document with the UTF-8 request body, read as a stream. */
+    @PutMapping(path = "/{id}/content", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public DocumentSummaryResponse putContent(@PathVariable UUID id, InputStream body) {
+        DocumentStore.Summary summary = service.replaceContent(id, new InputStreamReader(body, StandardCharsets.UTF_8));
+        return toSummaryResponse(summary);
+    }
+
+    @GetMapping("/{id}/versions")
+    public List<VersionSummaryResponse> getVersions(@PathVariable UUID id) {
+        List<VersionSummaryResponse> versions = new ArrayList<>();
+
+        for (DocumentRevisionEntity revision : service.getVersions(id)) {
+            versions.add(new VersionSummaryResponse(revision.getRevision(), revision.isSnapshot(), revision.getCreatedAt()));
+        }
+
+        return versions;
+    }
+
+    @GetMapping("/{id}/versions/{revision}")
+    public VersionResponse getVersion(@PathVariable UUID id, @PathVariable long revision) {
+        DocumentHistory.Version version = service.getVersion(id, revision);
+        return new VersionResponse(id, version.revision(), version.text(), version.createdAt());
+    }
+
+    /**
+     * Diff two revisions of a document, or a revision against the current text when {@code to} is
+     * omitted. Hunks are streamed as newline-delimited JSON while the diff runs.
+     */
+    @GetMapping("/{id}/diff")
+    public ResponseEntity<StreamingResponseBody> diff(
+            @PathVariable UUID id,
+            @RequestParam long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "LINE") TextDiff.Mode mode
+    ) {
+        String oldText = service.getText(id, from);
+        String newText = service.getText(id, to);
+        return streamDiff(oldText, newText, mode);
+    }
+
+    /** Diff a revision of a document, or its current text when {@code from} is omitted, against the posted text. */
+    @PostMapping(path = "/{id}/diff", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> diffAgainst(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Long from,
+            @RequestParam(defaultValue = "LINE") TextDiff.Mode mode,
+            @RequestBody(required = false) String text
+    ) {
+        String oldText = service.getText(id, from);
+        return streamDiff(oldText, text == null ? "" : text, mode);
+    }
+
     @PostMapping("/{id}/commands")
     public DocumentStateResponse apply(@PathVariable UUID id, @Valid @RequestBody CommandRequest req) {
         var cmd = CommandFactory.from(req);
-        service.apply(id, cmd);
-        DocumentEntity entity = service.get(id);
-        return toResponse(entity);
+        admission.run(id, () -> service.apply(id, cmd));
+        DocumentStore.StoredDocument doc = service.get(id);
+        return toResponse(doc);
+    }
+
+    /**
+     * Apply a batch of commands in the compact binary encoding of {@link BinaryCommandCodec}. The
+     * commands are decoded as the body streams in and then applied in order as one update.
+     */
+    @PostMapping(path = "/{id}/commands", consumes = BinaryCommandCodec.MEDIA_TYPE)
+    public DocumentStateResponse applyBinary(@PathVariable UUID id, InputStream body) throws IOException {
+        List<Command> commands = new ArrayList<>();
+        for (CommandRequest req : BinaryCommandCodec.readAll(body)) {
+            commands.add(CommandFactory.from(req));
+        }
+
+        BatchCommand batch = new BatchCommand(commands);
+        admission.run(id, () -> service.apply(id, batch));
+        DocumentStore.StoredDocument doc = service.get(id);
+        return toResponse(doc);
+    }
+
+    /**
+     * Parse a single {@code bytes=first-last} or {@code bytes=-suffix} range. Anything else,
+     * including several ranges, is ignored so the whole text is sent instead.
+     */
+    private static RequestedRange parseRange(String header) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            // Long.parseLong accepts a sign, which a byte range never has
+            if (spec.indexOf('+') >= 0 || spec.indexOf('-', dash + 1) >= 0) {
+                return null;
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty() && last.isEmpty()) {
+                return null;
+            }
+            RequestedRange range = new RequestedRange(
+                    first.isEmpty() ? null : Long.parseLong(first),
+                    last.isEmpty() ? null : Long.parseLong(last)
+            );
+            if (range.first() != null && range.last() != null && range.last() < range.first()) {
+                return null;
+            }
+            return range;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamDiff(String oldText, String newText, TextDiff.Mode mode) {
+        StreamingResponseBody body = out -> TextDiff.diff(oldText, newText, mode, hunk -> writeLine(out, hunk));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private DocumentService.NewDocument parseImportLine(String line) {
+        CreateDocumentRequest req;
+        try {
+            req = json.readValue(line, CreateDocumentRequest.class);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Malformed document");
+        }
+        // Checked against the same constraints @Valid applies to a single create
+        Set<ConstraintViolation<CreateDocumentRequest>> violations = validator.validate(req);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.iterator().next().getMessage());
+        }
+        return new DocumentService.NewDocument(req.title(), req.text());
+    }
+
+    /**
+     * Store a batch of imported documents and write their ids, or an error for the batch's first
+     * line if it could not be stored. Returns whether the import can go on.
+     */
+    private boolean writeCreated(OutputStream out, List<DocumentService.NewDocument> batch, long firstLine)
+            throws IOException {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        List<UUID> ids;
+        try {
+            ids = service.createAll(batch);
+        } catch (DataAccessException e) {
+            writeLine(out, new ImportErrorResponse(firstLine, "Could not store documents"));
+            out.flush();
+            return false;
+        }
+        for (UUID id : ids) {
+            writeLine(out, new CreatedDocumentResponse(id));
+        }
+        batch.clear();
+        out.flush();
+        return true;
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(json.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    private static DocumentStateResponse toResponse(DocumentEntity e) {
+    private static DocumentStateResponse toResponse(DocumentStore.StoredDocument d) {
         return new DocumentStateResponse(
-                e.getId(),
-                e.getTitle(),
-                e.getText(),
-                e.getCursor(),
-                e.getAnchor(),
-                e.getPreferredColumn(),
-                e.getCreatedAt(),
-                e.getUpdatedAt()
+                d.id(),
+                d.title(),
+                d.text().toString(),
+                d.selection().cursor(),
+                d.selection().anchor(),
+                d.selection().preferredColumn(),
+                d.createdAt(),
+                d.updatedAt()
         );
     }
 
-    private static DocumentSummaryResponse toSummaryResponse(DocumentEntity e) {
+    private static DocumentSummaryResponse toSummaryResponse(DocumentStore.Summary s) {
         return new DocumentSummaryResponse(
-                e.getId(),
-                e.getTitle(),
-                e.getCreatedAt(),
-                e.getUpdatedAt()
+                s.id(),
+                s.title(),
+                s.stats().chars(),
+                s.stats().words(),
+                s.stats().lines(),
+                s.createdAt(),
+                s.updatedAt()
         );
     }
 
+    private record RequestedRange(Long first, Long last) {}
+
     public record DocumentStateResponse(
             UUID id,
             String title,
@@ -90,8 +444,28 @@ public final class DocumentController {
     public record DocumentSummaryResponse(
             UUID id,
             String title,
+            int charCount,
+            int wordCount,
+            int lineCount,
             Instant createdAt,
             Instant updatedAt
     ) {}
 
+    public record CreatedDocumentResponse(UUID id) {}
+
+    public record ImportErrorResponse(long line, String error) {}
+
+    public record VersionSummaryResponse(
+            long revision,
+            boolean snapshot,
+            Instant createdAt
+    ) {}
+
+    public record VersionResponse(
+            UUID id,
+            long revision,
+            String text,
+            Instant createdAt
+    ) {}
+
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.example.texteditorapi.editor.api;
+
+import com.example.texteditorapi.editor.cluster.ClusterMembership;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends commands for a document owned by another node to that node with a 307 redirect, which
+ * keeps the method and body. Only the owner keeps the document's live buffer, so this is what
+ * keeps a document's edits and undo history on one node.
+ */
+@Component
+public class OwnerRedirectInterceptor implements HandlerInterceptor {
+
+    private final ClusterMembership membership;
+
+    public OwnerRedirectInterceptor(ClusterMembership membership) {
+        this.membership = membership;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || variables.get("id") == null) {
+            return true;
+        }
+
+        UUID id;
+        try {
+            id = UUID.fromString(variables.get("id"));
+        } catch (IllegalArgumentException e) {
+            // Let the controller reject the id as it would anyway
+            return true;
+        }
+
+        ClusterMembership.Node owner = membership.owner(id);
+        if (owner.id().equals(membership.self().id())) {
+            return true;
+        }
+
+        String location = owner.url() + request.getRequestURI()
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+        response.setHeader(HttpHeaders.LOCATION, location);
+        return false;
+    }
+}
@@ -1,12 +1,24 @@
 package com.example.texteditorapi.editor.api;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final OwnerRedirectInterceptor ownerRedirect;
+
+    public WebConfig(OwnerRedirectInterceptor ownerRedirect) {
+        this.ownerRedirect = ownerRedirect;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ownerRedirect).addPathPatterns("/api/documents/*/commands");
+    }
+
     @Override
     public void addViewControllers(ViewControllerRegistry registry) {
         registry.addViewController("/{path:[^\\.]*}")
@@ -0,0 +1,10 @@
+package com.example.texteditorapi.editor.cluster;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** Runs the membership heartbeat. */
+@Configuration
+@EnableScheduling
+public class ClusterConfig {
+}
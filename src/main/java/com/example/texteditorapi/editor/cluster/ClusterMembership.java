@@ -0,0 +1,133 @@
+package com.example.texteditorapi.editor.cluster;
+
+import com.example.texteditorapi.editor.persistence.ClusterNodeEntity;
+import com.example.texteditorapi.editor.persistence.ClusterNodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decides which node owns each document. Only the owner keeps a live buffer for a document, so
+ * commands for it are sent to the owner, and its undo history and cache stay on a single node.
+ *
+ * Every node holds a lease in cluster_nodes that it renews on each heartbeat. The members are the
+ * nodes with an unexpired lease, and documents are spread over them with a {@link HashRing}. A
+ * node that shuts down gives up its lease at once; one that crashes drops out when its lease
+ * expires. Either way the other nodes pick up its documents on their next heartbeat and publish
+ * an {@link OwnershipChangedEvent}.
+ *
+ * With clustering disabled the node owns every document and nothing is stored.
+ */
+@Component
+public class ClusterMembership {
+
+    public record Node(String id, String url) {}
+
+    // Members and ring are swapped together so owner() never sees one without the other
+    private record View(Map<String, Node> members, HashRing ring) {}
+
+    private final ClusterNodeRepository repo;
+    private final TransactionTemplate transactions;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final Node self;
+    private final Duration lease;
+    private final int virtualNodes;
+
+    private volatile View view;
+
+    public ClusterMembership(
+            ClusterNodeRepository repo,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher events,
+            @Value("${texteditor.cluster.enabled:false}") boolean enabled,
+            @Value("${texteditor.cluster.node-id:${random.uuid}}") String nodeId,
+            @Value("${texteditor.cluster.url:http://localhost:${server.port:8080}}") String url,
+            @Value("${texteditor.cluster.lease-ms:15000}") long leaseMs,
+            @Value("${texteditor.cluster.virtual-nodes:128}") int virtualNodes
+    ) {
+        this.repo = repo;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.enabled = enabled;
+        this.self = new Node(nodeId, url);
+        this.lease = Duration.ofMillis(leaseMs);
+        this.virtualNodes = virtualNodes;
+        this.view = new View(Map.of(self.id(), self), new HashRing(List.of(self.id()), virtualNodes));
+    }
+
+    @PostConstruct
+    void join() {
+        heartbeat();
+    }
+
+    /** Renew this node's lease and pick up nodes that joined or left since the last heartbeat. */
+    @Scheduled(fixedDelayString = "${texteditor.cluster.heartbeat-ms:5000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<ClusterNodeEntity> live = transactions.execute(status -> {
+            repo.save(new ClusterNodeEntity(self.id(), self.url(), now));
+            repo.deleteExpired(now.minus(lease));
+            return repo.findByHeartbeatAtAfterOrderById(now.minus(lease));
+        });
+
+        Map<String, Node> found = new LinkedHashMap<>();
+        for (ClusterNodeEntity node : live) {
+            found.put(node.getId(), new Node(node.getId(), node.getUrl()));
+        }
+        found.putIfAbsent(self.id(), self);
+
+        View current = view;
+        if (found.equals(current.members())) {
+            return;
+        }
+
+        boolean rebalanced = !found.keySet().equals(current.members().keySet());
+        view = new View(found, rebalanced ? new HashRing(found.keySet(), virtualNodes) : current.ring());
+        if (rebalanced) {
+            events.publishEvent(new OwnershipChangedEvent(List.copyOf(found.values())));
+        }
+    }
+
+    @PreDestroy
+    void leave() {
+        if (enabled) {
+            transactions.executeWithoutResult(status -> repo.deleteById(self.id()));
+        }
+    }
+
+    public Node self() {
+        return self;
+    }
+
+    public List<Node> members() {
+        return List.copyOf(view.members().values());
+    }
+
+    /** The node that owns {@code documentId}; this node when clustering is disabled. */
+    public Node owner(UUID documentId) {
+        View current = view;
+        Node owner = current.members().get(current.ring().owner(documentId));
+        return owner != null ? owner : self;
+    }
+
+    public boolean isLocal(UUID documentId) {
+        return owner(documentId).id().equals(self.id());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.texteditorapi.editor.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Consistent hashing of document ids onto nodes. Each node is placed on the ring at
+ * {@code virtualNodes} points, and a document belongs to the node at the first point at or after
+ * its own hash. When a node joins or leaves, only the documents between its points and their
+ * predecessors change owner; everything else stays where it was.
+ */
+public final class HashRing {
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    public HashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(point(nodeId + "#" + i), nodeId);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    /** The node owning {@code documentId}, or null if the ring has no nodes. */
+    public String owner(UUID documentId) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> e = points.ceilingEntry(hash(documentId));
+        return (e != null ? e : points.firstEntry()).getValue();
+    }
+
+    /** Document ids are random already; mixing both halves spreads them evenly over 64 bits. */
+    static long hash(UUID id) {
+        long h = id.getMostSignificantBits() * 0x9E3779B97F4A7C15L ^ id.getLeastSignificantBits();
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Ring points must be the same on every node, so they come from a fixed digest of the name. */
+    private static long point(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(name.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
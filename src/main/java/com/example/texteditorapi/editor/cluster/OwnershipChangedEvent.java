@@ -0,0 +1,6 @@
+package com.example.texteditorapi.editor.cluster;
+
+import java.util.List;
+
+/** Published when nodes join or leave, after which some documents have a new owner. */
+public record OwnershipChangedEvent(List<ClusterMembership.Node> members) {}
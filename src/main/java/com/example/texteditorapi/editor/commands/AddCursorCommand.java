@@ -0,0 +1,16 @@
+package com.example.texteditorapi.editor.commands;
+
+import com.example.texteditorapi.editor.TextBuffer;
+
+public final class AddCursorCommand implements Command {
+    private final int pos;
+
+    public AddCursorCommand(int pos) {
+        this.pos = pos;
+    }
+
+    @Override
+    public void apply(TextBuffer buffer) {
+        buffer.addCursor(pos);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.texteditorapi.editor.commands;
+
+import com.example.texteditorapi.editor.TextBuffer;
+
+import java.util.List;
+
+/** Applies a sequence of commands in order, so a whole batch runs as a single document update. */
+public final class BatchCommand implements Command {
+    private final List<Command> commands;
+
+    public BatchCommand(List<Command> commands) {
+        this.commands = List.copyOf(commands);
+    }
+
+    @Override
+    public void apply(TextBuffer buffer) {
+        for (Command command : commands) {
+            command.apply(buffer);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.texteditorapi.editor.commands;
+
+import com.example.texteditorapi.editor.TextBuffer;
+
+public final class DeleteRightAtCursorsCommand implements Command {
+    @Override public void apply(TextBuffer buffer) { buffer.deleteRightAtCursors(); }
+}
@@ -0,0 +1,17 @@
+package com.example.texteditorapi.editor.commands;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.search.SearchQuery;
+
+public final class FindNextCommand implements Command {
+    private final SearchQuery query;
+
+    public FindNextCommand(SearchQuery query) {
+        this.query = query;
+    }
+
+    @Override
+    public void apply(TextBuffer buffer) {
+        buffer.findNext(query);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.texteditorapi.editor.commands;
+
+import com.example.texteditorapi.editor.TextBuffer;
+
+public final class InsertAtCursorsCommand implements Command {
+    private final String text;
+
+    public InsertAtCursorsCommand(String text) {
+        this.text = text;
+    }
+
+    @Override
+    public void apply(TextBuffer buffer) {
+        buffer.insertAtCursors(text);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.texteditorapi.editor.commands;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.search.SearchQuery;
+
+public final class ReplaceAllCommand implements Command {
+    private final SearchQuery query;
+    private final String replacement;
+
+    public ReplaceAllCommand(SearchQuery query, String replacement) {
+        this.query = query;
+        this.replacement = replacement;
+    }
+
+    @Override
+    public void apply(TextBuffer buffer) {
+        buffer.replaceAll(query, replacement);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.texteditorapi.editor.diff;
+
+import java.util.Arrays;
+
+/**
+ * Myers' O(ND) difference algorithm in linear space: instead of keeping every furthest-reaching
+ * path, it searches forwards and backwards at once for the middle of an optimal edit path, then
+ * recurses on the two halves. Common prefixes and suffixes are stripped before each search.
+ *
+ * Changed regions are reported in order as soon as they are known, so callers can stream them.
+ */
+public final class MyersDiff {
+
+    /** Receives each changed region in order: {@code a[aStart, aEnd)} was replaced by {@code b[bStart, bEnd)}. */
+    public interface HunkConsumer {
+        void hunk(int aStart, int aEnd, int bStart, int bEnd);
+    }
+
+    private final int[] a;
+    private final int[] b;
+    private final HunkConsumer out;
+
+    // The change being built up; adjacent deletions and insertions are merged into one hunk
+    private boolean pending;
+    private int pendingAStart;
+    private int pendingAEnd;
+    private int pendingBStart;
+    private int pendingBEnd;
+
+    private MyersDiff(int[] a, int[] b, HunkConsumer out) {
+        this.a = a;
+        this.b = b;
+        this.out = out;
+    }
+
+    public static void diff(int[] a, int[] b, HunkConsumer out) {
+        MyersDiff d = new MyersDiff(a, b, out);
+        d.diff(0, a.length, 0, b.length);
+        d.flush();
+    }
+
+    private void diff(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+
+        if (aLo == aHi || bLo == bHi) {
+            change(aLo, aHi, bLo, bHi);
+            return;
+        }
+
+        bisect(aLo, aHi, bLo, bHi);
+    }
+
+    /** Find the middle snake of [aLo, aHi) x [bLo, bHi) and recurse on either side of it. */
+    private void bisect(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int size = 2 * maxD + 2;
+
+        // forward[k] / backward[k]: furthest x reached on diagonal k, counted from each end
+        int[] forward = new int[size];
+        int[] backward = new int[size];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        int delta = n - m;
+        // With an odd delta the paths can only meet on a forward step, otherwise on a backward one
+        boolean checkOnForward = (delta & 1) != 0;
+        int kForwardStart = 0;
+        int kForwardEnd = 0;
+        int kBackwardStart = 0;
+        int kBackwardEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + kForwardStart; k <= d - kForwardEnd; k += 2) {
+                int i = offset + k;
+                int x = (k == -d || (k != d && forward[i - 1] < forward[i + 1])) ? forward[i + 1] : forward[i - 1] + 1;
+                int y = x - k;
+
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[i] = x;
+
+                if (x > n) {
+                    kForwardEnd += 2;
+                } else if (y > m) {
+                    kForwardStart += 2;
+                } else if (checkOnForward) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < size && backward[j] != -1 && x >= n - backward[j]) {
+                        split(aLo, aHi, bLo, bHi, x, y);
+                        return;
+                    }
+                }
+            }
+
+            for (int k = -d + kBackwardStart; k <= d - kBackwardEnd; k += 2) {
+                int i = offset + k;
+                int x = (k == -d || (k != d && backward[i - 1] < backward[i + 1])) ? backward[i + 1] : backward[i - 1] + 1;
+                int y = x - k;
+
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[i] = x;
+
+                if (x > n) {
+                    kBackwardEnd += 2;
+                } else if (y > m) {
+                    kBackwardStart += 2;
+                } else if (!checkOnForward) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < size && forward[j] != -1) {
+                        int forwardX = forward[j];
+                        int forwardY = offset + forwardX - j;
+                        if (forwardX >= n - x) {
+                            split(aLo, aHi, bLo, bHi, forwardX, forwardY);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        // No common element at all
+        change(aLo, aHi, bLo, bHi);
+    }
+
+    private void split(int aLo, int aHi, int bLo, int bHi, int x, int y) {
+        boolean atStart = x == 0 && y == 0;
+        boolean atEnd = x == aHi - aLo && y == bHi - bLo;
+        if (atStart || atEnd) {
+            // Cannot make progress by splitting here; report the whole range as one change
+            change(aLo, aHi, bLo, bHi);
+            return;
+        }
+
+        diff(aLo, aLo + x, bLo, bLo + y);
+        diff(aLo + x, aHi, bLo + y, bHi);
+    }
+
+    private void change(int aStart, int aEnd, int bStart, int bEnd) {
+        if (aStart == aEnd && bStart == bEnd) {
+            return;
+        }
+
+        if (pending && pendingAEnd == aStart && pendingBEnd == bStart) {
+            pendingAEnd = aEnd;
+            pendingBEnd = bEnd;
+            return;
+        }
+
+        flush();
+        pending = true;
+        pendingAStart = aStart;
+        pendingAEnd = aEnd;
+        pendingBStart = bStart;
+        pendingBEnd = bEnd;
+    }
+
+    private void flush() {
+        if (pending) {
+            out.hunk(pendingAStart, pendingAEnd, pendingBStart, pendingBEnd);
+            pending = false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.texteditorapi.editor.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/** Diffs two texts line by line or character by character and reports the changes as hunks. */
+public final class TextDiff {
+
+    public enum Mode {
+        LINE,
+        CHAR,
+    }
+
+    /**
+     * One changed region. Positions are in lines or characters depending on the mode, and
+     * {@code removed} / {@code added} hold the replaced text from either side.
+     */
+    public record Hunk(
+            int oldStart,
+            int oldEnd,
+            int newStart,
+            int newEnd,
+            String removed,
+            String added
+    ) {}
+
+    private TextDiff() {}
+
+    public static void diff(String oldText, String newText, Mode mode, Consumer<Hunk> out) {
+        if (oldText == null || newText == null) throw new IllegalArgumentException("texts cannot be null");
+        if (mode == null) throw new IllegalArgumentException("mode cannot be null");
+
+        if (mode == Mode.CHAR) {
+            MyersDiff.diff(chars(oldText), chars(newText), (aStart, aEnd, bStart, bEnd) -> out.accept(new Hunk(
+                    aStart, aEnd, bStart, bEnd,
+                    oldText.substring(aStart, aEnd),
+                    newText.substring(bStart, bEnd)
+            )));
+            return;
+        }
+
+        // Lines keep their trailing newline and are compared by id, so equal lines compare as equal ints
+        List<String> oldLines = lines(oldText);
+        List<String> newLines = lines(newText);
+        Map<String, Integer> ids = new HashMap<>();
+
+        MyersDiff.diff(ids(oldLines, ids), ids(newLines, ids), (aStart, aEnd, bStart, bEnd) -> out.accept(new Hunk(
+                aStart, aEnd, bStart, bEnd,
+                String.join("", oldLines.subList(aStart, aEnd)),
+                String.join("", newLines.subList(bStart, bEnd))
+        )));
+    }
+
+    private static int[] chars(String text) {
+        int[] result = new int[text.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = text.charAt(i);
+        }
+        return result;
+    }
+
+    static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+
+        while (start < text.length()) {
+            int newLine = text.indexOf('\n', start);
+            int end = newLine < 0 ? text.length() : newLine + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines;
+    }
+
+    private static int[] ids(List<String> lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(lines.get(i), line -> ids.size());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.texteditorapi.editor.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.util.UUID;
+
+/**
+ * Immutable chunk text. Rows can be referenced by the chunks of several documents (clones share
+ * them), so an edit always writes a new row instead of updating an existing one.
+ */
+@Entity
+@Table(name = "chunk_contents")
+public class ChunkContentEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(columnDefinition = "TEXT", nullable = false, updatable = false)
+    private String text;
+
+    protected ChunkContentEntity() {
+    }
+
+    public ChunkContentEntity(UUID id, String text) {
+        this.id = id;
+        this.text = text;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
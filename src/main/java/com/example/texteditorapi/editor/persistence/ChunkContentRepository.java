@@ -0,0 +1,21 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface ChunkContentRepository extends JpaRepository<ChunkContentEntity, UUID> {
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM chunk_contents c
+            WHERE c.id IN (:ids)
+              AND NOT EXISTS (SELECT 1 FROM document_chunks d WHERE d.content_id = c.id)
+              AND NOT EXISTS (SELECT 1 FROM document_snapshot_chunks s WHERE s.content_id = c.id)
+            """, nativeQuery = true)
+    int deleteUnreferenced(@Param("ids") Collection<UUID> ids);
+}
@@ -0,0 +1,47 @@
+package com.example.texteditorapi.editor.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "cluster_nodes")
+public class ClusterNodeEntity {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String url;
+
+    @Column(nullable = false)
+    private Instant heartbeatAt;
+
+    protected ClusterNodeEntity() {
+    }
+
+    public ClusterNodeEntity(String id, String url, Instant heartbeatAt) {
+        this.id = id;
+        this.url = url;
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(Instant heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ClusterNodeRepository extends JpaRepository<ClusterNodeEntity, String> {
+
+    List<ClusterNodeEntity> findByHeartbeatAtAfterOrderById(Instant since);
+
+    @Modifying
+    @Query("delete from ClusterNodeEntity n where n.heartbeatAt < :before")
+    int deleteExpired(@Param("before") Instant before);
+}
@@ -0,0 +1,45 @@
+package com.example.texteditorapi.editor.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "document_archives")
+public class DocumentArchiveEntity {
+
+    @Id
+    private UUID documentId;
+
+    // Chunks and history of the document, compressed by ArchivedDocument
+    @Column(nullable = false)
+    private byte[] content;
+
+    @Column(nullable = false)
+    private Instant archivedAt;
+
+    protected DocumentArchiveEntity() {
+    }
+
+    public DocumentArchiveEntity(UUID documentId, byte[] content, Instant archivedAt) {
+        this.documentId = documentId;
+        this.content = content;
+        this.archivedAt = archivedAt;
+    }
+
+    public UUID getDocumentId() {
+        return documentId;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public Instant getArchivedAt() {
+        return archivedAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface DocumentArchiveRepository extends JpaRepository<DocumentArchiveEntity, UUID> {
+}
@@ -0,0 +1,125 @@
+package com.example.texteditorapi.editor.persistence;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+@Entity
+@Table(name = "document_chunks")
+@IdClass(DocumentChunkEntity.Key.class)
+public class DocumentChunkEntity implements Persistable<DocumentChunkEntity.Key> {
+
+    @Id
+    private UUID documentId;
+
+    @Id
+    private long seq;
+
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST, optional = false)
+    @JoinColumn(name = "content_id", nullable = false)
+    private ChunkContentEntity content;
+
+    // Kept beside the content reference so chunks can be laid out without loading their text
+    @Column(name = "text_length", nullable = false)
+    private int length;
+
+    // New chunks always get a fresh seq, so we can skip the select that merge() would do
+    @Transient
+    private boolean isNew = true;
+
+    protected DocumentChunkEntity() {
+    }
+
+    public DocumentChunkEntity(UUID documentId, long seq, String content) {
+        this.documentId = documentId;
+        this.seq = seq;
+        this.content = new ChunkContentEntity(UUID.randomUUID(), content);
+        this.length = content.length();
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(documentId, seq);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public UUID getDocumentId() {
+        return documentId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getContent() {
+        return content.getText();
+    }
+
+    /** The length of the content in chars, known without loading it. */
+    public int getLength() {
+        return length;
+    }
+
+    public UUID getContentId() {
+        return content.getId();
+    }
+
+    public ChunkContentEntity getContentEntity() {
+        return content;
+    }
+
+    /** Contents are shared and immutable, so changing the text points this chunk at a new row. */
+    public void setContent(String content) {
+        this.content = new ChunkContentEntity(UUID.randomUUID(), content);
+        this.length = content.length();
+    }
+
+    public static class Key implements Serializable {
+        private UUID documentId;
+        private long seq;
+
+        protected Key() {
+        }
+
+        public Key(UUID documentId, long seq) {
+            this.documentId = documentId;
+            this.seq = seq;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return seq == other.seq && Objects.equals(documentId, other.documentId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(documentId, seq);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface DocumentChunkRepository extends JpaRepository<DocumentChunkEntity, DocumentChunkEntity.Key> {
+
+    /** The UTF-8 length of one stored chunk. */
+    interface ChunkByteLength {
+        long getSeq();
+
+        int getBytes();
+    }
+
+    @Query("select c from DocumentChunkEntity c join fetch c.content where c.documentId = :documentId order by c.seq")
+    List<DocumentChunkEntity> findByDocumentIdOrderBySeq(@Param("documentId") UUID documentId);
+
+    /** The chunks of a document, in order, with their contents left unloaded until one is read. */
+    @Query("select c from DocumentChunkEntity c where c.documentId = :documentId order by c.seq")
+    List<DocumentChunkEntity> findLayoutByDocumentId(@Param("documentId") UUID documentId);
+
+    @Query("select c from DocumentChunkEntity c join fetch c.content where c.documentId = :documentId and c.seq between :fromSeq and :toSeq order by c.seq")
+    List<DocumentChunkEntity> findByDocumentIdAndSeqBetween(
+            @Param("documentId") UUID documentId,
+            @Param("fromSeq") long fromSeq,
+            @Param("toSeq") long toSeq
+    );
+
+    /** Byte length of every chunk of a document, in order, computed by the database without returning any text. */
+    @Query(value = """
+            SELECT c.seq AS seq, octet_length(cc.text) AS bytes
+            FROM document_chunks c JOIN chunk_contents cc ON cc.id = c.content_id
+            WHERE c.document_id = :documentId
+            ORDER BY c.seq
+            """, nativeQuery = true)
+    List<ChunkByteLength> findByteLengths(@Param("documentId") UUID documentId);
+
+    @Query("select c.content.id from DocumentChunkEntity c where c.documentId = :documentId")
+    List<UUID> findCurrentContentIds(@Param("documentId") UUID documentId);
+
+    @Modifying
+    @Query("delete from DocumentChunkEntity c where c.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") UUID documentId);
+
+    /** Every content the document refers to, from its current chunks and from its history snapshots. */
+    @Query(value = """
+            SELECT content_id FROM document_chunks WHERE document_id = :documentId
+            UNION
+            SELECT content_id FROM document_snapshot_chunks WHERE document_id = :documentId
+            """, nativeQuery = true)
+    List<UUID> findContentIds(@Param("documentId") UUID documentId);
+
+    /** Point a new document at the same chunk contents as an existing one, without copying any text. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO document_chunks (document_id, seq, content_id, text_length)
+            SELECT :targetId, seq, content_id, text_length FROM document_chunks WHERE document_id = :sourceId
+            """, nativeQuery = true)
+    int shareChunks(@Param("sourceId") UUID sourceId, @Param("targetId") UUID targetId);
+}
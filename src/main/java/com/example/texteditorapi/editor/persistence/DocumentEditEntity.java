@@ -0,0 +1,131 @@
+package com.example.texteditorapi.editor.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+/** One text change recorded in a document's history, in the order the buffer made it. */
+@Entity
+@Table(name = "document_edits")
+@IdClass(DocumentEditEntity.Key.class)
+public class DocumentEditEntity implements Persistable<DocumentEditEntity.Key> {
+
+    public enum Type {
+        INSERT,
+        DELETE,
+    }
+
+    @Id
+    private UUID documentId;
+
+    @Id
+    private long revision;
+
+    @Id
+    private int ordinal;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    @Column(nullable = false)
+    private int pos;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String text;
+
+    // Edits are only ever inserted, so we can skip the select that merge() would do
+    @Transient
+    private boolean isNew = true;
+
+    protected DocumentEditEntity() {
+    }
+
+    public DocumentEditEntity(UUID documentId, long revision, int ordinal, Type type, int pos, String text) {
+        this.documentId = documentId;
+        this.revision = revision;
+        this.ordinal = ordinal;
+        this.type = type;
+        this.pos = pos;
+        this.text = text;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(documentId, revision, ordinal);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public UUID getDocumentId() {
+        return documentId;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getPos() {
+        return pos;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public static class Key implements Serializable {
+        private UUID documentId;
+        private long revision;
+        private int ordinal;
+
+        protected Key() {
+        }
+
+        public Key(UUID documentId, long revision, int ordinal) {
+            this.documentId = documentId;
+            this.revision = revision;
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return revision == other.revision && ordinal == other.ordinal && Objects.equals(documentId, other.documentId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(documentId, revision, ordinal);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface DocumentEditRepository extends JpaRepository<DocumentEditEntity, DocumentEditEntity.Key> {
+
+    /** Edits made after revision {@code from} up to and including {@code to}, in replay order. */
+    @Query("""
+            select e from DocumentEditEntity e
+            where e.documentId = :documentId and e.revision > :from and e.revision <= :to
+            order by e.revision, e.ordinal
+            """)
+    List<DocumentEditEntity> findReplay(@Param("documentId") UUID documentId, @Param("from") long from, @Param("to") long to);
+
+    List<DocumentEditEntity> findByDocumentIdOrderByRevisionAscOrdinalAsc(UUID documentId);
+}
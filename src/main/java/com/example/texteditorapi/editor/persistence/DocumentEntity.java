@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -18,7 +20,8 @@ public class DocumentEntity {
     @Column(nullable = false)
     private String title;
 
-    @Column(columnDefinition = "TEXT")
+    // Stored in document_chunks; DocumentService assembles it when a document is read
+    @Transient
     private String text;
 
     @Column(nullable = false)
@@ -36,6 +39,34 @@ public class DocumentEntity {
     @Column(nullable = false)
     private int preferredColumn;
 
+    @Version
+    private Long version;
+
+    // Text revision: only commands that change the text move it forward
+    @Column(nullable = false)
+    private long revision;
+
+    // Replay work accumulated since the last history snapshot
+    @Column(nullable = false)
+    private int editsSinceSnapshot;
+
+    @Column(nullable = false)
+    private long charsSinceSnapshot;
+
+    // Text statistics, maintained by DocumentService as commands edit the text
+    @Column(nullable = false)
+    private int charCount;
+
+    @Column(nullable = false)
+    private int wordCount;
+
+    @Column(nullable = false)
+    private int lineCount = 1;
+
+    // Set and cleared only by DocumentArchiver's bulk updates, so archiving never bumps the version
+    @Column(nullable = false, updatable = false)
+    private boolean archived;
+
     protected DocumentEntity() {
     }
 
@@ -72,6 +103,38 @@ public class DocumentEntity {
         return preferredColumn;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public int getEditsSinceSnapshot() {
+        return editsSinceSnapshot;
+    }
+
+    public long getCharsSinceSnapshot() {
+        return charsSinceSnapshot;
+    }
+
+    public int getCharCount() {
+        return charCount;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
     public Instant getCreatedAt() {return createdAt; }
 
     public Instant getUpdatedAt() {return updatedAt; }
@@ -98,5 +161,33 @@ public class DocumentEntity {
 
     public void setUpdatedAt(Instant updatedAt) {this.updatedAt = updatedAt; }
 
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public void setEditsSinceSnapshot(int editsSinceSnapshot) {
+        this.editsSinceSnapshot = editsSinceSnapshot;
+    }
+
+    public void setCharsSinceSnapshot(long charsSinceSnapshot) {
+        this.charsSinceSnapshot = charsSinceSnapshot;
+    }
+
+    public void setCharCount(int charCount) {
+        this.charCount = charCount;
+    }
+
+    public void setWordCount(int wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
 
 }
@@ -1,8 +1,57 @@
 package com.example.texteditorapi.editor.persistence;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface DocumentRepository extends JpaRepository<DocumentEntity, UUID> {
+
+    /** Just enough of a document to decide whether to preload it. */
+    interface RecentDocument {
+        UUID getId();
+
+        int getCharCount();
+    }
+
+    @Query("select d.id from DocumentEntity d")
+    List<UUID> findAllIds();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DocumentEntity d where d.id = :id")
+    Optional<DocumentEntity> findByIdForUpdate(@Param("id") UUID id);
+
+    /** Lock a document against changes while it is read, without blocking other readers that lock it too. */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select d from DocumentEntity d where d.id = :id")
+    Optional<DocumentEntity> findByIdForShare(@Param("id") UUID id);
+
+    /** Unarchived documents, most recently updated first. */
+    @Query("select d.id as id, d.charCount as charCount from DocumentEntity d where d.archived = false order by d.updatedAt desc")
+    List<RecentDocument> findRecentlyUpdated(Pageable page);
+
+    /**
+     * Lock up to {@code limit} documents not updated since {@code cutoff}, least recently updated
+     * first. Rows another transaction is archiving are skipped rather than waited for.
+     */
+    @Query(value = """
+            SELECT id FROM documents
+            WHERE NOT archived AND updated_at < :cutoff
+            ORDER BY updated_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<UUID> lockArchiveCandidates(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update DocumentEntity d set d.archived = :archived where d.id = :id")
+    int setArchived(@Param("id") UUID id, @Param("archived") boolean archived);
 }
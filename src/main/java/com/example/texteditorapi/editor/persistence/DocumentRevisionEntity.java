@@ -0,0 +1,110 @@
+package com.example.texteditorapi.editor.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+@Entity
+@Table(name = "document_revisions")
+@IdClass(DocumentRevisionEntity.Key.class)
+public class DocumentRevisionEntity implements Persistable<DocumentRevisionEntity.Key> {
+
+    @Id
+    private UUID documentId;
+
+    @Id
+    private long revision;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // True when document_snapshot_chunks holds the full text as of this revision
+    @Column(nullable = false)
+    private boolean snapshot;
+
+    // Revisions are only ever inserted, so we can skip the select that merge() would do
+    @Transient
+    private boolean isNew = true;
+
+    protected DocumentRevisionEntity() {
+    }
+
+    public DocumentRevisionEntity(UUID documentId, long revision, Instant createdAt, boolean snapshot) {
+        this.documentId = documentId;
+        this.revision = revision;
+        this.createdAt = createdAt;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(documentId, revision);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public UUID getDocumentId() {
+        return documentId;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public static class Key implements Serializable {
+        private UUID documentId;
+        private long revision;
+
+        protected Key() {
+        }
+
+        public Key(UUID documentId, long revision) {
+            this.documentId = documentId;
+            this.revision = revision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return revision == other.revision && Objects.equals(documentId, other.documentId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(documentId, revision);
+        }
+    }
+}
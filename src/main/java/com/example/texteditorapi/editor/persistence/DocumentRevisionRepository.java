@@ -0,0 +1,72 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface DocumentRevisionRepository extends JpaRepository<DocumentRevisionEntity, DocumentRevisionEntity.Key> {
+
+    /** One chunk of a history snapshot, with its text. */
+    interface SnapshotChunk {
+        long getRevision();
+
+        long getSeq();
+
+        UUID getContentId();
+
+        String getText();
+    }
+
+    List<DocumentRevisionEntity> findByDocumentIdOrderByRevision(UUID documentId);
+
+    /** Delete a document's history; its snapshot chunks and edits go with it. */
+    @Modifying
+    @Query("delete from DocumentRevisionEntity r where r.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") UUID documentId);
+
+    Optional<DocumentRevisionEntity> findByDocumentIdAndRevision(UUID documentId, long revision);
+
+    /** The latest snapshot at or before {@code revision}, which is where replaying towards it starts. */
+    Optional<DocumentRevisionEntity> findFirstByDocumentIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(
+            UUID documentId, long revision);
+
+    /** Snapshot the document's current chunk layout; the contents themselves are shared, not copied. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO document_snapshot_chunks (document_id, revision, seq, content_id)
+            SELECT document_id, :revision, seq, content_id FROM document_chunks WHERE document_id = :documentId
+            """, nativeQuery = true)
+    int snapshotChunks(@Param("documentId") UUID documentId, @Param("revision") long revision);
+
+    /** {@link #snapshotChunks} for several documents in one statement. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO document_snapshot_chunks (document_id, revision, seq, content_id)
+            SELECT document_id, :revision, seq, content_id FROM document_chunks WHERE document_id IN (:documentIds)
+            """, nativeQuery = true)
+    int snapshotChunksOf(@Param("documentIds") Collection<UUID> documentIds, @Param("revision") long revision);
+
+    @Query(value = """
+            SELECT c.text FROM document_snapshot_chunks s
+            JOIN chunk_contents c ON c.id = s.content_id
+            WHERE s.document_id = :documentId AND s.revision = :revision
+            ORDER BY s.seq
+            """, nativeQuery = true)
+    List<String> findSnapshotTexts(@Param("documentId") UUID documentId, @Param("revision") long revision);
+
+    /** Every snapshot chunk of a document with its text, in revision and chunk order. */
+    @Query(value = """
+            SELECT s.revision AS revision, s.seq AS seq, s.content_id AS contentId, c.text AS text
+            FROM document_snapshot_chunks s
+            JOIN chunk_contents c ON c.id = s.content_id
+            WHERE s.document_id = :documentId
+            ORDER BY s.revision, s.seq
+            """, nativeQuery = true)
+    List<SnapshotChunk> findSnapshotChunks(@Param("documentId") UUID documentId);
+}
@@ -0,0 +1,53 @@
+package com.example.texteditorapi.editor.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to read replicas when texteditor.datasource.replica-urls is set.
+ *
+ * Connections are handed out lazily, so the choice is made at a transaction's first statement,
+ * once it is known to be read-only: read-only transactions go through
+ * {@link ReplicaRoutingDataSource}, everything else (writes, migrations, LISTEN) to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "texteditor.datasource.replica-urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${texteditor.datasource.replica-urls}") List<String> replicaUrls,
+            @Value("${texteditor.datasource.replica-username:${spring.datasource.username}}") String replicaUsername,
+            @Value("${texteditor.datasource.replica-password:${spring.datasource.password}}") String replicaPassword
+    ) {
+        DataSource primary = DataSourceBuilder.create().url(url).username(username).password(password).build();
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls) {
+            if (!replicaUrl.isBlank()) {
+                replicas.add(DataSourceBuilder.create()
+                        .url(replicaUrl.trim())
+                        .username(replicaUsername)
+                        .password(replicaPassword)
+                        .build());
+            }
+        }
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicas));
+        return proxy;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.texteditorapi.editor.search;
+
+import com.example.texteditorapi.editor.TextBuffer;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * The matches of one query in a buffer, kept up to date as the buffer is edited.
+ *
+ * For a literal query an edit can only create or destroy matches that overlap it, so each edit
+ * drops the matches it touched, shifts the ones after it, and rescans a window of
+ * {@code query length - 1} characters on either side. Regular expression matches can depend on
+ * text arbitrarily far from an edit, so they are found again on the next lookup after an edit.
+ */
+public final class SearchMatches implements TextBuffer.EditListener {
+
+    private final SearchQuery query;
+    private final Supplier<CharSequence> text;
+
+    // Match i is [starts[i], ends[i]), sorted by start
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int size;
+    private boolean stale = true;
+
+    public SearchMatches(SearchQuery query, Supplier<CharSequence> text) {
+        if (query == null) throw new IllegalArgumentException("query cannot be null");
+        this.query = query;
+        this.text = text;
+    }
+
+    public SearchQuery getQuery() {
+        return query;
+    }
+
+    public int size() {
+        refresh();
+        return size;
+    }
+
+    public int start(int i) {
+        refresh();
+        return starts[i];
+    }
+
+    public int end(int i) {
+        refresh();
+        return ends[i];
+    }
+
+    /** Index of the first match starting at or after {@code pos}, or size() if there is none. */
+    public int firstAtOrAfter(int pos) {
+        refresh();
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public void inserted(int pos, CharSequence inserted) {
+        edited(pos, 0, inserted.length());
+    }
+
+    @Override
+    public void deleted(int pos, CharSequence removed) {
+        edited(pos, removed.length(), 0);
+    }
+
+    private void edited(int pos, int oldLength, int newLength) {
+        if (stale) {
+            return;
+        }
+        if (query.isRegex()) {
+            stale = true;
+            return;
+        }
+
+        // Drop the matches that overlap the replaced range or straddle the edit point
+        int first = firstAtOrAfter(pos - query.maxLength() + 1);
+        int last = first;
+        while (last < size && starts[last] < pos + oldLength) {
+            last++;
+        }
+
+        int keep = first;
+        for (int i = first; i < last; i++) {
+            if (ends[i] <= pos) {
+                starts[keep] = starts[i];
+                ends[keep] = ends[i];
+                keep++;
+            }
+        }
+
+        int delta = newLength - oldLength;
+        int tail = size - last;
+        System.arraycopy(starts, last, starts, keep, tail);
+        System.arraycopy(ends, last, ends, keep, tail);
+        size = keep + tail;
+        for (int i = keep; i < size; i++) {
+            starts[i] += delta;
+            ends[i] += delta;
+        }
+
+        // Rescan around the edit for matches that now overlap it
+        int windowStart = pos - query.maxLength() + 1;
+        int windowEnd = pos + newLength + query.maxLength() - 1;
+        int[] at = {keep};
+        query.find(text.get(), windowStart, windowEnd, (start, end) -> {
+            if (start < pos + newLength && end > pos) {
+                insertAt(at[0]++, start, end);
+            }
+        });
+    }
+
+    private void refresh() {
+        if (!stale) {
+            return;
+        }
+        size = 0;
+        query.find(text.get(), 0, Integer.MAX_VALUE, (start, end) -> insertAt(size, start, end));
+        stale = false;
+    }
+
+    private void insertAt(int i, int start, int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        System.arraycopy(starts, i, starts, i + 1, size - i);
+        System.arraycopy(ends, i, ends, i + 1, size - i);
+        starts[i] = start;
+        ends[i] = end;
+        size++;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.texteditorapi.editor.search;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled search query. Literals are searched with Boyer-Moore-Horspool and report every
+ * occurrence, including overlapping ones. Regular expressions are compiled once and report the
+ * non-empty matches a {@link Matcher} finds scanning left to right.
+ */
+public final class SearchQuery {
+
+    /** Receives each match in order of its start position. */
+    public interface MatchConsumer {
+        void match(int start, int end);
+    }
+
+    /**
+     * The result of replacing every match: {@code text[start, end)} becomes {@code replacement}.
+     * The range runs from the start of the first match to the end of the last one.
+     */
+    public record Replacement(int start, int end, String replacement, int count) {}
+
+    private final String query;
+    private final boolean regex;
+    private final Pattern pattern;
+    private final int[] shift;
+
+    private SearchQuery(String query, boolean regex) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("query cannot be empty");
+        }
+
+        this.query = query;
+        this.regex = regex;
+
+        if (regex) {
+            // PatternSyntaxException is an IllegalArgumentException, so bad patterns become a 400
+            this.pattern = Pattern.compile(query, Pattern.MULTILINE);
+            this.shift = null;
+        } else {
+            this.pattern = null;
+            this.shift = shiftTable(query);
+        }
+    }
+
+    public static SearchQuery literal(String query) {
+        return new SearchQuery(query, false);
+    }
+
+    public static SearchQuery regex(String query) {
+        return new SearchQuery(query, true);
+    }
+
+    public static SearchQuery of(String query, boolean regex) {
+        return new SearchQuery(query, regex);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    /**
+     * Longest possible match, or -1 for a regular expression, whose matches are unbounded. Edits
+     * can only create or destroy literal matches within this distance of the edit.
+     */
+    public int maxLength() {
+        return regex ? -1 : query.length();
+    }
+
+    /** Report every match lying entirely within {@code text[from, to)}. */
+    public void find(CharSequence text, int from, int to, MatchConsumer out) {
+        from = Math.max(from, 0);
+        to = Math.min(to, text.length());
+
+        if (regex) {
+            Matcher m = pattern.matcher(text).region(from, to);
+            while (m.find()) {
+                if (m.end() > m.start()) {
+                    out.match(m.start(), m.end());
+                }
+            }
+            return;
+        }
+
+        for (int i = indexOf(text, from, to); i >= 0; i = indexOf(text, i + 1, to)) {
+            out.match(i, i + query.length());
+        }
+    }
+
+    /**
+     * Replace every non-overlapping match, scanning left to right in one pass. A regex replacement
+     * may refer to groups as {@code $n}; a literal replacement is inserted as is.
+     */
+    public Replacement replaceAll(CharSequence text, String replacement) {
+        if (replacement == null) throw new IllegalArgumentException("replacement cannot be null");
+
+        String source = text.toString();
+        StringBuilder out = new StringBuilder();
+        int first = -1;
+        int lastEnd = 0;
+        int count = 0;
+
+        if (regex) {
+            Matcher m = pattern.matcher(source);
+            while (m.find()) {
+                if (m.end() == m.start()) {
+                    continue;
+                }
+                if (first < 0) {
+                    first = m.start();
+                }
+                // Appends the text since the previous match, which includes any skipped empty matches
+                m.appendReplacement(out, replacement);
+                lastEnd = m.end();
+                count++;
+            }
+            if (count == 0) {
+                return new Replacement(0, 0, "", 0);
+            }
+            return new Replacement(first, lastEnd, out.substring(first), count);
+        }
+
+        int m = query.length();
+        int i = 0;
+        while ((i = indexOf(source, i, source.length())) >= 0) {
+            if (first < 0) {
+                first = i;
+            } else {
+                out.append(source, lastEnd, i);
+            }
+            out.append(replacement);
+            lastEnd = i + m;
+            i = lastEnd;
+            count++;
+        }
+        if (count == 0) {
+            return new Replacement(0, 0, "", 0);
+        }
+        return new Replacement(first, lastEnd, out.toString(), count);
+    }
+
+    /** Horspool search for the first occurrence within {@code text[from, to)}, or -1. */
+    private int indexOf(CharSequence text, int from, int to) {
+        int m = query.length();
+        char last = query.charAt(m - 1);
+        int i = from;
+
+        while (i + m <= to) {
+            char c = text.charAt(i + m - 1);
+            if (c == last && matchesAt(text, i)) {
+                return i;
+            }
+            i += shift[c & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(CharSequence text, int start) {
+        for (int j = query.length() - 2; j >= 0; j--) {
+            if (text.charAt(start + j) != query.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Horspool's bad-character table. Characters are bucketed by their low byte, so a bucket holds
+     * the smallest shift of any query character that falls into it, which keeps every shift safe.
+     */
+    private static int[] shiftTable(String query) {
+        int m = query.length();
+        int[] table = new int[256];
+        Arrays.fill(table, m);
+
+        for (int i = 0; i < m - 1; i++) {
+            int bucket = query.charAt(i) & 0xFF;
+            table[bucket] = Math.min(table[bucket], m - 1 - i);
+        }
+        return table;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SearchQuery q && regex == q.regex && query.equals(q.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, regex);
+    }
+}
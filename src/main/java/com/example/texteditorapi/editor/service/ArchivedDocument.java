@@ -0,0 +1,138 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.persistence.DocumentEditEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What an archived document needs to be restored: the distinct chunk contents of its text and
+ * history snapshots, the chunks referring to them by index, and its revisions with their edits.
+ * A content shared by several chunks, such as one unchanged since the last snapshot, is stored once.
+ */
+public record ArchivedDocument(List<String> contents, List<Chunk> chunks, List<Revision> revisions) {
+
+    /** A chunk at {@code seq} whose text is {@code contents().get(content)}. */
+    public record Chunk(long seq, int content) {}
+
+    public record Revision(long revision, Instant createdAt, boolean snapshot, List<Chunk> chunks, List<Edit> edits) {}
+
+    public record Edit(DocumentEditEntity.Type type, int pos, String text) {}
+
+    private static final int FORMAT = 1;
+
+    /** The document's current text. */
+    public String text() {
+        StringBuilder sb = new StringBuilder();
+        for (Chunk chunk : chunks) {
+            sb.append(contents.get(chunk.content()));
+        }
+        return sb.toString();
+    }
+
+    /** Compress into the blob stored in document_archives. */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(FORMAT);
+            out.writeInt(contents.size());
+            for (String content : contents) {
+                writeString(out, content);
+            }
+            writeChunks(out, chunks);
+            out.writeInt(revisions.size());
+            for (Revision r : revisions) {
+                out.writeLong(r.revision());
+                out.writeLong(r.createdAt().getEpochSecond());
+                out.writeInt(r.createdAt().getNano());
+                out.writeBoolean(r.snapshot());
+                writeChunks(out, r.chunks());
+                out.writeInt(r.edits().size());
+                for (Edit e : r.edits()) {
+                    out.writeByte(e.type().ordinal());
+                    out.writeInt(e.pos());
+                    writeString(out, e.text());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ArchivedDocument decode(byte[] blob) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(blob)))) {
+            int format = in.readInt();
+            if (format != FORMAT) {
+                throw new IllegalStateException("Unknown archive format " + format);
+            }
+
+            int contentCount = in.readInt();
+            List<String> contents = new ArrayList<>(contentCount);
+            for (int i = 0; i < contentCount; i++) {
+                contents.add(readString(in));
+            }
+            List<Chunk> chunks = readChunks(in);
+
+            int revisionCount = in.readInt();
+            List<Revision> revisions = new ArrayList<>(revisionCount);
+            for (int i = 0; i < revisionCount; i++) {
+                long revision = in.readLong();
+                Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                boolean snapshot = in.readBoolean();
+                List<Chunk> snapshotChunks = readChunks(in);
+
+                int editCount = in.readInt();
+                List<Edit> edits = new ArrayList<>(editCount);
+                for (int j = 0; j < editCount; j++) {
+                    DocumentEditEntity.Type type = DocumentEditEntity.Type.values()[in.readByte()];
+                    int pos = in.readInt();
+                    edits.add(new Edit(type, pos, readString(in)));
+                }
+                revisions.add(new Revision(revision, createdAt, snapshot, snapshotChunks, edits));
+            }
+            return new ArchivedDocument(contents, chunks, revisions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeChunks(DataOutputStream out, List<Chunk> chunks) throws IOException {
+        out.writeInt(chunks.size());
+        for (Chunk chunk : chunks) {
+            out.writeLong(chunk.seq());
+            out.writeInt(chunk.content());
+        }
+    }
+
+    private static List<Chunk> readChunks(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Chunk> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunks.add(new Chunk(in.readLong(), in.readInt()));
+        }
+        return chunks;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.texteditorapi.editor.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of command application. Commands for one document wait their turn in
+ * a bounded queue, and at most maxConcurrent commands run at once across all documents. A command
+ * that finds its document's queue full, or that cannot start within the queue timeout, is rejected
+ * with an estimate of when to retry, so a client flooding one document is turned away instead of
+ * tying up request threads and database connections that every other document needs.
+ *
+ * Commands must be admitted outside of any transaction, so a waiting command holds no connection.
+ */
+@Component
+public class CommandAdmission implements MeterBinder {
+
+    /** The commands queued or running for one document, served in arrival order. */
+    private static final class Lane {
+        final ReentrantLock turn = new ReentrantLock(true);
+        // Only changed inside lanes.compute, which also removes the lane once it is empty
+        volatile int depth;
+    }
+
+    private final Map<UUID, Lane> lanes = new ConcurrentHashMap<>();
+    private final Semaphore running;
+    private final int maxConcurrent;
+    private final int maxQueuedPerDocument;
+    private final long queueTimeoutNanos;
+
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final AtomicLong rejectedByDocument = new AtomicLong();
+    private final AtomicLong rejectedByNode = new AtomicLong();
+
+    // Moving average of how long a command runs, used to estimate Retry-After
+    private volatile long averageNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public CommandAdmission(
+            @Value("${texteditor.admission.max-concurrent:32}") int maxConcurrent,
+            @Value("${texteditor.admission.max-queued-per-document:16}") int maxQueuedPerDocument,
+            @Value("${texteditor.admission.queue-timeout-ms:2000}") long queueTimeoutMs
+    ) {
+        if (maxConcurrent < 1 || maxQueuedPerDocument < 1) {
+            throw new IllegalArgumentException("Admission limits must be at least 1");
+        }
+        this.running = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuedPerDocument = maxQueuedPerDocument;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+    }
+
+    /**
+     * Run {@code command} once every earlier command for the document has finished and a slot is
+     * free, or throw {@link CommandRejectedException} if that does not happen in time.
+     */
+    public <T> T run(UUID documentId, Supplier<T> command) {
+        Lane lane = enter(documentId);
+        try {
+            long deadline = System.nanoTime() + queueTimeoutNanos;
+            if (!lane.turn.tryLock(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejectedByDocument.incrementAndGet();
+                throw new CommandRejectedException(
+                        "Too many commands queued for document " + documentId, retryAfter(lane.depth));
+            }
+            try {
+                if (!running.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    rejectedByNode.incrementAndGet();
+                    throw new CommandRejectedException(
+                            "Server is busy applying commands", retryAfter((double) admitted.get() / maxConcurrent));
+                }
+                long start = System.nanoTime();
+                try {
+                    return command.get();
+                } finally {
+                    running.release();
+                    long took = System.nanoTime() - start;
+                    averageNanos += (took - averageNanos) / 8;
+                }
+            } finally {
+                lane.turn.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandRejectedException("Interrupted while waiting to apply a command", 1);
+        } finally {
+            leave(documentId);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("texteditor.commands.queued", this, CommandAdmission::queued)
+                .description("Commands admitted and waiting to run")
+                .register(registry);
+        Gauge.builder("texteditor.commands.running", this, CommandAdmission::runningCount)
+                .description("Commands being applied")
+                .register(registry);
+        Gauge.builder("texteditor.commands.queue.max-depth", this, CommandAdmission::maxDepth)
+                .description("Commands queued or running for the busiest document")
+                .register(registry);
+        Gauge.builder("texteditor.commands.queue.documents", this, CommandAdmission::queuedDocuments)
+                .description("Documents with commands queued or running")
+                .register(registry);
+        FunctionCounter.builder("texteditor.commands.rejected", rejectedByDocument, AtomicLong::get)
+                .description("Commands rejected with 429")
+                .tag("reason", "document")
+                .register(registry);
+        FunctionCounter.builder("texteditor.commands.rejected", rejectedByNode, AtomicLong::get)
+                .description("Commands rejected with 429")
+                .tag("reason", "node")
+                .register(registry);
+    }
+
+    int queued() {
+        return admitted.get() - runningCount();
+    }
+
+    int runningCount() {
+        return maxConcurrent - running.availablePermits();
+    }
+
+    int maxDepth() {
+        int max = 0;
+        for (Lane lane : lanes.values()) {
+            max = Math.max(max, lane.depth);
+        }
+        return max;
+    }
+
+    int queuedDocuments() {
+        return lanes.size();
+    }
+
+    long rejected() {
+        return rejectedByDocument.get() + rejectedByNode.get();
+    }
+
+    private Lane enter(UUID documentId) {
+        boolean[] accepted = {false};
+        Lane lane = lanes.compute(documentId, (id, l) -> {
+            if (l == null) l = new Lane();
+            if (l.depth < maxQueuedPerDocument) {
+                l.depth++;
+                accepted[0] = true;
+            }
+            return l;
+        });
+
+        if (!accepted[0]) {
+            rejectedByDocument.incrementAndGet();
+            throw new CommandRejectedException(
+                    "Too many commands queued for document " + documentId, retryAfter(lane.depth));
+        }
+        admitted.incrementAndGet();
+        return lane;
+    }
+
+    private void leave(UUID documentId) {
+        admitted.decrementAndGet();
+        lanes.computeIfPresent(documentId, (id, l) -> --l.depth == 0 ? null : l);
+    }
+
+    /** Whole seconds until about {@code commandsAhead} commands have run, at least one. */
+    private long retryAfter(double commandsAhead) {
+        double seconds = commandsAhead * averageNanos / TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, (long) Math.ceil(seconds));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.texteditorapi.editor.service;
+
+/** A command turned away by {@link CommandAdmission}; the client may retry after the given delay. */
+public class CommandRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CommandRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
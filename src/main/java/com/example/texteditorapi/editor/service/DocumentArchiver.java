@@ -0,0 +1,259 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.persistence.DocumentArchiveEntity;
+import com.example.texteditorapi.editor.persistence.DocumentArchiveRepository;
+import com.example.texteditorapi.editor.persistence.DocumentChunkEntity;
+import com.example.texteditorapi.editor.persistence.DocumentEditEntity;
+import com.example.texteditorapi.editor.persistence.DocumentEditRepository;
+import com.example.texteditorapi.editor.persistence.DocumentEntity;
+import com.example.texteditorapi.editor.persistence.DocumentRepository;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionEntity;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Moves documents nobody has updated for afterDays days out of the hot tables. An archived
+ * document keeps its row in documents, with its title and stats, while its chunks and history are
+ * compressed into a single row of document_archives and deleted. The next read or command
+ * restores them first, so archiving is invisible to clients apart from that one slower request.
+ *
+ * Archiving runs every intervalMs in batches of batchSize documents, each batch in its own
+ * transaction, and stops after maxBatches so one run never holds the database for long.
+ * Candidates are locked with SKIP LOCKED, so several nodes can run it at once.
+ */
+@Component
+public class DocumentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentArchiver.class);
+
+    private final DocumentRepository repo;
+    private final DocumentArchiveRepository archives;
+    private final DocumentChunkStore chunks;
+    private final DocumentRevisionRepository revisions;
+    private final DocumentEditRepository edits;
+    private final DocumentBufferCache buffers;
+    private final DocumentResponseCache responses;
+    private final DocumentSearchIndex searchIndex;
+    private final ReadYourWrites readYourWrites;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final boolean enabled;
+    private final Duration after;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public DocumentArchiver(
+            DocumentRepository repo,
+            DocumentArchiveRepository archives,
+            DocumentChunkStore chunks,
+            DocumentRevisionRepository revisions,
+            DocumentEditRepository edits,
+            DocumentBufferCache buffers,
+            DocumentResponseCache responses,
+            DocumentSearchIndex searchIndex,
+            ReadYourWrites readYourWrites,
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            @Value("${texteditor.archive.enabled:false}") boolean enabled,
+            @Value("${texteditor.archive.after-days:90}") int afterDays,
+            @Value("${texteditor.archive.batch-size:100}") int batchSize,
+            @Value("${texteditor.archive.max-batches:50}") int maxBatches
+    ) {
+        this.repo = repo;
+        this.archives = archives;
+        this.chunks = chunks;
+        this.revisions = revisions;
+        this.edits = edits;
+        this.buffers = buffers;
+        this.responses = responses;
+        this.searchIndex = searchIndex;
+        this.readYourWrites = readYourWrites;
+        this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.after = Duration.ofDays(afterDays);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${texteditor.archive.interval-ms:3600000}",
+            initialDelayString = "${texteditor.archive.interval-ms:3600000}"
+    )
+    public void archiveCold() {
+        if (!enabled) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(after);
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer archived = transactions.execute(status -> archiveBatch(cutoff));
+            total += archived;
+            if (archived < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Archived {} documents not updated since {}", total, cutoff);
+        }
+    }
+
+    /** Archive up to batchSize documents not updated since {@code cutoff}. Must run in a transaction. */
+    int archiveBatch(Instant cutoff) {
+        List<UUID> ids = repo.lockArchiveCandidates(cutoff, batchSize);
+        for (UUID id : ids) {
+            archive(id);
+        }
+        return ids.size();
+    }
+
+    /** Archive one document whose row the current transaction has locked. */
+    void archive(UUID id) {
+        List<DocumentChunkEntity> current = chunks.load(id);
+        List<DocumentRevisionEntity> history = revisions.findByDocumentIdOrderByRevision(id);
+        List<DocumentRevisionRepository.SnapshotChunk> snapshotChunks = revisions.findSnapshotChunks(id);
+        List<DocumentEditEntity> allEdits = edits.findByDocumentIdOrderByRevisionAscOrdinalAsc(id);
+
+        List<String> contents = new ArrayList<>();
+        Map<UUID, Integer> contentIndex = new HashMap<>();
+
+        List<ArchivedDocument.Chunk> chunkRefs = new ArrayList<>(current.size());
+        for (DocumentChunkEntity chunk : current) {
+            int index = contentIndex.computeIfAbsent(chunk.getContentId(), contentId -> {
+                contents.add(chunk.getContent());
+                return contents.size() - 1;
+            });
+            chunkRefs.add(new ArchivedDocument.Chunk(chunk.getSeq(), index));
+        }
+
+        Map<Long, List<ArchivedDocument.Chunk>> snapshotRefs = new HashMap<>();
+        for (DocumentRevisionRepository.SnapshotChunk chunk : snapshotChunks) {
+            int index = contentIndex.computeIfAbsent(chunk.getContentId(), contentId -> {
+                contents.add(chunk.getText());
+                return contents.size() - 1;
+            });
+            snapshotRefs.computeIfAbsent(chunk.getRevision(), r -> new ArrayList<>())
+                    .add(new ArchivedDocument.Chunk(chunk.getSeq(), index));
+        }
+
+        Map<Long, List<ArchivedDocument.Edit>> editsByRevision = new HashMap<>();
+        for (DocumentEditEntity e : allEdits) {
+            editsByRevision.computeIfAbsent(e.getRevision(), r -> new ArrayList<>())
+                    .add(new ArchivedDocument.Edit(e.getType(), e.getPos(), e.getText()));
+        }
+
+        List<ArchivedDocument.Revision> revisionRefs = new ArrayList<>(history.size());
+        for (DocumentRevisionEntity r : history) {
+            revisionRefs.add(new ArchivedDocument.Revision(
+                    r.getRevision(),
+                    r.getCreatedAt(),
+                    r.isSnapshot(),
+                    snapshotRefs.getOrDefault(r.getRevision(), List.of()),
+                    editsByRevision.getOrDefault(r.getRevision(), List.of())
+            ));
+        }
+
+        ArchivedDocument archived = new ArchivedDocument(contents, chunkRefs, revisionRefs);
+        archives.save(new DocumentArchiveEntity(id, archived.encode(), Instant.now()));
+
+        List<UUID> contentIds = chunks.contentIds(id);
+        revisions.deleteByDocumentId(id);
+        chunks.delete(id);
+        chunks.releaseContents(contentIds);
+        repo.setArchived(id, true);
+
+        buffers.evict(id);
+        responses.evict(id);
+        searchIndex.removeAfterCommit(id);
+    }
+
+    /**
+     * Restore a document that a read found archived, and run {@code read} in the restoring
+     * transaction. The reader's own transaction may be on a replica or reading an earlier
+     * snapshot, so it would not see the restored rows; later reads are kept on the primary.
+     */
+    public <T> T restoreAndRead(UUID id, Function<DocumentEntity, T> read) {
+        T result = transactions.execute(status -> {
+            DocumentEntity entity = repo.findByIdForUpdate(id)
+                    .orElseThrow(() -> new NoSuchElementException("No document with id: " + id));
+            if (entity.isArchived()) {
+                rehydrate(entity);
+            }
+            return read.apply(entity);
+        });
+        readYourWrites.written(id);
+        return result;
+    }
+
+    /**
+     * Restore the chunks and history of an archived document whose row the current transaction
+     * has locked, before a command or replacement changes it.
+     */
+    public void rehydrate(DocumentEntity entity) {
+        UUID id = entity.getId();
+        DocumentArchiveEntity archive = archives.findById(id)
+                .orElseThrow(() -> new IllegalStateException("No archive for archived document " + id));
+        ArchivedDocument archived = ArchivedDocument.decode(archive.getContent());
+
+        for (ArchivedDocument.Revision r : archived.revisions()) {
+            revisions.save(new DocumentRevisionEntity(id, r.revision(), r.createdAt(), r.snapshot()));
+            for (int i = 0; i < r.edits().size(); i++) {
+                ArchivedDocument.Edit e = r.edits().get(i);
+                edits.save(new DocumentEditEntity(id, r.revision(), i, e.type(), e.pos(), e.text()));
+            }
+        }
+        revisions.flush();
+
+        List<UUID> contentIds = new ArrayList<>(archived.contents().size());
+        List<Object[]> contentRows = new ArrayList<>(archived.contents().size());
+        for (String content : archived.contents()) {
+            UUID contentId = UUID.randomUUID();
+            contentIds.add(contentId);
+            contentRows.add(new Object[] {contentId, content});
+        }
+        jdbc.batchUpdate("INSERT INTO chunk_contents (id, text) VALUES (?, ?)", contentRows);
+
+        List<Object[]> chunkRows = new ArrayList<>(archived.chunks().size());
+        for (ArchivedDocument.Chunk chunk : archived.chunks()) {
+            int length = archived.contents().get(chunk.content()).length();
+            chunkRows.add(new Object[] {id, chunk.seq(), contentIds.get(chunk.content()), length});
+        }
+        jdbc.batchUpdate("INSERT INTO document_chunks (document_id, seq, content_id, text_length) VALUES (?, ?, ?, ?)", chunkRows);
+
+        List<Object[]> snapshotRows = new ArrayList<>();
+        for (ArchivedDocument.Revision r : archived.revisions()) {
+            for (ArchivedDocument.Chunk chunk : r.chunks()) {
+                snapshotRows.add(new Object[] {id, r.revision(), chunk.seq(), contentIds.get(chunk.content())});
+            }
+        }
+        jdbc.batchUpdate(
+                "INSERT INTO document_snapshot_chunks (document_id, revision, seq, content_id) VALUES (?, ?, ?, ?)",
+                snapshotRows
+        );
+
+        archives.delete(archive);
+        repo.setArchived(id, false);
+        entity.setArchived(false);
+        searchIndex.reindexAfterCommit(id);
+    }
+}
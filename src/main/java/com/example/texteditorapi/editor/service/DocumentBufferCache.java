@@ -0,0 +1,109 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Keeps live buffers between commands so documents are not rebuilt from storage on every edit,
+ * and so undo/redo history survives across requests while a buffer stays cached.
+ *
+ * A buffer is only valid for the document version it was stored with. Callers take it out of the
+ * cache while they edit it, which means a buffer is never shared between two concurrent commands.
+ */
+@Component
+public class DocumentBufferCache {
+
+    private record Entry(long version, TextBuffer buffer) {}
+
+    private final int capacity;
+    private final LinkedHashMap<UUID, Entry> entries;
+
+    public DocumentBufferCache(@Value("${texteditor.buffer-cache.max-documents:256}") int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > DocumentBufferCache.this.capacity;
+            }
+        };
+    }
+
+    /** Remove and return the buffer for this version of the document, or null if it is not cached. */
+    public synchronized TextBuffer take(UUID id, long version) {
+        Entry e = entries.remove(id);
+        if (e == null || e.version() != version) {
+            return null;
+        }
+        return e.buffer();
+    }
+
+    public synchronized void put(UUID id, long version, TextBuffer buffer) {
+        if (capacity <= 0) {
+            return;
+        }
+        entries.put(id, new Entry(version, buffer));
+    }
+
+    /** Cache a buffer unless the document already has one, which may be of a newer version. */
+    public synchronized void putIfAbsent(UUID id, long version, TextBuffer buffer) {
+        if (capacity <= 0) {
+            return;
+        }
+        entries.putIfAbsent(id, new Entry(version, buffer));
+    }
+
+    /**
+     * The text of the cached buffer for this version of the document, or null if it is not cached.
+     * The buffer stays cached; the text returned does not follow its later edits.
+     */
+    public synchronized CharSequence text(UUID id, long version) {
+        Entry e = entries.get(id);
+        if (e == null || e.version() != version) {
+            return null;
+        }
+        return e.buffer().contents();
+    }
+
+    public synchronized boolean contains(UUID id) {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * Put a buffer back once the current transaction commits. On rollback the buffer is dropped,
+     * because its state no longer matches what is stored.
+     */
+    public void putAfterCommit(UUID id, long version, TextBuffer buffer) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(id, version, buffer);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(id, version, buffer);
+            }
+        });
+    }
+
+    public synchronized void evict(UUID id) {
+        entries.remove(id);
+    }
+
+    /** Evict the buffers of every document matching {@code test}. */
+    public synchronized void evictIf(Predicate<UUID> test) {
+        entries.keySet().removeIf(test);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.cluster.ClusterMembership;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tells the other nodes about document changes so they drop what they have cached for it. Each
+ * change sends a Postgres NOTIFY on {@value #CHANNEL} from inside the changing transaction, so it
+ * is only delivered if that transaction commits. Every node LISTENs on a dedicated connection and
+ * evicts the document's buffer and serialized response, and marks it for reindexing.
+ *
+ * Notifications sent while the listening connection is down are lost, so after reconnecting a
+ * node drops everything it has cached. Only active with clustering enabled.
+ */
+@Component
+public class DocumentChangeNotifier implements SmartLifecycle {
+
+    static final String CHANNEL = "document_changes";
+
+    /** Version sent for a document that was deleted. */
+    static final long DELETED = -1;
+
+    record Change(UUID documentId, long version, String nodeId) {
+        String payload() {
+            return documentId + " " + version + " " + nodeId;
+        }
+
+        static Change parse(String payload) {
+            String[] parts = payload.split(" ", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed change notification: " + payload);
+            }
+            return new Change(UUID.fromString(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentChangeNotifier.class);
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final ClusterMembership membership;
+    private final DocumentBufferCache buffers;
+    private final DocumentResponseCache responses;
+    private final DocumentSearchIndex searchIndex;
+    private final boolean enabled;
+    private final int pollMs;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listener;
+
+    public DocumentChangeNotifier(
+            DataSource dataSource,
+            JdbcTemplate jdbc,
+            ClusterMembership membership,
+            DocumentBufferCache buffers,
+            DocumentResponseCache responses,
+            DocumentSearchIndex searchIndex,
+            @Value("${texteditor.cluster.enabled:false}") boolean enabled,
+            @Value("${texteditor.cluster.notify-poll-ms:500}") int pollMs
+    ) {
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+        this.membership = membership;
+        this.buffers = buffers;
+        this.responses = responses;
+        this.searchIndex = searchIndex;
+        this.enabled = enabled;
+        this.pollMs = pollMs;
+    }
+
+    /** Notify the other nodes that a document changed to {@code version}, once the current transaction commits. */
+    public void publish(UUID documentId, long version) {
+        if (!enabled) {
+            return;
+        }
+        Change change = new Change(documentId, version, membership.self().id());
+        jdbc.queryForList("SELECT pg_notify(?, ?)", CHANNEL, change.payload());
+    }
+
+    /** {@link #publish} for several documents at the same version, in one statement. */
+    public void publishAll(List<UUID> documentIds, long version) {
+        if (!enabled || documentIds.isEmpty()) {
+            return;
+        }
+        String[] payloads = new String[documentIds.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = new Change(documentIds.get(i), version, membership.self().id()).payload();
+        }
+        jdbc.queryForList("SELECT pg_notify(?, p) FROM unnest(?::text[]) AS p", CHANNEL, payloads);
+    }
+
+    public void publishDeleted(UUID documentId) {
+        publish(documentId, DELETED);
+    }
+
+    void received(Change change) {
+        if (change.nodeId().equals(membership.self().id())) {
+            // Our own change: the caches were updated as part of it
+            return;
+        }
+
+        buffers.evict(change.documentId());
+        responses.evict(change.documentId());
+        if (change.version() == DELETED) {
+            searchIndex.remove(change.documentId());
+        } else {
+            searchIndex.markDirty(change.documentId());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        // Listen before the node starts serving, so no change after startup goes unnoticed
+        try {
+            connection = listen();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not listen for document changes", e);
+        }
+
+        running = true;
+        listener = new Thread(this::run, "document-change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener = null;
+        }
+        close(connection);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (connection == null) {
+                    connection = listen();
+                    invalidateAll();
+                }
+
+                PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(pollMs);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        received(Change.parse(notification.getParameter()));
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the document change listener connection, reconnecting", e);
+                close(connection);
+                connection = null;
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring document change notification", e);
+            }
+        }
+    }
+
+    private Connection listen() throws SQLException {
+        Connection conn = dataSource.getConnection();
+        try (Statement st = conn.createStatement()) {
+            conn.setAutoCommit(true);
+            st.execute("LISTEN " + CHANNEL);
+        } catch (SQLException e) {
+            close(conn);
+            throw e;
+        }
+        return conn;
+    }
+
+    private void invalidateAll() {
+        buffers.evictIf(id -> true);
+        responses.clear();
+        searchIndex.invalidate();
+    }
+
+    private static void close(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // Closing a broken connection may fail; it is being discarded either way
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.ChangedRange;
+import com.example.texteditorapi.editor.MappedText;
+import com.example.texteditorapi.editor.Rope;
+import com.example.texteditorapi.editor.TextStats;
+import com.example.texteditorapi.editor.persistence.ChunkContentRepository;
+import com.example.texteditorapi.editor.persistence.DocumentChunkEntity;
+import com.example.texteditorapi.editor.persistence.DocumentChunkRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Stores document text as a sequence of chunks so an edit only rewrites the chunks it touches.
+ * Chunks are kept between MIN_CHUNK_SIZE and MAX_CHUNK_SIZE characters by splitting and merging
+ * around each edit. Chunk contents are immutable and may be shared between documents; contents
+ * no chunk refers to any more are deleted after each change.
+ */
+@Component
+public class DocumentChunkStore {
+
+    static final int TARGET_CHUNK_SIZE = 4096;
+    static final int MAX_CHUNK_SIZE = 2 * TARGET_CHUNK_SIZE;
+    static final int MIN_CHUNK_SIZE = TARGET_CHUNK_SIZE / 4;
+
+    // Gap between neighbouring seq values, leaving room to insert split chunks in between
+    static final long SEQ_GAP = 1L << 20;
+
+    // Chunks written by replace() between flushes; after a flush they are detached to free their text
+    static final int FLUSH_EVERY_CHUNKS = 64;
+
+    /** Bytes [start, end) of a document's UTF-8 text of {@code total} bytes; empty if the requested range could not be satisfied. */
+    public record ByteWindow(long start, long end, long total, List<byte[]> parts) {
+        public boolean isEmpty() {
+            return start >= end;
+        }
+    }
+
+    record Plan(List<DocumentChunkEntity> saved, List<DocumentChunkEntity> deleted, List<UUID> released) {}
+
+    private final DocumentChunkRepository repo;
+    private final ChunkContentRepository contents;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbc;
+    private final int mappedThresholdChars;
+    private final Path mappedDir;
+
+    public DocumentChunkStore(
+            DocumentChunkRepository repo,
+            ChunkContentRepository contents,
+            EntityManager entityManager,
+            JdbcTemplate jdbc,
+            @Value("${texteditor.buffer.mapped-threshold-chars:8388608}") int mappedThresholdChars,
+            @Value("${texteditor.buffer.mapped-dir:${java.io.tmpdir}}") Path mappedDir
+    ) {
+        this.repo = repo;
+        this.contents = contents;
+        this.entityManager = entityManager;
+        this.jdbc = jdbc;
+        this.mappedThresholdChars = mappedThresholdChars;
+        this.mappedDir = mappedDir;
+    }
+
+    public List<DocumentChunkEntity> load(UUID documentId) {
+        return repo.findByDocumentIdOrderBySeq(documentId);
+    }
+
+    /**
+     * The chunks of a document without their text, enough to plan an {@link #update}. Only the
+     * chunks the update rewrites have their contents loaded, and only if their length alone does
+     * not tell whether they changed.
+     */
+    public List<DocumentChunkEntity> layout(UUID documentId) {
+        return repo.findLayoutByDocumentId(documentId);
+    }
+
+    /** The document's text as its stored chunks, in order, without joining them. */
+    public List<String> pieces(UUID documentId) {
+        List<String> pieces = new ArrayList<>();
+        for (DocumentChunkEntity chunk : load(documentId)) {
+            pieces.add(chunk.getContent());
+        }
+        return pieces;
+    }
+
+    /**
+     * The text of loaded chunks as a rope for a live buffer. Documents of at least
+     * mappedThresholdChars are spooled to a memory-mapped file rather than joined on the heap, so
+     * only their edits take heap space.
+     */
+    public Rope text(List<DocumentChunkEntity> chunks) {
+        long length = 0;
+        for (DocumentChunkEntity chunk : chunks) {
+            length += chunk.getLength();
+        }
+        if (length < mappedThresholdChars) {
+            return Rope.of(join(chunks));
+        }
+
+        List<String> pieces = new ArrayList<>(chunks.size());
+        for (DocumentChunkEntity chunk : chunks) {
+            pieces.add(chunk.getContent());
+        }
+        try {
+            return Rope.view(MappedText.spool(pieces, mappedDir));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A byte range of the document's text encoded as UTF-8, in the form of an HTTP byte range:
+     * [first, last] with {@code last} optional, or when {@code first} is null the final {@code last}
+     * bytes. Only the chunks that overlap the range are loaded.
+     */
+    public ByteWindow bytes(UUID documentId, Long first, Long last) {
+        List<DocumentChunkRepository.ChunkByteLength> lengths = repo.findByteLengths(documentId);
+        long total = 0;
+        for (DocumentChunkRepository.ChunkByteLength length : lengths) {
+            total += length.getBytes();
+        }
+
+        long[] range = resolve(first, last, total);
+        if (range == null) {
+            return new ByteWindow(0, 0, total, List.of());
+        }
+        long start = range[0];
+        long end = range[1];
+
+        // Seek to the chunks covering [start, end) by their lengths alone
+        long offset = 0;
+        long firstOffset = 0;
+        long fromSeq = -1;
+        long toSeq = -1;
+        for (DocumentChunkRepository.ChunkByteLength length : lengths) {
+            long next = offset + length.getBytes();
+            if (fromSeq < 0 && start < next) {
+                fromSeq = length.getSeq();
+                firstOffset = offset;
+            }
+            if (fromSeq >= 0 && end <= next) {
+                toSeq = length.getSeq();
+                break;
+            }
+            offset = next;
+        }
+
+        List<String> pieces = new ArrayList<>();
+        for (DocumentChunkEntity chunk : repo.findByDocumentIdAndSeqBetween(documentId, fromSeq, toSeq)) {
+            pieces.add(chunk.getContent());
+        }
+        return new ByteWindow(start, end, total, slice(pieces, firstOffset, start, end));
+    }
+
+    /** Resolve an HTTP byte range against {@code total} bytes to [start, end), or null if it is unsatisfiable. */
+    static long[] resolve(Long first, Long last, long total) {
+        if (first == null) {
+            if (last == null || last == 0 || total == 0) {
+                return null;
+            }
+            return new long[] {Math.max(0, total - last), total};
+        }
+        if (first >= total) {
+            return null;
+        }
+        return new long[] {first, last == null ? total : Math.min(last + 1, total)};
+    }
+
+    /** The UTF-8 bytes [start, end) of consecutive pieces, the first of which begins at byte {@code offset}. */
+    static List<byte[]> slice(List<String> pieces, long offset, long start, long end) {
+        List<byte[]> parts = new ArrayList<>(pieces.size());
+        long pos = offset;
+
+        for (String piece : pieces) {
+            byte[] bytes = piece.getBytes(StandardCharsets.UTF_8);
+            int from = (int) Math.max(0, start - pos);
+            int to = (int) Math.min(bytes.length, end - pos);
+            if (from < to) {
+                parts.add(from == 0 && to == bytes.length ? bytes : Arrays.copyOfRange(bytes, from, to));
+            }
+            pos += bytes.length;
+        }
+        return parts;
+    }
+
+    /**
+     * Whether the text made of {@code pieces}, in order, contains {@code query}. The pieces are
+     * scanned one at a time, keeping just enough of each to find a match that runs into the next.
+     */
+    static boolean contains(Iterable<? extends CharSequence> pieces, String query) {
+        StringBuilder window = new StringBuilder();
+        for (CharSequence piece : pieces) {
+            window.append(piece);
+            if (window.indexOf(query) >= 0) {
+                return true;
+            }
+            window.delete(0, Math.max(0, window.length() - (query.length() - 1)));
+        }
+        return false;
+    }
+
+    /** Whether {@code text} contains {@code query}, scanned in chunk-sized slices rather than copied whole. */
+    static boolean contains(CharSequence text, String query) {
+        List<CharSequence> slices = new ArrayList<>();
+        for (int start = 0; start < text.length(); start += TARGET_CHUNK_SIZE) {
+            slices.add(text.subSequence(start, Math.min(text.length(), start + TARGET_CHUNK_SIZE)));
+        }
+        return contains(slices, query);
+    }
+
+    public static String join(List<DocumentChunkEntity> chunks) {
+        int length = 0;
+        for (DocumentChunkEntity chunk : chunks) {
+            length += chunk.getLength();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (DocumentChunkEntity chunk : chunks) {
+            sb.append(chunk.getContent());
+        }
+        return sb.toString();
+    }
+
+    public void create(UUID documentId, String text) {
+        repo.saveAll(layout(documentId, text, SEQ_GAP));
+    }
+
+    /**
+     * Lay out the text of many new documents, whose rows must already be flushed. All their chunks
+     * are written with two batched statements rather than as entities one at a time.
+     */
+    public void createAll(Map<UUID, String> texts) {
+        List<Object[]> contentRows = new ArrayList<>();
+        List<Object[]> chunkRows = new ArrayList<>();
+
+        for (Map.Entry<UUID, String> e : texts.entrySet()) {
+            long seq = SEQ_GAP;
+            for (String piece : split(e.getValue())) {
+                UUID contentId = UUID.randomUUID();
+                contentRows.add(new Object[] {contentId, piece});
+                chunkRows.add(new Object[] {e.getKey(), seq, contentId, piece.length()});
+                seq += SEQ_GAP;
+            }
+        }
+
+        jdbc.batchUpdate("INSERT INTO chunk_contents (id, text) VALUES (?, ?)", contentRows);
+        jdbc.batchUpdate("INSERT INTO document_chunks (document_id, seq, content_id, text_length) VALUES (?, ?, ?, ?)", chunkRows);
+    }
+
+    /**
+     * Replace a document's text with everything read from {@code in}. Chunks are written as they
+     * fill up, and periodically flushed and detached, so the text is never held in memory whole.
+     */
+    public TextStats replace(UUID documentId, Reader in) throws IOException {
+        List<UUID> released = repo.findCurrentContentIds(documentId);
+        repo.deleteByDocumentId(documentId);
+
+        TextStats.Counter counter = new TextStats.Counter();
+        List<DocumentChunkEntity> pending = new ArrayList<>();
+        long[] seq = {SEQ_GAP};
+
+        readPieces(in, piece -> {
+            counter.add(piece);
+            DocumentChunkEntity chunk = new DocumentChunkEntity(documentId, seq[0], piece);
+            repo.save(chunk);
+            pending.add(chunk);
+            seq[0] += SEQ_GAP;
+
+            if (pending.size() >= FLUSH_EVERY_CHUNKS) {
+                detach(pending);
+            }
+        });
+
+        detach(pending);
+        releaseContents(released);
+        return counter.toStats();
+    }
+
+    /** Read {@code in} to the end as pieces of TARGET_CHUNK_SIZE characters, never splitting a surrogate pair. */
+    static void readPieces(Reader in, Consumer<String> out) throws IOException {
+        char[] buffer = new char[TARGET_CHUNK_SIZE];
+        int filled = 0;
+        boolean eof = false;
+
+        while (!eof) {
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n < 0) {
+                eof = true;
+            } else {
+                filled += n;
+                if (filled < buffer.length) {
+                    continue;
+                }
+            }
+            if (filled == 0) {
+                break;
+            }
+
+            int length = filled;
+            if (!eof && Character.isHighSurrogate(buffer[length - 1])) {
+                length--;
+            }
+
+            out.accept(new String(buffer, 0, length));
+            System.arraycopy(buffer, length, buffer, 0, filled - length);
+            filled -= length;
+        }
+    }
+
+    private void detach(List<DocumentChunkEntity> chunks) {
+        repo.flush();
+        for (DocumentChunkEntity chunk : chunks) {
+            entityManager.detach(chunk);
+            entityManager.detach(chunk.getContentEntity());
+        }
+        chunks.clear();
+    }
+
+    /**
+     * Persist the edits recorded in {@code change}, rewriting only the chunks that cover them;
+     * {@code text} is the document's text after the edits, of which only those chunks are read.
+     */
+    public void update(UUID documentId, List<DocumentChunkEntity> chunks, CharSequence text, ChangedRange change) {
+        if (!change.isChanged()) {
+            return;
+        }
+
+        Plan plan = plan(documentId, chunks, text, change);
+        repo.deleteAll(plan.deleted());
+        for (DocumentChunkEntity chunk : plan.saved()) {
+            // Existing chunks are managed, so dirty checking writes their new content reference
+            if (chunk.isNew()) {
+                repo.save(chunk);
+            }
+        }
+        releaseContents(plan.released());
+    }
+
+    /** Give {@code targetId} the same text as {@code sourceId} by sharing its chunk contents. */
+    public void share(UUID sourceId, UUID targetId) {
+        repo.shareChunks(sourceId, targetId);
+    }
+
+    /** Delete a document's chunks; release their contents afterwards with {@link #releaseContents}. */
+    public void delete(UUID documentId) {
+        repo.deleteByDocumentId(documentId);
+    }
+
+    /** Collect the contents of a document that is about to be deleted, to release once it is gone. */
+    public List<UUID> contentIds(UUID documentId) {
+        return repo.findContentIds(documentId);
+    }
+
+    public void releaseContents(List<UUID> contentIds) {
+        if (contentIds.isEmpty()) {
+            return;
+        }
+        repo.flush();
+        contents.deleteUnreferenced(contentIds);
+    }
+
+    static Plan plan(UUID documentId, List<DocumentChunkEntity> chunks, CharSequence text, ChangedRange change) {
+        List<DocumentChunkEntity> saved = new ArrayList<>();
+        List<DocumentChunkEntity> deleted = new ArrayList<>();
+        List<UUID> released = new ArrayList<>();
+
+        if (chunks.isEmpty()) {
+            saved.addAll(layout(documentId, text.toString(), SEQ_GAP));
+            return new Plan(saved, deleted, released);
+        }
+
+        // Find the chunks [first, last] that cover the changed range of the old text
+        int start = change.getStart();
+        int oldEnd = change.getOldEnd();
+        int first = -1;
+        int last = -1;
+        int regionStart = 0;
+        int regionOldEnd = 0;
+        int offset = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            int end = offset + chunks.get(i).getLength();
+            boolean isLast = i == chunks.size() - 1;
+
+            if (first < 0 && (start < end || isLast)) {
+                first = i;
+                regionStart = offset;
+            }
+            if (first >= 0 && (oldEnd <= end || isLast)) {
+                last = i;
+                regionOldEnd = end;
+                break;
+            }
+            offset = end;
+        }
+
+        int regionNewEnd = regionOldEnd + change.getNewLength() - change.getOldLength();
+
+        // A region that shrank below the minimum absorbs a neighbour instead of leaving a tiny chunk behind
+        while (regionNewEnd - regionStart < MIN_CHUNK_SIZE && last - first + 1 < chunks.size()) {
+            if (last + 1 < chunks.size()) {
+                last++;
+                regionNewEnd += chunks.get(last).getLength();
+            } else {
+                first--;
+                regionStart -= chunks.get(first).getLength();
+            }
+        }
+
+        List<String> pieces = split(text.subSequence(regionStart, regionNewEnd).toString());
+        int reused = last - first + 1;
+        int extra = pieces.size() - reused;
+
+        long lastSeq = chunks.get(last).getSeq();
+        long step = SEQ_GAP;
+        if (extra > 0 && last + 1 < chunks.size()) {
+            step = (chunks.get(last + 1).getSeq() - lastSeq) / (extra + 1);
+        }
+
+        if (step == 0) {
+            // No room left between the neighbours: lay the whole document out again past the current seqs
+            for (DocumentChunkEntity chunk : chunks) {
+                deleted.add(chunk);
+                released.add(chunk.getContentId());
+            }
+            long base = chunks.get(chunks.size() - 1).getSeq() + SEQ_GAP;
+            saved.addAll(layout(documentId, text.toString(), base));
+            return new Plan(saved, deleted, released);
+        }
+
+        for (int i = 0; i < reused; i++) {
+            DocumentChunkEntity chunk = chunks.get(first + i);
+
+            if (i >= pieces.size()) {
+                deleted.add(chunk);
+                released.add(chunk.getContentId());
+            } else if (chunk.getLength() != pieces.get(i).length() || !chunk.getContent().equals(pieces.get(i))) {
+                released.add(chunk.getContentId());
+                chunk.setContent(pieces.get(i));
+                saved.add(chunk);
+            }
+        }
+
+        for (int i = 0; i < extra; i++) {
+            saved.add(new DocumentChunkEntity(documentId, lastSeq + (i + 1) * step, pieces.get(reused + i)));
+        }
+
+        return new Plan(saved, deleted, released);
+    }
+
+    private static List<DocumentChunkEntity> layout(UUID documentId, String text, long firstSeq) {
+        List<DocumentChunkEntity> result = new ArrayList<>();
+        long seq = firstSeq;
+
+        for (String piece : split(text)) {
+            result.add(new DocumentChunkEntity(documentId, seq, piece));
+            seq += SEQ_GAP;
+        }
+        return result;
+    }
+
+    /** Cut text into evenly sized pieces of about TARGET_CHUNK_SIZE, never between a surrogate pair. */
+    static List<String> split(String text) {
+        List<String> pieces = new ArrayList<>();
+        int length = text.length();
+
+        if (length == 0) {
+            return pieces;
+        }
+        if (length <= MAX_CHUNK_SIZE) {
+            pieces.add(text);
+            return pieces;
+        }
+
+        int count = (length + TARGET_CHUNK_SIZE - 1) / TARGET_CHUNK_SIZE;
+        int size = (length + count - 1) / count;
+        int start = 0;
+
+        while (start < length) {
+            int end = Math.min(start + size, length);
+            if (end < length && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end--;
+            }
+            pieces.add(text.substring(start, end));
+            start = end;
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.Rope;
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.persistence.DocumentEditEntity;
+import com.example.texteditorapi.editor.persistence.DocumentEditRepository;
+import com.example.texteditorapi.editor.persistence.DocumentEntity;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionEntity;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Version history of document text: every command that changes the text becomes a revision made
+ * of the edits the buffer performed, and every so often a revision also gets a full snapshot.
+ *
+ * Any revision is rebuilt by loading the nearest snapshot at or before it and replaying the edits
+ * in between. A snapshot is taken as soon as the edits since the last one reach either limit, so
+ * the replay never exceeds snapshotEveryEdits edits or snapshotEveryChars characters of edit text.
+ */
+@Component
+public class DocumentHistory {
+
+    public record Version(long revision, Instant createdAt, String text) {}
+
+    /** Collects the edits a single command makes to a buffer. */
+    public static final class Recorder implements TextBuffer.EditListener {
+        private final UUID documentId;
+        private final long revision;
+        private final List<DocumentEditEntity> edits = new ArrayList<>();
+        private long chars;
+
+        public Recorder(DocumentEntity document) {
+            this.documentId = document.getId();
+            this.revision = document.getRevision() + 1;
+        }
+
+        @Override
+        public void inserted(int pos, CharSequence text) {
+            add(DocumentEditEntity.Type.INSERT, pos, text);
+        }
+
+        @Override
+        public void deleted(int pos, CharSequence removed) {
+            add(DocumentEditEntity.Type.DELETE, pos, removed);
+        }
+
+        private void add(DocumentEditEntity.Type type, int pos, CharSequence text) {
+            edits.add(new DocumentEditEntity(documentId, revision, edits.size(), type, pos, text.toString()));
+            chars += text.length();
+        }
+    }
+
+    private final DocumentRevisionRepository revisions;
+    private final DocumentEditRepository edits;
+    private final int snapshotEveryEdits;
+    private final long snapshotEveryChars;
+
+    public DocumentHistory(
+            DocumentRevisionRepository revisions,
+            DocumentEditRepository edits,
+            @Value("${texteditor.history.snapshot-every-edits:200}") int snapshotEveryEdits,
+            @Value("${texteditor.history.snapshot-every-chars:65536}") long snapshotEveryChars
+    ) {
+        this.revisions = revisions;
+        this.edits = edits;
+        this.snapshotEveryEdits = snapshotEveryEdits;
+        this.snapshotEveryChars = snapshotEveryChars;
+    }
+
+    /** Begin the history of a new document with a snapshot of its stored chunks. */
+    public void start(UUID documentId, Instant now) {
+        revisions.save(new DocumentRevisionEntity(documentId, 0, now, true));
+        revisions.flush();
+        revisions.snapshotChunks(documentId, 0);
+    }
+
+    /** Begin the histories of many new documents at once, whose chunks must already be written. */
+    public void startAll(List<UUID> documentIds, Instant now) {
+        List<DocumentRevisionEntity> started = new ArrayList<>(documentIds.size());
+        for (UUID id : documentIds) {
+            started.add(new DocumentRevisionEntity(id, 0, now, true));
+        }
+        revisions.saveAll(started);
+        revisions.flush();
+        revisions.snapshotChunksOf(documentIds, 0);
+    }
+
+    /**
+     * Record the edits collected by {@code recorder} as the document's next revision. Must run after
+     * the document's chunks have been updated, since a snapshot captures the stored chunks.
+     */
+    public void record(DocumentEntity document, Recorder recorder, Instant now) {
+        if (recorder.edits.isEmpty()) {
+            return;
+        }
+
+        int editCount = document.getEditsSinceSnapshot() + recorder.edits.size();
+        long charCount = document.getCharsSinceSnapshot() + recorder.chars;
+        boolean snapshot = editCount >= snapshotEveryEdits || charCount >= snapshotEveryChars;
+
+        revisions.save(new DocumentRevisionEntity(document.getId(), recorder.revision, now, snapshot));
+        edits.saveAll(recorder.edits);
+
+        if (snapshot) {
+            revisions.flush();
+            revisions.snapshotChunks(document.getId(), recorder.revision);
+            editCount = 0;
+            charCount = 0;
+        }
+
+        document.setRevision(recorder.revision);
+        document.setEditsSinceSnapshot(editCount);
+        document.setCharsSinceSnapshot(charCount);
+    }
+
+    /**
+     * Record a change that replaced the whole text as a snapshot revision without edits. Must run
+     * after the document's new chunks have been flushed.
+     */
+    public void recordSnapshot(DocumentEntity document, Instant now) {
+        long revision = document.getRevision() + 1;
+
+        revisions.save(new DocumentRevisionEntity(document.getId(), revision, now, true));
+        revisions.flush();
+        revisions.snapshotChunks(document.getId(), revision);
+
+        document.setRevision(revision);
+        document.setEditsSinceSnapshot(0);
+        document.setCharsSinceSnapshot(0);
+    }
+
+    public List<DocumentRevisionEntity> list(UUID documentId) {
+        return revisions.findByDocumentIdOrderByRevision(documentId);
+    }
+
+    public Version version(UUID documentId, long revision) {
+        DocumentRevisionEntity target = revisions.findByDocumentIdAndRevision(documentId, revision)
+                .orElseThrow(() -> new NoSuchElementException("No revision " + revision + " for document with id: " + documentId));
+
+        DocumentRevisionEntity base = revisions
+                .findFirstByDocumentIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(documentId, revision)
+                .orElseThrow(() -> new IllegalStateException("No snapshot before revision " + revision + " of document " + documentId));
+
+        Rope text = Rope.of(String.join("", revisions.findSnapshotTexts(documentId, base.getRevision())));
+
+        for (DocumentEditEntity e : edits.findReplay(documentId, base.getRevision(), revision)) {
+            if (e.getType() == DocumentEditEntity.Type.INSERT) {
+                text = text.insert(e.getPos(), e.getText());
+            } else {
+                text = text.delete(e.getPos(), e.getPos() + e.getText().length());
+            }
+        }
+
+        return new Version(revision, target.getCreatedAt(), text.toString());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.cluster.ClusterMembership;
+import com.example.texteditorapi.editor.cluster.OwnershipChangedEvent;
+import com.example.texteditorapi.editor.persistence.DocumentEntity;
+import com.example.texteditorapi.editor.persistence.DocumentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the buffer cache with the most recently updated documents this node owns, so the first
+ * commands after a deploy do not all rebuild their buffers from the database at once.
+ *
+ * Runs as an application runner, which finishes before the application reports itself ready to
+ * take traffic, and again in the background whenever ownership changes. Documents are loaded on
+ * {@code threads} threads, at most maxDocuments of them and only as many as fit in maxBytes
+ * (two bytes per character).
+ */
+@Component
+public class DocumentPreloader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentPreloader.class);
+
+    private record Loaded(long version, TextBuffer buffer) {}
+
+    private final DocumentRepository repo;
+    private final DocumentChunkStore chunks;
+    private final DocumentBufferCache buffers;
+    private final ClusterMembership membership;
+    private final TransactionTemplate transactions;
+    private final boolean enabled;
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final ExecutorService pool;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean started;
+
+    public DocumentPreloader(
+            DocumentRepository repo,
+            DocumentChunkStore chunks,
+            DocumentBufferCache buffers,
+            ClusterMembership membership,
+            PlatformTransactionManager transactionManager,
+            @Value("${texteditor.preload.enabled:true}") boolean enabled,
+            @Value("${texteditor.preload.max-documents:64}") int maxDocuments,
+            @Value("${texteditor.preload.max-bytes:134217728}") long maxBytes,
+            @Value("${texteditor.preload.threads:4}") int threads
+    ) {
+        this.repo = repo;
+        this.chunks = chunks;
+        this.buffers = buffers;
+        this.membership = membership;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "document-preload-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        started = true;
+        preload();
+    }
+
+    /** Load the documents this node has just taken over, without holding up the heartbeat that noticed. */
+    @EventListener
+    public void onOwnershipChanged(OwnershipChangedEvent event) {
+        // Ownership settles during startup, which preloads anyway
+        if (!started) {
+            return;
+        }
+        Thread t = new Thread(this::preload, "document-preload");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Preload recently updated documents and return how many buffers were added to the cache. */
+    public int preload() {
+        if (!enabled || maxDocuments <= 0 || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+
+        try {
+            // Only about one in every members().size() documents is local, so look further down the list
+            int limit = maxDocuments * Math.max(1, membership.members().size());
+            List<DocumentRepository.RecentDocument> recent = transactions.execute(
+                    status -> repo.findRecentlyUpdated(PageRequest.of(0, limit)));
+
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            long budget = maxBytes;
+            for (DocumentRepository.RecentDocument doc : recent) {
+                if (tasks.size() >= maxDocuments) {
+                    break;
+                }
+                long bytes = 2L * doc.getCharCount();
+                if (bytes > budget || !membership.isLocal(doc.getId()) || buffers.contains(doc.getId())) {
+                    continue;
+                }
+                budget -= bytes;
+                tasks.add(() -> load(doc.getId()));
+            }
+
+            int loaded = 0;
+            for (Future<Boolean> result : pool.invokeAll(tasks)) {
+                if (result.get()) {
+                    loaded++;
+                }
+            }
+            if (loaded > 0) {
+                log.info("Preloaded {} documents using up to {} bytes", loaded, maxBytes - budget);
+            }
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private boolean load(UUID id) {
+        try {
+            Loaded loaded = transactions.execute(status -> {
+                DocumentEntity entity = repo.findById(id).orElse(null);
+                if (entity == null || entity.isArchived()) {
+                    return null;
+                }
+                TextBuffer buffer = TextBuffer.fromRope(
+                        chunks.text(chunks.load(id)),
+                        entity.getCursor(),
+                        entity.getAnchor(),
+                        entity.getPreferredColumn()
+                );
+                return new Loaded(entity.getVersion(), buffer);
+            });
+            if (loaded == null) {
+                return false;
+            }
+
+            // A command may have cached a newer buffer in the meantime
+            buffers.putIfAbsent(id, loaded.version(), loaded.buffer());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not preload document {}", id, e);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
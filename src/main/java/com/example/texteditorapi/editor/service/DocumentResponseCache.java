@@ -0,0 +1,111 @@
+package com.example.texteditorapi.editor.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized response of recently read documents, so repeated reads of a document that
+ * has not changed are served without loading its text or serializing it again.
+ *
+ * Like cached buffers, a response is only valid for the document version it was stored with. The
+ * cache is bounded by the bytes it holds rather than by the number of documents.
+ */
+@Component
+public class DocumentResponseCache {
+
+    /** A serialized response, with a gzip-compressed copy when it is large enough to be worth one. */
+    public record Entry(long version, byte[] body, byte[] gzipped) {
+        int size() {
+            return body.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+
+    private final long maxBytes;
+    private final int gzipMinBytes;
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public DocumentResponseCache(
+            @Value("${texteditor.response-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${texteditor.response-cache.gzip-min-bytes:1024}") int gzipMinBytes
+    ) {
+        this.maxBytes = maxBytes;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /** The response stored for this version of the document, or null if there is none. */
+    public synchronized Entry get(UUID id, long version) {
+        Entry e = entries.get(id);
+        if (e == null || e.version() != version) {
+            return null;
+        }
+        return e;
+    }
+
+    /** Store the serialized response for a version of a document and return it as cached. */
+    public Entry put(UUID id, long version, byte[] body) {
+        // Compress outside the lock; a large body takes a while
+        Entry entry = new Entry(version, body, body.length >= gzipMinBytes ? gzip(body) : null);
+        if (entry.size() > maxBytes) {
+            return entry;
+        }
+
+        synchronized (this) {
+            Entry old = entries.get(id);
+            if (old != null && old.version() > version) {
+                // A newer response got here first
+                return entry;
+            }
+
+            remove(id);
+            entries.put(id, entry);
+            bytes += entry.size();
+
+            var it = entries.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Map.Entry<UUID, Entry> eldest = it.next();
+                bytes -= eldest.getValue().size();
+                it.remove();
+            }
+        }
+        return entry;
+    }
+
+    public synchronized void evict(UUID id) {
+        remove(id);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private void remove(UUID id) {
+        Entry e = entries.remove(id);
+        if (e != null) {
+            bytes -= e.size();
+        }
+    }
+
+    static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
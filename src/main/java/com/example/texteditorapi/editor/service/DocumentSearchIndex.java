@@ -0,0 +1,354 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.persistence.DocumentRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * In-memory trigram index over the text of every document, used to find the documents that may
+ * contain a substring without reading all of them. Every document containing a query contains
+ * all of the query's trigrams, so intersecting their posting lists yields a small candidate set
+ * that callers verify against the actual text.
+ *
+ * The index is built at startup, before the application reports itself ready, and then kept
+ * current from the edits each command makes. Each document is indexed at a known entity version;
+ * an update that does not continue from that version (or any change the index could not follow)
+ * marks the document dirty. Dirty documents are read again in the background every refresh-ms,
+ * outside the index lock, and until then they are candidates for every query.
+ */
+@Component
+public class DocumentSearchIndex implements ApplicationRunner {
+
+    /** Queries shorter than a trigram cannot be narrowed down, so they are refused. */
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    /** Collects the trigrams a command adds to and removes from one document's text. */
+    public static final class Updater implements TextBuffer.EditListener {
+        private final Supplier<CharSequence> text;
+        private final Map<Long, Integer> delta = new HashMap<>();
+
+        public Updater(Supplier<CharSequence> text) {
+            this.text = text;
+        }
+
+        @Override
+        public void inserted(int pos, CharSequence inserted) {
+            CharSequence t = text.get();
+            int end = pos + inserted.length();
+            int before = Math.max(0, pos - 2);
+            int after = Math.min(t.length(), end + 2);
+
+            // Trigrams that straddled the insertion point are gone; every trigram overlapping the inserted text is new
+            String old = t.subSequence(before, pos).toString() + t.subSequence(end, after);
+            count(old, 0, old.length(), delta, -1);
+            count(t, before, after, delta, 1);
+        }
+
+        @Override
+        public void deleted(int pos, CharSequence removed) {
+            CharSequence t = text.get();
+            int before = Math.max(0, pos - 2);
+            int after = Math.min(t.length(), pos + 2);
+
+            // Trigrams overlapping the removed text are gone; trigrams straddling the deletion point are new
+            String old = t.subSequence(before, pos).toString() + removed + t.subSequence(pos, after);
+            count(old, 0, old.length(), delta, -1);
+            count(t, before, after, delta, 1);
+        }
+
+        Map<Long, Integer> delta() {
+            return delta;
+        }
+    }
+
+    private static final class Indexed {
+        long version;
+        final Map<Long, Integer> trigrams = new HashMap<>();
+
+        Indexed(long version) {
+            this.version = version;
+        }
+    }
+
+    private record Loaded(long version, String text) {}
+
+    private final DocumentRepository repo;
+    private final DocumentChunkStore chunks;
+    private final TransactionTemplate transactions;
+
+    private final Map<UUID, Indexed> documents = new HashMap<>();
+    private final Map<Long, Set<UUID>> postings = new HashMap<>();
+    private final Set<UUID> dirty = new LinkedHashSet<>();
+    // Taken out of dirty by the running refresh, and still candidates until their new entries are in
+    private final Set<UUID> refreshing = new HashSet<>();
+    private final Object refreshLock = new Object();
+    private boolean built;
+
+    public DocumentSearchIndex(DocumentRepository repo, DocumentChunkStore chunks, PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.chunks = chunks;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        refresh();
+    }
+
+    public Updater updater(TextBuffer buffer) {
+        return new Updater(buffer::contents);
+    }
+
+    /**
+     * Ids of the documents whose text may contain {@code query}, which must be at least
+     * MIN_QUERY_LENGTH characters. No document is read here: documents waiting to be indexed again
+     * are simply included, and until the index is built every document is a candidate.
+     */
+    public List<UUID> candidates(String query) {
+        requireSearchable(query);
+        synchronized (this) {
+            if (built) {
+                Set<UUID> result = new LinkedHashSet<>(lookup(query));
+                result.addAll(dirty);
+                result.addAll(refreshing);
+                return new ArrayList<>(result);
+            }
+        }
+        return repo.findAllIds();
+    }
+
+    synchronized List<UUID> lookup(String query) {
+        requireSearchable(query);
+
+        Map<Long, Integer> wanted = new HashMap<>();
+        count(query, 0, query.length(), wanted, 1);
+
+        // Intersect starting from the shortest posting list, so the work is bounded by the rarest trigram
+        List<Set<UUID>> lists = new ArrayList<>();
+        for (Long trigram : wanted.keySet()) {
+            Set<UUID> list = postings.get(trigram);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        List<UUID> result = new ArrayList<>();
+        for (UUID id : lists.get(0)) {
+            boolean all = true;
+            for (int i = 1; i < lists.size() && all; i++) {
+                all = lists.get(i).contains(id);
+            }
+            if (all) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /** Apply the trigrams collected by {@code updater} once the command's transaction commits. */
+    public void applyAfterCommit(UUID id, long fromVersion, long toVersion, Updater updater) {
+        afterCommit(() -> apply(id, fromVersion, toVersion, updater.delta()));
+    }
+
+    /** Read the document again before the next query, once the current transaction commits. */
+    public void reindexAfterCommit(UUID id) {
+        afterCommit(() -> markDirty(id));
+    }
+
+    public void removeAfterCommit(UUID id) {
+        afterCommit(() -> remove(id));
+    }
+
+    synchronized void apply(UUID id, long fromVersion, long toVersion, Map<Long, Integer> delta) {
+        Indexed doc = documents.get(id);
+        if (doc == null || doc.version != fromVersion) {
+            dirty.add(id);
+            return;
+        }
+
+        for (Map.Entry<Long, Integer> e : delta.entrySet()) {
+            if (e.getValue() != 0) {
+                add(id, doc, e.getKey(), e.getValue());
+            }
+        }
+        doc.version = toVersion;
+    }
+
+    synchronized void put(UUID id, long version, CharSequence text) {
+        remove(id);
+
+        Indexed doc = new Indexed(version);
+        Map<Long, Integer> counts = new HashMap<>();
+        count(text, 0, text.length(), counts, 1);
+        for (Map.Entry<Long, Integer> e : counts.entrySet()) {
+            add(id, doc, e.getKey(), e.getValue());
+        }
+        documents.put(id, doc);
+    }
+
+    synchronized void remove(UUID id) {
+        dirty.remove(id);
+        refreshing.remove(id);
+        Indexed doc = documents.remove(id);
+        if (doc == null) {
+            return;
+        }
+
+        for (Long trigram : doc.trigrams.keySet()) {
+            Set<UUID> list = postings.get(trigram);
+            list.remove(id);
+            if (list.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    synchronized void markDirty(UUID id) {
+        dirty.add(id);
+    }
+
+    /**
+     * Forget everything, so the index is built again on the next refresh. Documents already marked
+     * dirty stay marked, since the rebuild may have listed the documents before they were created.
+     */
+    synchronized void invalidate() {
+        documents.clear();
+        postings.clear();
+        built = false;
+    }
+
+    /**
+     * Read the documents marked dirty and index them again. Each one is read in a transaction of
+     * its own without holding the index lock, so queries and commands are never held up by it.
+     */
+    @Scheduled(
+            fixedDelayString = "${texteditor.search.refresh-ms:1000}",
+            initialDelayString = "${texteditor.search.refresh-ms:1000}"
+    )
+    public void refresh() {
+        synchronized (refreshLock) {
+            if (!isBuilt()) {
+                markBuilt(transactions.execute(status -> repo.findAllIds()));
+            }
+
+            List<UUID> batch = takeDirty();
+            try {
+                for (UUID id : batch) {
+                    Loaded loaded = transactions.execute(status -> repo.findById(id)
+                            .map(entity -> new Loaded(entity.getVersion(), DocumentChunkStore.join(chunks.load(id))))
+                            .orElse(null));
+                    finishRefresh(id, loaded);
+                }
+            } finally {
+                // Whatever a failed read left behind is tried again on the next refresh
+                returnDirty(batch);
+            }
+        }
+    }
+
+    synchronized boolean isBuilt() {
+        return built;
+    }
+
+    /** Mark {@code ids}, listed from the database, to be indexed, and start answering queries from the index. */
+    synchronized void markBuilt(List<UUID> ids) {
+        dirty.addAll(ids);
+        built = true;
+    }
+
+    private synchronized List<UUID> takeDirty() {
+        List<UUID> batch = new ArrayList<>(dirty);
+        refreshing.addAll(batch);
+        dirty.clear();
+        return batch;
+    }
+
+    private synchronized void finishRefresh(UUID id, Loaded loaded) {
+        // A document removed, or marked dirty again while it was read, is left to what happened since
+        if (!refreshing.remove(id) || dirty.contains(id)) {
+            return;
+        }
+        if (loaded == null) {
+            remove(id);
+        } else {
+            put(id, loaded.version(), loaded.text());
+        }
+    }
+
+    private synchronized void returnDirty(List<UUID> batch) {
+        for (UUID id : batch) {
+            if (refreshing.remove(id)) {
+                dirty.add(id);
+            }
+        }
+    }
+
+    private void add(UUID id, Indexed doc, long trigram, int delta) {
+        int before = doc.trigrams.getOrDefault(trigram, 0);
+        int after = before + delta;
+
+        if (after <= 0) {
+            doc.trigrams.remove(trigram);
+            Set<UUID> list = postings.get(trigram);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        } else {
+            doc.trigrams.put(trigram, after);
+            if (before == 0) {
+                postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void requireSearchable(String query) {
+        if (query.length() < MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search queries must be at least " + MIN_QUERY_LENGTH + " characters");
+        }
+    }
+
+    /** Add {@code sign} to the count of every trigram lying entirely within {@code text[start, end)}. */
+    static void count(CharSequence text, int start, int end, Map<Long, Integer> counts, int sign) {
+        for (int i = start; i + 3 <= end; i++) {
+            long trigram = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+            counts.merge(trigram, sign, Integer::sum);
+        }
+    }
+}
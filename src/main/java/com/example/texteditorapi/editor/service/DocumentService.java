@@ -1,109 +1,275 @@
 package com.example.texteditorapi.editor.service;
 
+import com.example.texteditorapi.editor.Rope;
 import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.TextStats;
+import com.example.texteditorapi.editor.cluster.ClusterMembership;
+import com.example.texteditorapi.editor.cluster.OwnershipChangedEvent;
 import com.example.texteditorapi.editor.commands.Command;
-import com.example.texteditorapi.editor.persistence.DocumentEntity;
-import com.example.texteditorapi.editor.persistence.DocumentRepository;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionEntity;
+import com.example.texteditorapi.editor.store.DocumentStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Reader;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.UUID;
 
+/**
+ * Runs editor commands against documents kept in a {@link DocumentStore}: each command's edits are
+ * appended to the store, and every checkpointEveryEdits edits the full text is checkpointed. Live
+ * buffers stay cached between commands, so a document is only loaded from the store when its
+ * buffer has been evicted or another writer changed it.
+ *
+ * History, search, cloning and streamed content read the Postgres tables directly, so they are
+ * only available while the store is the {@link JpaDocumentStore}, and fail with
+ * UnsupportedOperationException otherwise.
+ */
 @Service
 public class DocumentService {
 
-    private final DocumentRepository repo;
+    /** A document to create with {@link #createAll}. */
+    public record NewDocument(String title, String text) {}
 
-    public DocumentService(DocumentRepository repo) {
-        this.repo = repo;
+    /** The text of a document as its stored chunks, and the version they hold. */
+    public record Content(long version, List<String> pieces) {}
+
+    /** A byte range of a document's text, and the version it was read from. */
+    public record ContentRange(long version, DocumentChunkStore.ByteWindow window) {}
+
+    /** Collects the edits a single command makes to a buffer. */
+    private static final class Recorder implements TextBuffer.EditListener {
+        private final List<DocumentStore.Edit> edits = new ArrayList<>();
+
+        @Override
+        public void inserted(int pos, CharSequence text) {
+            edits.add(DocumentStore.Edit.insert(pos, text));
+        }
+
+        @Override
+        public void deleted(int pos, CharSequence removed) {
+            edits.add(DocumentStore.Edit.delete(pos, removed));
+        }
+    }
+
+    private final DocumentStore store;
+    private final DocumentBufferCache buffers;
+    private final ClusterMembership membership;
+    private final int checkpointEveryEdits;
+
+    public DocumentService(
+            DocumentStore store,
+            DocumentBufferCache buffers,
+            ClusterMembership membership,
+            @Value("${texteditor.store.checkpoint-every-edits:200}") int checkpointEveryEdits
+    ) {
+        this.store = store;
+        this.buffers = buffers;
+        this.membership = membership;
+        this.checkpointEveryEdits = checkpointEveryEdits;
     }
 
-    @Transactional
     public UUID create() {
         return create("Untitled document", "");
     }
 
-    @Transactional
     public UUID create(String initialText) {
         return create("Untitled document", initialText);
     }
 
     /** Create a new document with initial text. */
-    @Transactional
     public UUID create(String title, String initialText) {
         UUID id = UUID.randomUUID();
-        Instant now = Instant.now();
-
         String finalTitle = (title == null || title.isBlank()) ? "Untitled document" : title;
         String finalText = (initialText == null) ? "" : initialText;
 
-        TextBuffer buffer = new TextBuffer(finalText);
-        TextBuffer.Snapshot snap = buffer.snapshot();
-
-        DocumentEntity entity = new DocumentEntity(
-                id,
-                finalTitle,
-                snap.text,
-                snap.cursor,
-                snap.anchor,
-                snap.preferredColumn,
-                now,
-                now
-        );
-
-        repo.save(entity);
+        TextBuffer.Snapshot snap = new TextBuffer(finalText).snapshot();
+        store.create(id, finalTitle, finalText, selection(snap), stats(TextStats.of(finalText)), Instant.now());
         return id;
     }
 
-    @Transactional(readOnly = true)
-    public DocumentEntity get(UUID id) {
-        return repo.findById(id)
+    /**
+     * Create many documents, returning their ids in order. The Postgres store writes them all in
+     * one transaction with batched statements; other stores create them one by one.
+     */
+    public List<UUID> createAll(List<NewDocument> documents) {
+        if (store instanceof JpaDocumentStore jpa) {
+            return jpa.createAll(documents);
+        }
+
+        List<UUID> ids = new ArrayList<>(documents.size());
+        for (NewDocument doc : documents) {
+            ids.add(create(doc.title(), doc.text()));
+        }
+        return ids;
+    }
+
+    /** Create a copy of a document that shares the source's text until either one is edited. */
+    @Transactional
+    public UUID clone(UUID sourceId) {
+        JpaDocumentStore.Clone clone = postgres().clone(sourceId);
+
+        // If the source is live in memory, start the clone from a fork sharing its text structure
+        TextBuffer live = buffers.take(sourceId, clone.sourceVersion());
+        if (live != null) {
+            buffers.put(sourceId, clone.sourceVersion(), live);
+            if (membership.isLocal(clone.id())) {
+                buffers.putAfterCommit(clone.id(), clone.version(), live.fork());
+            }
+        }
+
+        return clone.id();
+    }
+
+    public DocumentStore.StoredDocument get(UUID id) {
+        return store.load(id)
                 .orElseThrow(() -> new NoSuchElementException("No document with id: " + id));
     }
 
-    @Transactional(readOnly = true)
-    public List<DocumentEntity> getAll() {
-        return repo.findAll();
+    /** The current version of a document, read without loading its text. */
+    public long currentVersion(UUID id) {
+        return store.head(id)
+                .orElseThrow(() -> new NoSuchElementException("No document with id: " + id))
+                .version();
+    }
+
+    /**
+     * The text of a document as its stored chunks, for writing out without joining them. The
+     * version and the chunks are read from one snapshot, so the version describes this text.
+     */
+    public Content getContent(UUID id) {
+        return postgres().content(id);
+    }
+
+    /**
+     * A byte range of a document's UTF-8 text, as in an HTTP {@code Range} header: [first, last]
+     * with {@code last} optional, or the final {@code last} bytes when {@code first} is null.
+     * Read from one snapshot, like {@link #getContent}.
+     */
+    public ContentRange getContentRange(UUID id, Long first, Long last) {
+        return postgres().contentRange(id, first, last);
+    }
+
+    /** Replace the text of a document with everything read from {@code in}, chunk by chunk. */
+    @Transactional
+    public DocumentStore.Summary replaceContent(UUID id, Reader in) {
+        DocumentStore.Summary summary = postgres().replaceContent(id, in);
+        // The cached buffer holds the old text, and undo across a replacement is not supported
+        buffers.evict(id);
+        return summary;
+    }
+
+    public List<DocumentStore.Summary> getAll() {
+        return store.list();
+    }
+
+    /** Documents whose text contains {@code query}, narrowed down by the trigram index and then verified. */
+    public List<DocumentStore.Summary> search(String query) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("q cannot be empty");
+        }
+        // A shorter query matches no trigram, so it could only be answered by reading every document
+        if (query.length() < DocumentSearchIndex.MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q must be at least " + DocumentSearchIndex.MIN_QUERY_LENGTH + " characters");
+        }
+        return postgres().search(query);
+    }
+
+    public List<DocumentRevisionEntity> getVersions(UUID id) {
+        return postgres().versions(id);
+    }
+
+    /** Rebuild the text of a document as it was at the given revision. */
+    public DocumentHistory.Version getVersion(UUID id, long revision) {
+        return postgres().version(id, revision);
+    }
+
+    /** The text of a document at {@code revision}, or its current text when revision is null. */
+    public String getText(UUID id, Long revision) {
+        if (revision == null) {
+            return get(id).text().toString();
+        }
+        return postgres().version(id, revision).text();
     }
 
     /** Apply one command to a document and return the updated snapshot. */
     @Transactional
     public TextBuffer.Snapshot apply(UUID id, Command cmd) {
-        DocumentEntity entity = repo.findById(id)
+        // Lock the document so commands for one document run one at a time, even on different
+        // nodes while ownership moves between them
+        DocumentStore.Head head = store.headForUpdate(id)
                 .orElseThrow(() -> new NoSuchElementException("No document with id: " + id));
 
-        // Rebuild buffer from persisted snapshot (Option A: undo/redo not persisted)
-        TextBuffer buffer = TextBuffer.fromSnapshot(new TextBuffer.Snapshot(
-                entity.getText(),
-                entity.getCursor(),
-                entity.getAnchor(),
-                entity.getPreferredColumn()
-        ));
+        // Use the live buffer if it is cached for this version. Otherwise rebuild it from the store
+        // (Option A: undo/redo history only lives as long as the cached buffer)
+        TextBuffer buffer = buffers.take(id, head.version());
+        if (buffer == null) {
+            DocumentStore.StoredDocument doc = get(id);
+            buffer = TextBuffer.fromRope(
+                    Rope.of(doc.text()),
+                    doc.selection().cursor(),
+                    doc.selection().anchor(),
+                    doc.selection().preferredColumn()
+            );
+            head = new DocumentStore.Head(doc.version(), doc.selection(), doc.stats(), doc.editsSinceCheckpoint());
+        }
 
-        // Apply command
-        cmd.apply(buffer);
+        // Apply command, recording the edits it made and keeping the counts up to date
+        Recorder recorder = new Recorder();
+        DocumentStore.Stats before = head.stats();
+        TextStats stats = new TextStats(before.chars(), before.words(), before.lines(), buffer::contents);
+        buffer.addEditListener(recorder);
+        buffer.addEditListener(stats);
+        try {
+            cmd.apply(buffer);
+        } finally {
+            buffer.removeEditListener(recorder);
+            buffer.removeEditListener(stats);
+        }
 
-        // Persist updated snapshot
+        // The snapshot shares the buffer's text, so it is cheap to return even for huge documents.
+        // If the append fails the buffer no longer matches the store, so it is not put back
         TextBuffer.Snapshot updated = buffer.snapshot();
-        entity.setText(updated.text);
-        entity.setCursor(updated.cursor);
-        entity.setAnchor(updated.anchor);
-        entity.setPreferredColumn(updated.preferredColumn);
-        entity.setUpdatedAt(Instant.now());
-
-        repo.save(entity);
+        long version = store.append(id, head.version(), recorder.edits, buffer.contents(), selection(updated), stats(stats), Instant.now());
 
+        if (head.editsSinceCheckpoint() + recorder.edits.size() >= checkpointEveryEdits) {
+            store.checkpoint(id, version, buffer.contents());
+        }
+        if (membership.isLocal(id)) {
+            buffers.putAfterCommit(id, version, buffer);
+        }
         return updated;
     }
 
+    /** Drop the live buffers of documents another node owns now. */
+    @EventListener
+    public void onOwnershipChanged(OwnershipChangedEvent event) {
+        buffers.evictIf(id -> !membership.isLocal(id));
+    }
+
     /** Optional: remove a document. */
-    @Transactional
     public boolean delete(UUID id) {
-        if (!repo.existsById(id)) return false;
-        repo.deleteById(id);
-        return true;
+        buffers.evict(id);
+        return store.delete(id);
+    }
+
+    private JpaDocumentStore postgres() {
+        if (store instanceof JpaDocumentStore jpa) {
+            return jpa;
+        }
+        throw new UnsupportedOperationException("Only available with texteditor.store.type=jpa");
+    }
+
+    private static DocumentStore.Selection selection(TextBuffer.Snapshot snap) {
+        return new DocumentStore.Selection(snap.cursor, snap.anchor, snap.preferredColumn);
+    }
+
+    private static DocumentStore.Stats stats(TextStats stats) {
+        return new DocumentStore.Stats(stats.getChars(), stats.getWords(), stats.getLines());
     }
 }
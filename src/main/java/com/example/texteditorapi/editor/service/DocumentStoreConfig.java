@@ -0,0 +1,44 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.store.DocumentStore;
+import com.example.texteditorapi.editor.store.FileDocumentStore;
+import com.example.texteditorapi.editor.store.InMemoryDocumentStore;
+import com.example.texteditorapi.editor.store.WalDocumentStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * Picks the store behind {@link DocumentService} with texteditor.store.type: {@code jpa} for the
+ * Postgres tables, {@code memory} for the heap only, {@code file} for a directory per document,
+ * or {@code wal} for one write-ahead log shared by all documents. The last two keep their files
+ * under texteditor.store.dir.
+ */
+@Configuration
+public class DocumentStoreConfig {
+
+    @Bean
+    @Primary
+    public DocumentStore documentStore(
+            @Value("${texteditor.store.type:jpa}") String type,
+            @Value("${texteditor.store.dir:data/documents}") String dir,
+            @Value("${texteditor.store.wal.segment-bytes:67108864}") long segmentBytes,
+            @Value("${texteditor.store.wal.max-segments:4}") int maxSegments,
+            @Value("${texteditor.store.wal.snapshot-every-edits:1000}") int snapshotEveryEdits,
+            @Value("${texteditor.store.wal.group-commit-micros:0}") long groupCommitMicros,
+            @Value("${texteditor.store.wal.fsync:true}") boolean fsync,
+            JpaDocumentStore jpa
+    ) {
+        return switch (type) {
+            case "jpa" -> jpa;
+            case "memory" -> new InMemoryDocumentStore();
+            case "file" -> new FileDocumentStore(Path.of(dir));
+            case "wal" -> new WalDocumentStore(Path.of(dir), new WalDocumentStore.Options(
+                    segmentBytes, maxSegments, snapshotEveryEdits, groupCommitMicros, fsync));
+            default -> throw new IllegalArgumentException("Unknown texteditor.store.type: " + type);
+        };
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.ChangedRange;
+import com.example.texteditorapi.editor.Rope;
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.TextStats;
+import com.example.texteditorapi.editor.persistence.DocumentChunkEntity;
+import com.example.texteditorapi.editor.persistence.DocumentEntity;
+import com.example.texteditorapi.editor.persistence.DocumentRepository;
+import com.example.texteditorapi.editor.persistence.DocumentRevisionEntity;
+import com.example.texteditorapi.editor.store.DocumentStore;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The Postgres tables as a {@link DocumentStore}, and the store {@link DocumentService} uses unless
+ * texteditor.store.type picks another. A document's text lives in chunks, of which an append
+ * rewrites only the ones its edits touch, and every append that changes the text also becomes a
+ * revision of the document's history. The chunks always hold the full text, which makes
+ * checkpoints a no-op.
+ *
+ * The features that only these tables support, like history, search and cloning, are here as
+ * well, and {@link DocumentService} offers them only while this is its store.
+ */
+@Component
+public class JpaDocumentStore implements DocumentStore {
+
+    /** A new copy of a document, and the versions of the source it was copied from and of the copy. */
+    public record Clone(UUID id, long sourceVersion, long version) {}
+
+    private final DocumentRepository repo;
+    private final DocumentChunkStore chunks;
+    private final DocumentHistory history;
+    private final DocumentSearchIndex searchIndex;
+    private final DocumentResponseCache responses;
+    private final DocumentChangeNotifier notifier;
+    private final ReadYourWrites readYourWrites;
+    private final DocumentArchiver archiver;
+    private final DocumentBufferCache buffers;
+
+    public JpaDocumentStore(
+            DocumentRepository repo,
+            DocumentChunkStore chunks,
+            DocumentHistory history,
+            DocumentSearchIndex searchIndex,
+            DocumentResponseCache responses,
+            DocumentChangeNotifier notifier,
+            ReadYourWrites readYourWrites,
+            DocumentArchiver archiver,
+            DocumentBufferCache buffers
+    ) {
+        this.repo = repo;
+        this.chunks = chunks;
+        this.history = history;
+        this.searchIndex = searchIndex;
+        this.responses = responses;
+        this.notifier = notifier;
+        this.readYourWrites = readYourWrites;
+        this.archiver = archiver;
+        this.buffers = buffers;
+    }
+
+    @Override
+    @Transactional
+    public void create(UUID id, String title, String text, Selection selection, Stats stats, Instant now) {
+        if (repo.existsById(id)) {
+            throw new IllegalArgumentException("Document already exists: " + id);
+        }
+
+        DocumentEntity entity = new DocumentEntity(
+                id,
+                title,
+                text,
+                selection.cursor(),
+                selection.anchor(),
+                selection.preferredColumn(),
+                now,
+                now
+        );
+        setStats(entity, stats);
+
+        repo.saveAndFlush(entity);
+        chunks.create(id, text);
+        history.start(id, now);
+        searchIndex.reindexAfterCommit(id);
+        notifier.publish(id, entity.getVersion());
+        readYourWrites.writtenAfterCommit(id);
+    }
+
+    /**
+     * Create many documents in one transaction, returning their ids in order. Each kind of row is
+     * written for all documents at once with batched statements, instead of the round trips per
+     * document that {@link #create} makes.
+     */
+    @Transactional
+    public List<UUID> createAll(List<DocumentService.NewDocument> documents) {
+        if (documents.isEmpty()) {
+            return List.of();
+        }
+
+        Instant now = Instant.now();
+        List<UUID> ids = new ArrayList<>(documents.size());
+        List<DocumentEntity> entities = new ArrayList<>(documents.size());
+        Map<UUID, String> texts = new LinkedHashMap<>();
+
+        for (DocumentService.NewDocument doc : documents) {
+            UUID id = UUID.randomUUID();
+            String finalText = (doc.text() == null) ? "" : doc.text();
+            ids.add(id);
+            entities.add(newEntity(id, doc.title(), finalText, now));
+            texts.put(id, finalText);
+        }
+
+        repo.saveAll(entities);
+        repo.flush();
+        chunks.createAll(texts);
+        history.startAll(ids, now);
+
+        for (UUID id : ids) {
+            searchIndex.reindexAfterCommit(id);
+            readYourWrites.writtenAfterCommit(id);
+        }
+        notifier.publishAll(ids, entities.get(0).getVersion());
+        return ids;
+    }
+
+    private static DocumentEntity newEntity(UUID id, String title, String text, Instant now) {
+        String finalTitle = (title == null || title.isBlank()) ? "Untitled document" : title;
+
+        TextBuffer buffer = new TextBuffer(text);
+        TextBuffer.Snapshot snap = buffer.snapshot();
+
+        DocumentEntity entity = new DocumentEntity(
+                id,
+                finalTitle,
+                text,
+                snap.cursor,
+                snap.anchor,
+                snap.preferredColumn,
+                now,
+                now
+        );
+        TextStats stats = TextStats.of(text);
+        entity.setCharCount(stats.getChars());
+        entity.setWordCount(stats.getWords());
+        entity.setLineCount(stats.getLines());
+        return entity;
+    }
+
+    /** Create a copy of a document that shares the source's text until either one is edited. */
+    @Transactional
+    public Clone clone(UUID sourceId) {
+        // Hold off commands on the source until its chunks are shared, so the copy gets the text,
+        // stats and cursor of one version; other clones of the same source can still run alongside
+        DocumentEntity source = repo.findByIdForShare(sourceId)
+                .orElseThrow(() -> new NoSuchElementException("No document with id: " + sourceId));
+        if (source.isArchived()) {
+            archiver.rehydrate(source);
+        }
+
+        UUID id = UUID.randomUUID();
+        Instant now = Instant.now();
+
+        DocumentEntity copy = new DocumentEntity(
+                id,
+                source.getTitle(),
+                null,
+                source.getCursor(),
+                source.getAnchor(),
+                source.getPreferredColumn(),
+                now,
+                now
+        );
+        copy.setCharCount(source.getCharCount());
+        copy.setWordCount(source.getWordCount());
+        copy.setLineCount(source.getLineCount());
+
+        // The row has to exist before chunks can point at it
+        repo.saveAndFlush(copy);
+        chunks.share(sourceId, id);
+        history.start(id, now);
+        searchIndex.reindexAfterCommit(id);
+        notifier.publish(id, copy.getVersion());
+        readYourWrites.writtenAfterCommit(id);
+        return new Clone(id, source.getVersion(), copy.getVersion());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StoredDocument> load(UUID id) {
+        readYourWrites.route(id);
+        return repo.findById(id).map(entity -> entity.isArchived()
+                ? archiver.restoreAndRead(id, this::stored)
+                : stored(entity));
+    }
+
+    private StoredDocument stored(DocumentEntity entity) {
+        return new StoredDocument(
+                entity.getId(),
+                entity.getTitle(),
+                chunks.text(chunks.load(entity.getId())),
+                selection(entity),
+                stats(entity),
+                entity.getVersion(),
+                0,
+                entity.getCreatedAt(),
+                entity.getUpdatedAt()
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Head> head(UUID id) {
+        readYourWrites.route(id);
+        return repo.findById(id).map(JpaDocumentStore::head);
+    }
+
+    /** Locks the document's row, so commands for one document run one at a time even on different nodes. */
+    @Override
+    @Transactional
+    public Optional<Head> headForUpdate(UUID id) {
+        Optional<DocumentEntity> entity = repo.findByIdForUpdate(id);
+        entity.filter(DocumentEntity::isArchived).ifPresent(archiver::rehydrate);
+        return entity.map(JpaDocumentStore::head);
+    }
+
+    /**
+     * Rewrites only the chunks covering the edits, reading none of the stored text: the chunk
+     * layout is enough to find them, and their new text comes from {@code text}.
+     */
+    @Override
+    @Transactional
+    public long append(UUID id, long expectedVersion, List<Edit> edits, CharSequence text, Selection selection, Stats stats, Instant now) {
+        DocumentEntity entity = repo.findByIdForUpdate(id)
+                .orElseThrow(() -> new NoSuchElementException("No document with id: " + id));
+        if (entity.getVersion() != expectedVersion) {
+            throw new ConcurrentModificationException("Document " + id + " is at version " + entity.getVersion() + ", not " + expectedVersion);
+        }
+        if (entity.isArchived()) {
+            archiver.rehydrate(entity);
+        }
+
+        List<DocumentChunkEntity> stored = chunks.layout(id);
+        long fromVersion = entity.getVersion();
+
+        // Undo the edits from the end to get the text after each of them; ropes share structure,
+        // so this costs a few small allocations per edit however large the document is
+        Rope[] after = new Rope[edits.size()];
+        Rope current = Rope.of(text);
+        for (int i = edits.size() - 1; i >= 0; i--) {
+            after[i] = current;
+            current = undo(edits.get(i), current);
+        }
+
+        // Replay them to the listeners a buffer would have had, each seeing the text right after its edit
+        Rope[] seen = {current};
+        ChangedRange changes = new ChangedRange(current.length());
+        DocumentHistory.Recorder recorder = new DocumentHistory.Recorder(entity);
+        DocumentSearchIndex.Updater indexed = new DocumentSearchIndex.Updater(() -> seen[0]);
+        List<TextBuffer.EditListener> listeners = List.of(changes, recorder, indexed);
+        for (int i = 0; i < edits.size(); i++) {
+            Edit edit = edits.get(i);
+            seen[0] = after[i];
+            for (TextBuffer.EditListener listener : listeners) {
+                if (edit.type() == Edit.Type.INSERT) {
+                    listener.inserted(edit.pos(), edit.text());
+                } else {
+                    listener.deleted(edit.pos(), edit.text());
+                }
+            }
+        }
+
+        // Persist updated snapshot, rewriting only the chunks covering the change
+        chunks.update(id, stored, text, changes);
+        history.record(entity, recorder, now);
+
+        entity.setCursor(selection.cursor());
+        entity.setAnchor(selection.anchor());
+        entity.setPreferredColumn(selection.preferredColumn());
+        entity.setUpdatedAt(now);
+        setStats(entity, stats);
+
+        // Flush so the entity carries its new version
+        repo.saveAndFlush(entity);
+        responses.evict(id);
+        searchIndex.applyAfterCommit(id, fromVersion, entity.getVersion(), indexed);
+        notifier.publish(id, entity.getVersion());
+        readYourWrites.writtenAfterCommit(id);
+        return entity.getVersion();
+    }
+
+    private static Rope undo(Edit edit, Rope text) {
+        return edit.type() == Edit.Type.INSERT
+                ? text.delete(edit.pos(), edit.pos() + edit.text().length())
+                : text.insert(edit.pos(), edit.text());
+    }
+
+    @Override
+    public void checkpoint(UUID id, long version, CharSequence text) {
+        // The chunks are rewritten on every append, so there is nothing to fold in
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Summary> list() {
+        List<Summary> result = new ArrayList<>();
+        for (DocumentEntity entity : repo.findAll()) {
+            result.add(summary(entity));
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public boolean delete(UUID id) {
+        if (!repo.existsById(id)) return false;
+
+        List<UUID> contentIds = chunks.contentIds(id);
+        repo.deleteById(id);
+        chunks.releaseContents(contentIds);
+        responses.evict(id);
+        searchIndex.removeAfterCommit(id);
+        notifier.publishDeleted(id);
+        readYourWrites.writtenAfterCommit(id);
+        return true;
+    }
+
+    /**
+     * The text of a document as its stored chunks, for writing out without joining them. The
+     * version and the chunks are read from one snapshot, so the version describes this text.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public DocumentService.Content content(UUID id) {
+        readYourWrites.route(id);
+        DocumentEntity entity = find(id);
+        if (entity.isArchived()) {
+            return archiver.restoreAndRead(id, restored -> new DocumentService.Content(restored.getVersion(), chunks.pieces(id)));
+        }
+        return new DocumentService.Content(entity.getVersion(), chunks.pieces(id));
+    }
+
+    /** A byte range of a document's UTF-8 text, read from one snapshot like {@link #content}. */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public DocumentService.ContentRange contentRange(UUID id, Long first, Long last) {
+        readYourWrites.route(id);
+        DocumentEntity entity = find(id);
+        if (entity.isArchived()) {
+            return archiver.restoreAndRead(id, restored -> new DocumentService.ContentRange(restored.getVersion(), chunks.bytes(id, first, last)));
+        }
+        return new DocumentService.ContentRange(entity.getVersion(), chunks.bytes(id, first, last));
+    }
+
+    /** Replace the text of a document with everything read from {@code in}, chunk by chunk. */
+    @Transactional
+    public Summary replaceContent(UUID id, Reader in) {
+        // Locked like append(), so a command cannot interleave with the chunks being rewritten
+        DocumentEntity entity = repo.findByIdForUpdate(id)
+                .orElseThrow(() -> new NoSuchElementException("No document with id: " + id));
+        // Restored first so the replacement still follows the document's history
+        if (entity.isArchived()) {
+            archiver.rehydrate(entity);
+        }
+
+        TextStats stats;
+        try {
+            stats = chunks.replace(id, in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Instant now = Instant.now();
+        history.recordSnapshot(entity, now);
+
+        entity.setCursor(0);
+        entity.setAnchor(0);
+        entity.setPreferredColumn(0);
+        entity.setUpdatedAt(now);
+        entity.setCharCount(stats.getChars());
+        entity.setWordCount(stats.getWords());
+        entity.setLineCount(stats.getLines());
+        repo.saveAndFlush(entity);
+
+        responses.evict(id);
+        searchIndex.reindexAfterCommit(id);
+        notifier.publish(id, entity.getVersion());
+        readYourWrites.writtenAfterCommit(id);
+        return summary(entity);
+    }
+
+    /**
+     * Documents whose text contains {@code query}, narrowed down by the trigram index and then
+     * verified. The candidates' rows are loaded in one query, and each is checked against its
+     * cached buffer when it has one at the stored version, or else against its chunks.
+     */
+    @Transactional(readOnly = true)
+    public List<Summary> search(String query) {
+        List<UUID> candidates = searchIndex.candidates(query);
+        Map<UUID, DocumentEntity> entities = new HashMap<>();
+        for (DocumentEntity entity : repo.findAllById(candidates)) {
+            entities.put(entity.getId(), entity);
+        }
+
+        List<Summary> result = new ArrayList<>();
+        for (UUID id : candidates) {
+            DocumentEntity entity = entities.get(id);
+            if (entity == null) {
+                continue;
+            }
+            CharSequence cached = buffers.text(id, entity.getVersion());
+            boolean matches = cached != null
+                    ? DocumentChunkStore.contains(cached, query)
+                    : DocumentChunkStore.contains(chunks.pieces(id), query);
+            if (matches) {
+                result.add(summary(entity));
+            }
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public List<DocumentRevisionEntity> versions(UUID id) {
+        readYourWrites.route(id);
+        if (find(id).isArchived()) {
+            return archiver.restoreAndRead(id, restored -> history.list(id));
+        }
+        return history.list(id);
+    }
+
+    /** Rebuild the text of a document as it was at the given revision. */
+    @Transactional(readOnly = true)
+    public DocumentHistory.Version version(UUID id, long revision) {
+        readYourWrites.route(id);
+        if (find(id).isArchived()) {
+            return archiver.restoreAndRead(id, restored -> history.version(id, revision));
+        }
+        return history.version(id, revision);
+    }
+
+    private DocumentEntity find(UUID id) {
+        return repo.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("No document with id: " + id));
+    }
+
+    private static Head head(DocumentEntity entity) {
+        return new Head(entity.getVersion(), selection(entity), stats(entity), 0);
+    }
+
+    private static Summary summary(DocumentEntity entity) {
+        return new Summary(entity.getId(), entity.getTitle(), stats(entity), entity.getCreatedAt(), entity.getUpdatedAt());
+    }
+
+    private static Selection selection(DocumentEntity entity) {
+        return new Selection(entity.getCursor(), entity.getAnchor(), entity.getPreferredColumn());
+    }
+
+    private static Stats stats(DocumentEntity entity) {
+        return new Stats(entity.getCharCount(), entity.getWordCount(), entity.getLineCount());
+    }
+
+    private static void setStats(DocumentEntity entity, Stats stats) {
+        entity.setCharCount(stats.chars());
+        entity.setWordCount(stats.words());
+        entity.setLineCount(stats.lines());
+    }
+}
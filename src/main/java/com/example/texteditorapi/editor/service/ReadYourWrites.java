@@ -0,0 +1,77 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.persistence.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps reads of a recently written document on the primary. Replicas lag behind, so for
+ * windowMs after a write commits, reads of that document skip them; this way a client reading
+ * back its own change never sees the state from before it.
+ */
+@Component
+public class ReadYourWrites {
+
+    // Forgetting expired writes is only worth it once there are this many
+    private static final int PRUNE_AT = 10_000;
+
+    private final long windowMs;
+    private final LongSupplier clock;
+    private final Map<UUID, Long> writtenAt = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(@Value("${texteditor.datasource.read-your-writes-ms:5000}") long windowMs) {
+        this(windowMs, System::currentTimeMillis);
+    }
+
+    ReadYourWrites(long windowMs, LongSupplier clock) {
+        this.windowMs = windowMs;
+        this.clock = clock;
+    }
+
+    /** Start the document's window once the current transaction commits. */
+    public void writtenAfterCommit(UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            written(id);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                written(id);
+            }
+        });
+    }
+
+    /** Read the current transaction from the primary if the document was written within the window. */
+    public void route(UUID id) {
+        if (isRecent(id)) {
+            ReplicaRoutingDataSource.usePrimaryForCurrentTransaction();
+        }
+    }
+
+    boolean isRecent(UUID id) {
+        Long at = writtenAt.get(id);
+        return at != null && clock.getAsLong() - at < windowMs;
+    }
+
+    void written(UUID id) {
+        long now = clock.getAsLong();
+        writtenAt.put(id, now);
+
+        if (writtenAt.size() > PRUNE_AT) {
+            writtenAt.values().removeIf(at -> now - at >= windowMs);
+        }
+    }
+
+    int size() {
+        return writtenAt.size();
+    }
+}
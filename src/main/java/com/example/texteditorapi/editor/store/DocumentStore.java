@@ -0,0 +1,89 @@
+package com.example.texteditorapi.editor.store;
+
+import com.example.texteditorapi.editor.Rope;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Storage for documents, independent of where and how they are kept. A stored document is a
+ * checkpoint of its full text plus the edits appended since then: loading replays the edits onto
+ * the checkpoint, and a new checkpoint folds them in so that loading stays cheap.
+ *
+ * Every append names the version it expects the document to be at, and fails with
+ * ConcurrentModificationException if another writer changed the document first.
+ */
+public interface DocumentStore {
+
+    record Selection(int cursor, int anchor, int preferredColumn) {}
+
+    record Stats(int chars, int words, int lines) {}
+
+    record Edit(Type type, int pos, String text) {
+        public enum Type { INSERT, DELETE }
+
+        public static Edit insert(int pos, CharSequence text) {
+            return new Edit(Type.INSERT, pos, text.toString());
+        }
+
+        public static Edit delete(int pos, CharSequence removed) {
+            return new Edit(Type.DELETE, pos, removed.toString());
+        }
+
+        public Rope applyTo(Rope text) {
+            return type == Type.INSERT ? text.insert(pos, this.text) : text.delete(pos, pos + this.text.length());
+        }
+    }
+
+    record StoredDocument(
+            UUID id,
+            String title,
+            CharSequence text,
+            Selection selection,
+            Stats stats,
+            long version,
+            int editsSinceCheckpoint,
+            Instant createdAt,
+            Instant updatedAt
+    ) {}
+
+    record Summary(UUID id, String title, Stats stats, Instant createdAt, Instant updatedAt) {}
+
+    /** What a command needs to know about a document before it runs, without the document's text. */
+    record Head(long version, Selection selection, Stats stats, int editsSinceCheckpoint) {}
+
+    void create(UUID id, String title, String text, Selection selection, Stats stats, Instant now);
+
+    /** The document with all its appended edits applied, or empty if there is no such document. */
+    Optional<StoredDocument> load(UUID id);
+
+    /** The document's head, or empty if there is no such document. */
+    Optional<Head> head(UUID id);
+
+    /**
+     * The head of a document that is about to be appended to. A store taking part in the current
+     * transaction locks the document until it ends, so commands for one document run one at a time.
+     */
+    default Optional<Head> headForUpdate(UUID id) {
+        return head(id);
+    }
+
+    /**
+     * Append the edits one command made, with the selection and stats after them, and return the
+     * document's new version. {@code text} is the document's full text after the edits; it is only
+     * read during the call, by stores that write text instead of, or as well as, the edits.
+     */
+    long append(UUID id, long expectedVersion, List<Edit> edits, CharSequence text, Selection selection, Stats stats, Instant now);
+
+    /**
+     * Record {@code text} as the document's full text at {@code version}, so the edits before it
+     * no longer need replaying. Ignored if the document has moved past that version.
+     */
+    void checkpoint(UUID id, long version, CharSequence text);
+
+    List<Summary> list();
+
+    boolean delete(UUID id);
+}
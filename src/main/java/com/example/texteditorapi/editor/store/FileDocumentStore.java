@@ -0,0 +1,332 @@
+package com.example.texteditorapi.editor.store;
+
+import com.example.texteditorapi.editor.Rope;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.example.texteditorapi.editor.store.RecordIO.*;
+
+/**
+ * Keeps each document in its own directory on the local disk: a checkpoint file with the full
+ * text, and an edit log that every append adds one record to and syncs. A checkpoint is written
+ * to a temporary file and moved into place before the log is cleared, and log records carry the
+ * version they produce, so records already covered by the checkpoint are skipped on load if the
+ * store stopped in between. A record cut short by a crash is ignored and overwritten.
+ */
+public class FileDocumentStore implements DocumentStore {
+
+    static final String CHECKPOINT = "checkpoint";
+    static final String EDITS = "edits";
+
+    // What appends need, kept for every document read so far so they do not read its files again
+    private record Header(long version, long logLength, Selection selection, Stats stats, int editsSinceCheckpoint) {}
+
+    private static final class State {
+        String title;
+        Instant createdAt;
+        Instant updatedAt;
+        Selection selection;
+        Stats stats;
+        long version;
+        Rope text;
+        int editsSinceCheckpoint;
+        long logLength;
+    }
+
+    private final Path dir;
+    private final Map<UUID, Header> headers = new HashMap<>();
+
+    public FileDocumentStore(Path dir) {
+        this.dir = dir;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void create(UUID id, String title, String text, Selection selection, Stats stats, Instant now) {
+        Path docDir = dir.resolve(id.toString());
+        if (Files.exists(docDir)) {
+            throw new IllegalArgumentException("Document already exists: " + id);
+        }
+
+        try {
+            Files.createDirectories(docDir);
+            // Created before the checkpoint, so syncing the directory for it makes both entries durable
+            Files.write(docDir.resolve(EDITS), new byte[0]);
+            writeCheckpoint(docDir, 0, title, now, now, selection, stats, text);
+            syncDirectory(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        headers.put(id, new Header(0, 0, selection, stats, 0));
+    }
+
+    @Override
+    public synchronized Optional<StoredDocument> load(UUID id) {
+        State s = read(id, true);
+        if (s == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredDocument(
+                id, s.title, s.text, s.selection, s.stats, s.version, s.editsSinceCheckpoint, s.createdAt, s.updatedAt));
+    }
+
+    @Override
+    public synchronized Optional<Head> head(UUID id) {
+        Header header = cachedHeader(id);
+        if (header == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Head(header.version(), header.selection(), header.stats(), header.editsSinceCheckpoint()));
+    }
+
+    @Override
+    public synchronized long append(UUID id, long expectedVersion, List<Edit> edits, CharSequence text, Selection selection, Stats stats, Instant now) {
+        Header header = header(id);
+        if (header.version() != expectedVersion) {
+            throw new ConcurrentModificationException("Document " + id + " is at version " + header.version() + ", not " + expectedVersion);
+        }
+
+        long version = expectedVersion + 1;
+        ByteBuffer record = record(version, now, selection, stats, edits);
+
+        try (FileChannel log = FileChannel.open(dir.resolve(id.toString()).resolve(EDITS),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop anything past the last complete record, left there by a crash mid-append
+            log.truncate(header.logLength());
+            log.position(header.logLength());
+            while (record.hasRemaining()) {
+                log.write(record);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            headers.remove(id);
+            throw new UncheckedIOException(e);
+        }
+
+        headers.put(id, new Header(
+                version, header.logLength() + record.limit(), selection, stats, header.editsSinceCheckpoint() + edits.size()));
+        return version;
+    }
+
+    @Override
+    public synchronized void checkpoint(UUID id, long version, CharSequence text) {
+        State s = read(id, false);
+        if (s == null || s.version != version) {
+            return;
+        }
+
+        Path docDir = dir.resolve(id.toString());
+        try {
+            writeCheckpoint(docDir, version, s.title, s.createdAt, s.updatedAt, s.selection, s.stats, text);
+            try (FileChannel log = FileChannel.open(docDir.resolve(EDITS), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                log.truncate(0);
+                log.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        headers.put(id, new Header(version, 0, s.selection, s.stats, 0));
+    }
+
+    @Override
+    public synchronized List<Summary> list() {
+        List<Summary> result = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(dir)) {
+            for (Path docDir : dirs.sorted().toList()) {
+                UUID id;
+                try {
+                    id = UUID.fromString(docDir.getFileName().toString());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                State s = read(id, false);
+                if (s != null) {
+                    result.add(new Summary(id, s.title, s.stats, s.createdAt, s.updatedAt));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean delete(UUID id) {
+        headers.remove(id);
+        Path docDir = dir.resolve(id.toString());
+        if (!Files.exists(docDir)) {
+            return false;
+        }
+
+        try (Stream<Path> files = Files.walk(docDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private Header header(UUID id) {
+        Header header = cachedHeader(id);
+        if (header == null) {
+            throw new NoSuchElementException("No document with id: " + id);
+        }
+        return header;
+    }
+
+    private Header cachedHeader(UUID id) {
+        Header header = headers.get(id);
+        if (header == null) {
+            State s = read(id, false);
+            if (s == null) {
+                return null;
+            }
+            header = new Header(s.version, s.logLength, s.selection, s.stats, s.editsSinceCheckpoint);
+            headers.put(id, header);
+        }
+        return header;
+    }
+
+    private State read(UUID id, boolean withText) {
+        Path docDir = dir.resolve(id.toString());
+        State s = new State();
+
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(docDir.resolve(CHECKPOINT)));
+            s.version = in.getLong();
+            s.title = readString(in);
+            s.createdAt = readInstant(in);
+            s.updatedAt = readInstant(in);
+            s.selection = readSelection(in);
+            s.stats = readStats(in);
+            s.text = withText ? Rope.of(readString(in)) : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteBuffer log;
+        try {
+            log = ByteBuffer.wrap(Files.readAllBytes(docDir.resolve(EDITS)));
+        } catch (NoSuchFileException e) {
+            return s;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        while (log.remaining() >= Integer.BYTES) {
+            int length = log.getInt();
+            if (length < 0 || length > log.remaining()) {
+                // Cut short by a crash; the next append overwrites it
+                break;
+            }
+
+            ByteBuffer record = log.slice(log.position(), length);
+            log.position(log.position() + length);
+
+            long version = record.getLong();
+            Instant updatedAt = readInstant(record);
+            Selection selection = readSelection(record);
+            Stats stats = readStats(record);
+            List<Edit> edits = readEdits(record);
+
+            if (version > s.version) {
+                if (withText) {
+                    for (Edit edit : edits) {
+                        s.text = edit.applyTo(s.text);
+                    }
+                }
+                s.version = version;
+                s.updatedAt = updatedAt;
+                s.selection = selection;
+                s.stats = stats;
+                s.editsSinceCheckpoint += edits.size();
+            }
+            s.logLength = log.position();
+        }
+        return s;
+    }
+
+    private static void writeCheckpoint(
+            Path docDir,
+            long version,
+            String title,
+            Instant createdAt,
+            Instant updatedAt,
+            Selection selection,
+            Stats stats,
+            CharSequence text
+    ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() + 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(version);
+        writeString(out, title);
+        writeInstant(out, createdAt);
+        writeInstant(out, updatedAt);
+        writeSelection(out, selection);
+        writeStats(out, stats);
+        writeString(out, text.toString());
+        out.flush();
+
+        Path tmp = docDir.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                ch.write(buffer);
+            }
+            ch.force(false);
+        }
+        Files.move(tmp, docDir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename has to be durable before the log it replaces is cleared
+        syncDirectory(docDir);
+    }
+
+    private static ByteBuffer record(long version, Instant now, Selection selection, Stats stats, List<Edit> edits) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0);
+            out.writeLong(version);
+            writeInstant(out, now);
+            writeSelection(out, selection);
+            writeStats(out, stats);
+            writeEdits(out, edits);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.limit() - Integer.BYTES);
+        return record;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.texteditorapi.editor.store;
+
+import com.example.texteditorapi.editor.Rope;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/** Keeps documents on the heap only, for running the editor without any persistence. */
+public class InMemoryDocumentStore implements DocumentStore {
+
+    private static final class Entry {
+        private final String title;
+        private final Instant createdAt;
+        private Rope checkpoint;
+        private final List<Edit> edits = new ArrayList<>();
+        private Selection selection;
+        private Stats stats;
+        private long version;
+        private Instant updatedAt;
+
+        Entry(String title, Rope text, Selection selection, Stats stats, Instant now) {
+            this.title = title;
+            this.checkpoint = text;
+            this.selection = selection;
+            this.stats = stats;
+            this.createdAt = now;
+            this.updatedAt = now;
+        }
+    }
+
+    private final Map<UUID, Entry> documents = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void create(UUID id, String title, String text, Selection selection, Stats stats, Instant now) {
+        if (documents.containsKey(id)) {
+            throw new IllegalArgumentException("Document already exists: " + id);
+        }
+        documents.put(id, new Entry(title, Rope.of(text), selection, stats, now));
+    }
+
+    @Override
+    public synchronized Optional<StoredDocument> load(UUID id) {
+        Entry e = documents.get(id);
+        if (e == null) {
+            return Optional.empty();
+        }
+
+        Rope text = e.checkpoint;
+        for (Edit edit : e.edits) {
+            text = edit.applyTo(text);
+        }
+        return Optional.of(new StoredDocument(
+                id, e.title, text, e.selection, e.stats, e.version, e.edits.size(), e.createdAt, e.updatedAt));
+    }
+
+    @Override
+    public synchronized Optional<Head> head(UUID id) {
+        Entry e = documents.get(id);
+        if (e == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Head(e.version, e.selection, e.stats, e.edits.size()));
+    }
+
+    @Override
+    public synchronized long append(UUID id, long expectedVersion, List<Edit> edits, CharSequence text, Selection selection, Stats stats, Instant now) {
+        Entry e = documents.get(id);
+        if (e == null) {
+            throw new NoSuchElementException("No document with id: " + id);
+        }
+        if (e.version != expectedVersion) {
+            throw new ConcurrentModificationException("Document " + id + " is at version " + e.version + ", not " + expectedVersion);
+        }
+
+        e.edits.addAll(edits);
+        e.selection = selection;
+        e.stats = stats;
+        e.updatedAt = now;
+        return ++e.version;
+    }
+
+    @Override
+    public synchronized void checkpoint(UUID id, long version, CharSequence text) {
+        Entry e = documents.get(id);
+        if (e == null || e.version != version) {
+            return;
+        }
+        e.checkpoint = Rope.of(text);
+        e.edits.clear();
+    }
+
+    @Override
+    public synchronized List<Summary> list() {
+        List<Summary> result = new ArrayList<>(documents.size());
+        for (Map.Entry<UUID, Entry> e : documents.entrySet()) {
+            Entry doc = e.getValue();
+            result.add(new Summary(e.getKey(), doc.title, doc.stats, doc.createdAt, doc.updatedAt));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean delete(UUID id) {
+        return documents.remove(id) != null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.texteditorapi.editor.store;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The binary encoding of document fields, and file handling, shared by the stores that write their own files. */
+final class RecordIO {
+
+    private RecordIO() {
+    }
+
+    /** Make files created in or renamed into {@code directory} survive a crash. */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel ch = FileChannel.open(directory, StandardOpenOption.READ)) {
+            ch.force(true);
+        }
+    }
+
+    static void writeSelection(DataOutputStream out, DocumentStore.Selection selection) throws IOException {
+        out.writeInt(selection.cursor());
+        out.writeInt(selection.anchor());
+        out.writeInt(selection.preferredColumn());
+    }
+
+    static DocumentStore.Selection readSelection(ByteBuffer in) {
+        return new DocumentStore.Selection(in.getInt(), in.getInt(), in.getInt());
+    }
+
+    static void writeStats(DataOutputStream out, DocumentStore.Stats stats) throws IOException {
+        out.writeInt(stats.chars());
+        out.writeInt(stats.words());
+        out.writeInt(stats.lines());
+    }
+
+    static DocumentStore.Stats readStats(ByteBuffer in) {
+        return new DocumentStore.Stats(in.getInt(), in.getInt(), in.getInt());
+    }
+
+    static void writeEdits(DataOutputStream out, List<DocumentStore.Edit> edits) throws IOException {
+        out.writeInt(edits.size());
+        for (DocumentStore.Edit edit : edits) {
+            out.writeByte(edit.type().ordinal());
+            out.writeInt(edit.pos());
+            writeString(out, edit.text());
+        }
+    }
+
+    static List<DocumentStore.Edit> readEdits(ByteBuffer in) {
+        int count = in.getInt();
+        List<DocumentStore.Edit> edits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DocumentStore.Edit.Type type = DocumentStore.Edit.Type.values()[in.get()];
+            int pos = in.getInt();
+            edits.add(new DocumentStore.Edit(type, pos, readString(in)));
+        }
+        return edits;
+    }
+
+    static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    static Instant readInstant(ByteBuffer in) {
+        return Instant.ofEpochSecond(in.getLong(), in.getInt());
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+}
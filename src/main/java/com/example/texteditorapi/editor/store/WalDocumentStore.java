@@ -0,0 +1,692 @@
+package com.example.texteditorapi.editor.store;
+
+import com.example.texteditorapi.editor.Rope;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static com.example.texteditorapi.editor.store.RecordIO.*;
+
+/**
+ * A write-ahead log shared by all documents. Every change is one record appended to the current
+ * segment file: a snapshot record naming a file with the document's full text, an append record
+ * with the edits of one command, or a delete record. Snapshot files are named after the document,
+ * the incarnation it got when it was created, and the version, so a document deleted and created
+ * again under the same id never shares a file name with the one before. Each record is stored as its length, a CRC32C
+ * and the payload, so a record cut short by a crash is recognised and dropped on recovery.
+ *
+ * Writers wait until their record is synced before returning. One waiter syncs on behalf of every
+ * record written so far while the others wait for it (group commit); groupCommitMicros makes it
+ * wait a little first to gather more records per sync.
+ *
+ * Only each document's last snapshot and the edits after it are needed on recovery, and they are
+ * also what is kept in memory: the snapshot as a rope, so a load copies it and the edits under
+ * the store's lock and replays them outside it. A document is snapshotted every
+ * snapshotEveryEdits edits or when checkpointed; its snapshot file is written and synced outside
+ * the store's lock, and only the record naming it is written under it. Once there are more than maxSegments segments, every document whose snapshot
+ * lies in an older segment is carried over into the current one, as a snapshot record for the
+ * same file plus one catch-up record of the edits since, after which the older segments are
+ * deleted.
+ */
+public class WalDocumentStore implements DocumentStore, Closeable {
+
+    public record Options(long segmentBytes, int maxSegments, int snapshotEveryEdits, long groupCommitMicros, boolean fsync) {
+        public static Options defaults() {
+            return new Options(64L << 20, 4, 1000, 0, true);
+        }
+    }
+
+    static final String SNAPSHOTS = "snapshots";
+
+    private static final byte SNAPSHOT = 1;
+    private static final byte APPEND = 2;
+    private static final byte DELETE = 3;
+    private static final byte CATCH_UP = 4;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final class Doc {
+        long incarnation;
+        String title;
+        Instant createdAt;
+        Instant updatedAt;
+        Selection selection;
+        Stats stats;
+        long version;
+        long snapshotVersion;
+        long snapshotSegment;
+        Rope snapshot;
+        final List<Edit> pending = new ArrayList<>();
+    }
+
+    /** A file that can go once the record at {@code lsn} is synced. */
+    private record Obsolete(long lsn, Path file) {}
+
+    private final Path dir;
+    private final Path snapshots;
+    private final Options options;
+    private final Map<UUID, Doc> docs = new LinkedHashMap<>();
+    // Ids whose first snapshot file is being written, so a second create cannot overwrite it
+    private final Set<UUID> creating = new HashSet<>();
+    private final Deque<Long> segments = new ArrayDeque<>();
+    private final List<Obsolete> obsolete = new ArrayList<>();
+
+    private FileChannel channel;
+    private long segmentSize;
+    private long written;
+    private boolean compacting;
+    // The highest incarnation given to a document so far
+    private long incarnations;
+
+    private final Object syncLock = new Object();
+    private volatile long durable;
+
+    public WalDocumentStore(Path dir, Options options) {
+        this.dir = dir;
+        this.snapshots = dir.resolve(SNAPSHOTS);
+        this.options = options;
+        try {
+            Files.createDirectories(snapshots);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void create(UUID id, String title, String text, Selection selection, Stats stats, Instant now) {
+        long incarnation;
+        synchronized (this) {
+            if (docs.containsKey(id) || !creating.add(id)) {
+                throw new IllegalArgumentException("Document already exists: " + id);
+            }
+            incarnation = ++incarnations;
+        }
+
+        long lsn;
+        try {
+            Rope initial = Rope.of(text);
+            writeSnapshotFile(snapshotFile(id, incarnation, 0), initial);
+            synchronized (this) {
+                Doc doc = new Doc();
+                doc.incarnation = incarnation;
+                doc.title = title;
+                doc.createdAt = now;
+                doc.updatedAt = now;
+                doc.selection = selection;
+                doc.stats = stats;
+                doc.snapshotVersion = -1;
+                lsn = snapshot(id, doc, initial);
+                docs.put(id, doc);
+            }
+        } finally {
+            synchronized (this) {
+                creating.remove(id);
+            }
+        }
+        awaitDurable(lsn);
+    }
+
+    @Override
+    public Optional<StoredDocument> load(UUID id) {
+        StoredDocument snapshot;
+        Rope text;
+        List<Edit> pending;
+        synchronized (this) {
+            Doc doc = docs.get(id);
+            if (doc == null) {
+                return Optional.empty();
+            }
+            text = doc.snapshot;
+            pending = List.copyOf(doc.pending);
+            snapshot = new StoredDocument(
+                    id, doc.title, doc.snapshot, doc.selection, doc.stats, doc.version, pending.size(), doc.createdAt, doc.updatedAt);
+        }
+
+        // Ropes never change, so the copied edits can be replayed without holding up other documents
+        for (Edit edit : pending) {
+            text = edit.applyTo(text);
+        }
+        return Optional.of(new StoredDocument(
+                id, snapshot.title(), text, snapshot.selection(), snapshot.stats(), snapshot.version(),
+                snapshot.editsSinceCheckpoint(), snapshot.createdAt(), snapshot.updatedAt()));
+    }
+
+    @Override
+    public synchronized Optional<Head> head(UUID id) {
+        Doc doc = docs.get(id);
+        if (doc == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Head(doc.version, doc.selection, doc.stats, doc.pending.size()));
+    }
+
+    @Override
+    public long append(UUID id, long expectedVersion, List<Edit> edits, CharSequence text, Selection selection, Stats stats, Instant now) {
+        long lsn;
+        long version;
+        boolean snapshotDue;
+        synchronized (this) {
+            Doc doc = docs.get(id);
+            if (doc == null) {
+                throw new NoSuchElementException("No document with id: " + id);
+            }
+            if (doc.version != expectedVersion) {
+                throw new ConcurrentModificationException("Document " + id + " is at version " + doc.version + ", not " + expectedVersion);
+            }
+
+            version = expectedVersion + 1;
+            lsn = write(encode(out -> {
+                out.writeByte(APPEND);
+                writeId(out, id);
+                out.writeLong(version);
+                writeInstant(out, now);
+                writeSelection(out, selection);
+                writeStats(out, stats);
+                writeEdits(out, edits);
+            }));
+
+            doc.version = version;
+            doc.updatedAt = now;
+            doc.selection = selection;
+            doc.stats = stats;
+            doc.pending.addAll(edits);
+
+            snapshotDue = doc.pending.size() >= options.snapshotEveryEdits();
+        }
+        awaitDurable(lsn);
+
+        if (snapshotDue) {
+            checkpoint(id, version, text);
+        }
+        return version;
+    }
+
+    @Override
+    public void checkpoint(UUID id, long version, CharSequence text) {
+        Doc doc;
+        synchronized (this) {
+            doc = docs.get(id);
+            if (!needsSnapshot(doc, version)) {
+                return;
+            }
+        }
+
+        // The text of a version never changes, so racing checkpoints write the same file
+        Rope snapshot = Rope.of(text);
+        Path file = snapshotFile(id, doc.incarnation, version);
+        writeSnapshotFile(file, snapshot);
+
+        long lsn;
+        synchronized (this) {
+            boolean live = docs.get(id) == doc;
+            if (!live || !needsSnapshot(doc, version)) {
+                // Deleted, moved on or snapshotted by another writer meanwhile; keep the file only if it is in use
+                if (!live || doc.snapshotVersion != version) {
+                    deleteFile(file);
+                }
+                return;
+            }
+            lsn = snapshot(id, doc, snapshot);
+        }
+        awaitDurable(lsn);
+    }
+
+    private static boolean needsSnapshot(Doc doc, long version) {
+        return doc != null && doc.version == version && doc.snapshotVersion != version;
+    }
+
+    @Override
+    public synchronized List<Summary> list() {
+        List<Summary> result = new ArrayList<>(docs.size());
+        for (Map.Entry<UUID, Doc> e : docs.entrySet()) {
+            Doc doc = e.getValue();
+            result.add(new Summary(e.getKey(), doc.title, doc.stats, doc.createdAt, doc.updatedAt));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean delete(UUID id) {
+        long lsn;
+        synchronized (this) {
+            Doc doc = docs.remove(id);
+            if (doc == null) {
+                return false;
+            }
+            lsn = write(encode(out -> {
+                out.writeByte(DELETE);
+                writeId(out, id);
+            }));
+            retire(lsn, snapshotFile(id, doc.incarnation, doc.snapshotVersion));
+        }
+        awaitDurable(lsn);
+        return true;
+    }
+
+    /** Snapshot every document whose snapshot is older than the current segment, then drop those segments. */
+    public void compact() {
+        long lsn;
+        synchronized (this) {
+            lsn = compactLocked();
+        }
+        awaitDurable(lsn);
+    }
+
+    /** Number of segment files on disk, including the one being written. */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (channel.isOpen()) {
+                if (options.fsync()) {
+                    channel.force(false);
+                }
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        durable = written;
+        deleteObsolete(written);
+    }
+
+    private long compactLocked() {
+        compacting = true;
+        try {
+            if (segmentSize > 0) {
+                rotate();
+            }
+            long first = segments.peekLast();
+
+            long lsn = written;
+            for (Map.Entry<UUID, Doc> e : docs.entrySet()) {
+                Doc doc = e.getValue();
+                if (doc.snapshotSegment < first) {
+                    lsn = carryOver(e.getKey(), doc);
+                }
+            }
+
+            // Deleted oldest first, so a crash part way never leaves a delete record without the create before it
+            while (segments.peekFirst() < first) {
+                retire(lsn, segmentFile(segments.pollFirst()));
+            }
+            return lsn;
+        } finally {
+            compacting = false;
+        }
+    }
+
+    /** Write a snapshot record for {@code doc} at its current version, whose snapshot file is already written. */
+    private long snapshot(UUID id, Doc doc, Rope text) {
+        long previous = doc.snapshotVersion;
+        long lsn = write(snapshotRecord(id, doc, doc.version));
+
+        doc.snapshotVersion = doc.version;
+        doc.snapshotSegment = segments.peekLast();
+        doc.snapshot = text;
+        doc.pending.clear();
+        if (previous >= 0 && previous != doc.version) {
+            retire(lsn, snapshotFile(id, doc.incarnation, previous));
+        }
+        return lsn;
+    }
+
+    /**
+     * Record {@code doc} again in the current segment without writing its text: a snapshot record
+     * for the snapshot file it already has, then the edits made since then as one catch-up record.
+     */
+    private long carryOver(UUID id, Doc doc) {
+        long lsn = write(snapshotRecord(id, doc, doc.snapshotVersion));
+        doc.snapshotSegment = segments.peekLast();
+
+        if (!doc.pending.isEmpty()) {
+            lsn = write(encode(out -> {
+                out.writeByte(CATCH_UP);
+                writeId(out, id);
+                out.writeLong(doc.snapshotVersion);
+                out.writeLong(doc.version);
+                writeInstant(out, doc.updatedAt);
+                writeSelection(out, doc.selection);
+                writeStats(out, doc.stats);
+                writeEdits(out, doc.pending);
+            }));
+        }
+        return lsn;
+    }
+
+    private static ByteBuffer snapshotRecord(UUID id, Doc doc, long version) {
+        return encode(out -> {
+            out.writeByte(SNAPSHOT);
+            writeId(out, id);
+            out.writeLong(version);
+            out.writeLong(doc.incarnation);
+            writeString(out, doc.title);
+            writeInstant(out, doc.createdAt);
+            writeInstant(out, doc.updatedAt);
+            writeSelection(out, doc.selection);
+            writeStats(out, doc.stats);
+        });
+    }
+
+    /**
+     * Write a snapshot file so it survives a crash before its record is written: the contents are
+     * synced before the file is renamed into place, and the directory after. Must not be called
+     * while holding the store's lock.
+     */
+    private void writeSnapshotFile(Path file, CharSequence text) {
+        try {
+            // Unique per writer; leftovers of a crash are removed on recovery like any other unused file
+            Path tmp = Files.createTempFile(snapshots, file.getFileName().toString(), ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    ch.write(buffer);
+                }
+                if (options.fsync()) {
+                    ch.force(false);
+                }
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (options.fsync()) {
+                syncDirectory(snapshots);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Append a record to the current segment and return its sequence number. */
+    private long write(ByteBuffer record) {
+        if (segmentSize > 0 && segmentSize + record.limit() > options.segmentBytes()) {
+            rotate();
+            if (!compacting && segments.size() > options.maxSegments()) {
+                compactLocked();
+            }
+        }
+
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentSize += record.limit();
+        written++;
+
+        if (!options.fsync()) {
+            durable = written;
+            deleteObsolete(written);
+        }
+        return written;
+    }
+
+    /** Seal the current segment and start writing the next one. */
+    private void rotate() {
+        long next = segments.peekLast() + 1;
+        try {
+            if (options.fsync()) {
+                channel.force(false);
+            }
+            channel.close();
+            channel = FileChannel.open(segmentFile(next), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            if (options.fsync()) {
+                syncDirectory(dir);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.addLast(next);
+        segmentSize = 0;
+    }
+
+    /** Wait until the record at {@code lsn} is synced, syncing everything written so far if nobody else is. */
+    private void awaitDurable(long lsn) {
+        if (durable >= lsn) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            if (durable >= lsn) {
+                return;
+            }
+            if (options.groupCommitMicros() > 0) {
+                LockSupport.parkNanos(options.groupCommitMicros() * 1000);
+            }
+
+            FileChannel ch;
+            long target;
+            synchronized (this) {
+                ch = channel;
+                target = written;
+            }
+
+            try {
+                ch.force(false);
+            } catch (ClosedChannelException e) {
+                // The segment was sealed in the meantime, which synced it
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            durable = target;
+
+            synchronized (this) {
+                deleteObsolete(target);
+            }
+        }
+    }
+
+    private void retire(long lsn, Path file) {
+        obsolete.add(new Obsolete(lsn, file));
+    }
+
+    private void deleteObsolete(long synced) {
+        while (!obsolete.isEmpty() && obsolete.get(0).lsn() <= synced) {
+            deleteFile(obsolete.remove(0).file());
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("wal-") && name.endsWith(".log")) {
+                    found.add(Long.parseLong(name.substring(4, name.length() - 4)));
+                }
+            }
+        }
+        found.sort(null);
+
+        long validLength = 0;
+        for (int i = 0; i < found.size(); i++) {
+            long segment = found.get(i);
+            boolean last = i == found.size() - 1;
+            validLength = replay(segment, ByteBuffer.wrap(Files.readAllBytes(segmentFile(segment))), last);
+            segments.addLast(segment);
+        }
+
+        if (segments.isEmpty()) {
+            segments.addLast(1L);
+        }
+        channel = FileChannel.open(segmentFile(segments.peekLast()), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (found.isEmpty() && options.fsync()) {
+            syncDirectory(dir);
+        }
+        // Drop a record cut short by a crash so new records follow the last complete one
+        channel.truncate(validLength);
+        channel.position(validLength);
+        segmentSize = validLength;
+
+        // Snapshot files written or retired just before a crash
+        Set<String> live = new HashSet<>();
+        for (Map.Entry<UUID, Doc> e : docs.entrySet()) {
+            Path file = snapshotFile(e.getKey(), e.getValue().incarnation, e.getValue().snapshotVersion);
+            e.getValue().snapshot = Rope.of(Files.readString(file, StandardCharsets.UTF_8));
+            live.add(file.getFileName().toString());
+        }
+        try (Stream<Path> files = Files.list(snapshots)) {
+            for (Path file : files.toList()) {
+                if (!live.contains(file.getFileName().toString())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /** Apply the records of one segment and return the length of its complete records. */
+    private long replay(long segment, ByteBuffer in, boolean last) {
+        while (in.remaining() >= HEADER_BYTES) {
+            int start = in.position();
+            int length = in.getInt();
+            int crc = in.getInt();
+            if (length < 0 || length > in.remaining() || crc != crc(in, in.position(), length)) {
+                if (!last) {
+                    throw new IllegalStateException("Corrupt record at " + start + " in sealed segment " + segmentFile(segment));
+                }
+                return start;
+            }
+
+            ByteBuffer record = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            apply(segment, record);
+        }
+        if (in.hasRemaining() && !last) {
+            throw new IllegalStateException("Truncated sealed segment " + segmentFile(segment));
+        }
+        return in.position();
+    }
+
+    private void apply(long segment, ByteBuffer record) {
+        byte type = record.get();
+        UUID id = new UUID(record.getLong(), record.getLong());
+
+        switch (type) {
+            case SNAPSHOT -> {
+                Doc doc = new Doc();
+                doc.version = record.getLong();
+                doc.incarnation = record.getLong();
+                doc.title = readString(record);
+                doc.createdAt = readInstant(record);
+                doc.updatedAt = readInstant(record);
+                doc.selection = readSelection(record);
+                doc.stats = readStats(record);
+                doc.snapshotVersion = doc.version;
+                doc.snapshotSegment = segment;
+                docs.put(id, doc);
+                incarnations = Math.max(incarnations, doc.incarnation);
+            }
+            case APPEND -> {
+                Doc doc = docs.get(id);
+                long version = record.getLong();
+                // Appends before a later snapshot of the document are covered by it
+                if (doc == null || version != doc.version + 1) {
+                    return;
+                }
+                doc.version = version;
+                doc.updatedAt = readInstant(record);
+                doc.selection = readSelection(record);
+                doc.stats = readStats(record);
+                doc.pending.addAll(readEdits(record));
+            }
+            case CATCH_UP -> {
+                Doc doc = docs.get(id);
+                long from = record.getLong();
+                long version = record.getLong();
+                // Only follows the snapshot record written with it; anything else means it is superseded
+                if (doc == null || doc.version != from) {
+                    return;
+                }
+                doc.version = version;
+                doc.updatedAt = readInstant(record);
+                doc.selection = readSelection(record);
+                doc.stats = readStats(record);
+                doc.pending.addAll(readEdits(record));
+            }
+            case DELETE -> docs.remove(id);
+            default -> throw new IllegalStateException("Unknown WAL record type " + type + " in segment " + segmentFile(segment));
+        }
+    }
+
+    private interface Payload {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static ByteBuffer encode(Payload payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0);
+            out.writeInt(0);
+            payload.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int length = record.limit() - HEADER_BYTES;
+        record.putInt(0, length);
+        record.putInt(Integer.BYTES, crc(record, HEADER_BYTES, length));
+        return record;
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), buffer.arrayOffset() + offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeId(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private Path segmentFile(long segment) {
+        return dir.resolve(String.format("wal-%016d.log", segment));
+    }
+
+    private Path snapshotFile(UUID id, long incarnation, long version) {
+        return snapshots.resolve(id + "-" + incarnation + "-" + version + ".snap");
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS document_chunks (
+    document_id UUID NOT NULL REFERENCES documents (id) ON DELETE CASCADE,
+    seq BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    PRIMARY KEY (document_id, seq)
+);
+
+-- Sequence numbers are spaced out so chunks can be split without renumbering their neighbours
+INSERT INTO document_chunks (document_id, seq, content)
+SELECT d.id, (n + 1) * 1048576, substr(d.text, n * 4096 + 1, 4096)
+FROM documents d
+CROSS JOIN LATERAL generate_series(0, (length(d.text) - 1) / 4096) AS n
+WHERE d.text IS NOT NULL AND length(d.text) > 0;
+
+ALTER TABLE documents DROP COLUMN text;
@@ -0,0 +1,21 @@
+-- Chunk text moves to its own immutable rows so cloned documents can point at the same contents
+CREATE TABLE IF NOT EXISTS chunk_contents (
+    id UUID PRIMARY KEY,
+    text TEXT NOT NULL
+);
+
+ALTER TABLE document_chunks ADD COLUMN content_id UUID;
+
+UPDATE document_chunks SET content_id = gen_random_uuid();
+
+INSERT INTO chunk_contents (id, text)
+SELECT content_id, content FROM document_chunks;
+
+ALTER TABLE document_chunks
+    DROP COLUMN content,
+    ALTER COLUMN content_id SET NOT NULL,
+    ADD CONSTRAINT fk_document_chunks_content FOREIGN KEY (content_id) REFERENCES chunk_contents (id);
+
+CREATE INDEX IF NOT EXISTS idx_document_chunks_content_id ON document_chunks (content_id);
+
+ALTER TABLE documents ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,43 @@
+CREATE TABLE IF NOT EXISTS document_revisions (
+    document_id UUID NOT NULL REFERENCES documents (id) ON DELETE CASCADE,
+    revision BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    snapshot BOOLEAN NOT NULL,
+    PRIMARY KEY (document_id, revision)
+);
+
+-- A snapshot points at the chunk contents the document had at that revision, so it costs one
+-- small row per chunk rather than a copy of the text
+CREATE TABLE IF NOT EXISTS document_snapshot_chunks (
+    document_id UUID NOT NULL,
+    revision BIGINT NOT NULL,
+    seq BIGINT NOT NULL,
+    content_id UUID NOT NULL REFERENCES chunk_contents (id),
+    PRIMARY KEY (document_id, revision, seq),
+    FOREIGN KEY (document_id, revision) REFERENCES document_revisions (document_id, revision) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_snapshot_chunks_content_id ON document_snapshot_chunks (content_id);
+
+CREATE TABLE IF NOT EXISTS document_edits (
+    document_id UUID NOT NULL,
+    revision BIGINT NOT NULL,
+    ordinal INTEGER NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    pos INTEGER NOT NULL,
+    text TEXT NOT NULL,
+    PRIMARY KEY (document_id, revision, ordinal),
+    FOREIGN KEY (document_id, revision) REFERENCES document_revisions (document_id, revision) ON DELETE CASCADE
+);
+
+ALTER TABLE documents
+    ADD COLUMN revision BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN edits_since_snapshot INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN chars_since_snapshot BIGINT NOT NULL DEFAULT 0;
+
+-- Existing documents start their history with a snapshot of their current text
+INSERT INTO document_revisions (document_id, revision, created_at, snapshot)
+SELECT id, 0, updated_at, TRUE FROM documents;
+
+INSERT INTO document_snapshot_chunks (document_id, revision, seq, content_id)
+SELECT document_id, 0, seq, content_id FROM document_chunks;
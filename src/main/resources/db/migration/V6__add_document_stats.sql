@@ -0,0 +1,21 @@
+ALTER TABLE documents
+    ADD COLUMN char_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN word_count INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN line_count INTEGER NOT NULL DEFAULT 1;
+
+-- Count existing documents the way TextStats does: chars are UTF-16 code units, so characters
+-- outside the BMP count twice, and a word is a run of anything but ASCII whitespace
+WITH texts AS (
+    SELECT d.id, COALESCE(string_agg(c.text, '' ORDER BY dc.seq), '') AS text
+    FROM documents d
+    LEFT JOIN document_chunks dc ON dc.document_id = d.id
+    LEFT JOIN chunk_contents c ON c.id = dc.content_id
+    GROUP BY d.id
+)
+UPDATE documents d
+SET char_count = char_length(t.text)
+        + (SELECT count(*) FROM regexp_matches(t.text, '[\U00010000-\U0010FFFF]', 'g')),
+    word_count = (SELECT count(*) FROM regexp_matches(t.text, '[^ \t\n\r\f\v]+', 'g')),
+    line_count = char_length(t.text) - char_length(replace(t.text, E'\n', '')) + 1
+FROM texts t
+WHERE t.id = d.id;
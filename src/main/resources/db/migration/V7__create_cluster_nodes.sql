@@ -0,0 +1,7 @@
+-- One row per running API node. A node renews its heartbeat while it runs; a row whose heartbeat
+-- is older than the lease is no longer a member, so its documents move to the remaining nodes
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+    id VARCHAR(64) PRIMARY KEY,
+    url VARCHAR(512) NOT NULL,
+    heartbeat_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,12 @@
+-- An archived document keeps only its row in documents; its chunks and history move into one
+-- compressed blob here until it is read or edited again
+ALTER TABLE documents ADD COLUMN archived BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS document_archives (
+    document_id UUID PRIMARY KEY REFERENCES documents (id) ON DELETE CASCADE,
+    content BYTEA NOT NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+-- Finds the least recently updated documents still to archive without visiting archived ones
+CREATE INDEX IF NOT EXISTS idx_documents_unarchived_updated_at ON documents (updated_at) WHERE NOT archived;
@@ -0,0 +1,11 @@
+-- Each chunk records its length in UTF-16 code units, the way Java counts it, so an edit can find
+-- the chunks it touches without reading any text
+ALTER TABLE document_chunks ADD COLUMN text_length INTEGER;
+
+UPDATE document_chunks dc
+SET text_length = char_length(c.text)
+        + (SELECT count(*) FROM regexp_matches(c.text, '[\U00010000-\U0010FFFF]', 'g'))
+FROM chunk_contents c
+WHERE c.id = dc.content_id;
+
+ALTER TABLE document_chunks ALTER COLUMN text_length SET NOT NULL;
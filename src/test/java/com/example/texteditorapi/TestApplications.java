@@ -0,0 +1,30 @@
+package com.example.texteditorapi;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Starts the application against a Testcontainers database, for integration tests that need
+ * more than one application context: several cluster nodes at once, or a restart. Tests with a
+ * single context use {@code @SpringBootTest} with {@code @ServiceConnection} instead.
+ */
+public final class TestApplications {
+
+    private TestApplications() {
+    }
+
+    public static ConfigurableApplicationContext start(PostgreSQLContainer<?> postgres, String... properties) {
+        return new SpringApplicationBuilder(TextEditorApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.datasource.driver-class-name=org.postgresql.Driver",
+                        "spring.jpa.hibernate.ddl-auto=validate"
+                )
+                .properties(properties)
+                .run();
+    }
+}
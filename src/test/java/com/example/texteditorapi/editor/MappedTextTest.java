@@ -0,0 +1,55 @@
+package com.example.texteditorapi.editor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTextTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void spool_readsBackTheSameText() throws IOException {
+        List<String> pieces = List.of("hello ", "wörld 😀\n", "x".repeat(100_000));
+
+        List<CharSequence> views = MappedText.spool(pieces, dir);
+
+        assertEquals(String.join("", pieces), String.join("", views));
+    }
+
+    @Test
+    void spool_leavesNoFileBehind() throws IOException {
+        MappedText.spool(List.of("abc"), dir);
+
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void bufferOverMappedText_editsOnTheHeapOnly() throws IOException {
+        String original = "line\n".repeat(50_000);
+        Rope text = Rope.view(MappedText.spool(List.of(original), dir));
+        TextBuffer buffer = TextBuffer.fromRope(text, 0, 0, 0);
+
+        buffer.setCursor(5);
+        buffer.insert("new ");
+        buffer.setCursor(buffer.length());
+        buffer.deleteLeft();
+
+        String expected = "line\nnew " + original.substring(5, original.length() - 1);
+        assertEquals(expected, buffer.getText());
+        assertEquals(50_000, buffer.getLine() + 1);
+
+        assertTrue(buffer.undo());
+        assertTrue(buffer.undo());
+        assertEquals(original, buffer.getText());
+    }
+}
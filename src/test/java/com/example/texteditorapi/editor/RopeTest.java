@@ -0,0 +1,85 @@
+package com.example.texteditorapi.editor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RopeTest {
+
+    @Test
+    void of_roundTripsText() {
+        String text = "abc\n".repeat(3000);
+        Rope rope = Rope.of(text);
+
+        assertEquals(text.length(), rope.length());
+        assertEquals(text, rope.toString());
+        assertEquals('c', rope.charAt(6002));
+    }
+
+    @Test
+    void edits_leaveOriginalUntouched() {
+        Rope original = Rope.of("hello world");
+
+        Rope edited = original.insert(5, ",").delete(0, 1);
+
+        assertEquals("hello world", original.toString());
+        assertEquals("ello, world", edited.toString());
+    }
+
+    @Test
+    void subSequence_matchesString() {
+        String text = "0123456789".repeat(1000);
+        Rope rope = Rope.of(text);
+
+        assertEquals(text.substring(2047, 4100), rope.subSequence(2047, 4100).toString());
+        assertEquals("", rope.subSequence(5, 5).toString());
+    }
+
+    @Test
+    void searchHelpers_matchString() {
+        String text = "ab\ncd\n\nefg\n".repeat(700);
+        Rope rope = Rope.of(text);
+
+        assertEquals(text.indexOf('\n', 3000), rope.indexOf('\n', 3000));
+        assertEquals(text.lastIndexOf('\n', 5000), rope.lastIndexOf('\n', 5000));
+        assertEquals(-1, rope.lastIndexOf('\n', -1));
+        assertEquals(-1, rope.indexOf('z', 0));
+        assertEquals(text.substring(100, 6000).chars().filter(c -> c == '\n').count(), rope.count('\n', 100, 6000));
+    }
+
+    @Test
+    void randomEdits_matchStringBuilderAndStayBalanced() {
+        Random random = new Random(7);
+        StringBuilder expected = new StringBuilder();
+        Rope rope = Rope.empty();
+
+        for (int i = 0; i < 5000; i++) {
+            int pos = random.nextInt(expected.length() + 1);
+            if (random.nextInt(3) > 0 || expected.length() == 0) {
+                String s = Integer.toString(i).repeat(1 + random.nextInt(random.nextBoolean() ? 3 : 500));
+                expected.insert(pos, s);
+                rope = rope.insert(pos, s);
+            } else {
+                int end = Math.min(expected.length(), pos + random.nextInt(400));
+                expected.delete(pos, end);
+                rope = rope.delete(pos, end);
+            }
+        }
+
+        assertEquals(expected.toString(), rope.toString());
+
+        int minLeaves = Math.max(1, rope.length() / Rope.MAX_LEAF);
+        double maxHeight = 1.45 * (Math.log(rope.length() + 2.0) / Math.log(2)) + 2;
+        assertTrue(rope.height() <= maxHeight, "height " + rope.height() + " for " + minLeaves + " leaves");
+    }
+
+    @Test
+    void outOfRangeEditsThrow() {
+        Rope rope = Rope.of("abc");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.insert(4, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.delete(2, 1));
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.texteditorapi.editor;
 
+import com.example.texteditorapi.editor.search.SearchQuery;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TextBufferTest {
@@ -552,6 +557,23 @@ class TextBufferTest {
         assertEquals(b.getSelectionEnd(), restored.getSelectionEnd());
     }
 
+    @Test
+    void snapshotAndSelection_areViewsUnaffectedByLaterEdits() {
+        TextBuffer b = new TextBuffer("hello world");
+        b.setCursor(0);
+        b.setCursorSelection(5);
+
+        TextBuffer.Snapshot s = b.snapshot();
+        CharSequence selected = b.selection();
+
+        b.insert("bye");
+
+        assertEquals("hello world", s.text.toString());
+        assertEquals("hello", selected.toString());
+        assertEquals("bye world", b.getText());
+        assertEquals("hello world", TextBuffer.fromSnapshot(s).getText());
+    }
+
     @Test
     void undoHistoryIsNotRestored() {
         TextBuffer b = new TextBuffer("abc");
@@ -562,6 +584,268 @@ class TextBufferTest {
         assertFalse(restored.undo());
     }
 
+    @Test
+    void fork_copiesStateButNotHistory_andDivergesOnEdit() {
+        TextBuffer original = new TextBuffer("hello");
+        original.insert(" world");
+        original.setCursor(2);
+        original.setCursorSelection(4);
+
+        TextBuffer copy = original.fork();
+
+        assertEquals("hello world", copy.getText());
+        assertEquals("ll", copy.getSelectedText());
+        assertFalse(copy.undo());
+
+        copy.insert("XX");
+        original.moveToLineEnd();
+
+        assertEquals("heXXo world", copy.getText());
+        assertEquals("hello world", original.getText());
+    }
+
+    @Test
+    void findNext_selectsMatchesInOrderAndWraps() {
+        TextBuffer b = new TextBuffer("one two one two");
+        b.setCursor(0);
+        SearchQuery q = SearchQuery.literal("two");
+
+        assertTrue(b.findNext(q));
+        assertEquals(4, b.getSelectionStart());
+        assertEquals("two", b.getSelectedText());
+
+        assertTrue(b.findNext(q));
+        assertEquals(12, b.getSelectionStart());
+
+        assertTrue(b.findNext(q));
+        assertEquals(4, b.getSelectionStart());
+    }
+
+    @Test
+    void findPrev_selectsEarlierMatchAndWraps() {
+        TextBuffer b = new TextBuffer("ab ab ab");
+        b.setCursor(4);
+        SearchQuery q = SearchQuery.regex("a.");
+
+        assertTrue(b.findPrevious(q));
+        assertEquals(3, b.getSelectionStart());
+
+        assertTrue(b.findPrevious(q));
+        assertEquals(0, b.getSelectionStart());
+
+        assertTrue(b.findPrevious(q));
+        assertEquals(6, b.getSelectionStart());
+    }
+
+    @Test
+    void findNext_noMatchLeavesSelection() {
+        TextBuffer b = new TextBuffer("hello");
+        b.setCursor(2);
+
+        assertFalse(b.findNext(SearchQuery.literal("xyz")));
+        assertEquals(2, b.getCursor());
+        assertFalse(b.hasSelection());
+    }
+
+    @Test
+    void replaceAll_isOneUndoStep() {
+        TextBuffer b = new TextBuffer("cat and cat and cat");
+        b.setCursor(19);
+
+        assertEquals(3, b.replaceAll(SearchQuery.literal("cat"), "dog"));
+        assertEquals("dog and dog and dog", b.getText());
+        assertEquals(19, b.getCursor());
+
+        assertTrue(b.undo());
+        assertEquals("cat and cat and cat", b.getText());
+        assertFalse(b.undo());
+
+        assertTrue(b.redo());
+        assertEquals("dog and dog and dog", b.getText());
+    }
+
+    @Test
+    void replaceAll_literalMatchesDoNotOverlap() {
+        TextBuffer b = new TextBuffer("aaaaa");
+
+        assertEquals(2, b.replaceAll(SearchQuery.literal("aa"), "b"));
+        assertEquals("bba", b.getText());
+    }
+
+    @Test
+    void replaceAll_regexExpandsGroups() {
+        TextBuffer b = new TextBuffer("x=1, y=22");
+        b.setCursor(0);
+
+        assertEquals(2, b.replaceAll(SearchQuery.regex("(\\w)=(\\d+)"), "$2=$1"));
+        assertEquals("1=x, 22=y", b.getText());
+    }
+
+    @Test
+    void replaceAll_noMatchLeavesHistoryAlone() {
+        TextBuffer b = new TextBuffer("abc");
+
+        assertEquals(0, b.replaceAll(SearchQuery.literal("z"), "y"));
+        assertFalse(b.undo());
+    }
+
+    @Test
+    void insertAtCursors_typesAtEveryCursorAsOneUndoStep() {
+        TextBuffer b = new TextBuffer("ab\ncd\nef");
+        b.setCursor(0);
+        assertTrue(b.addCursor(3));
+        assertTrue(b.addCursor(6));
+
+        b.insertAtCursors("> ");
+        assertEquals("> ab\n> cd\n> ef", b.getText());
+        assertEquals(2, b.getCursor());
+        assertEquals(List.of(caret(2), caret(7), caret(12)), b.getSelections());
+
+        assertTrue(b.undo());
+        assertEquals("ab\ncd\nef", b.getText());
+        assertEquals(List.of(caret(0), caret(3), caret(6)), b.getSelections());
+        assertFalse(b.undo());
+
+        assertTrue(b.redo());
+        assertEquals("> ab\n> cd\n> ef", b.getText());
+        assertEquals(List.of(caret(2), caret(7), caret(12)), b.getSelections());
+    }
+
+    @Test
+    void insertAtCursors_editsFromTheLastCursorToTheFirst() {
+        TextBuffer b = new TextBuffer("ab\ncd\nef");
+        b.setCursor(0);
+        b.addCursor(3);
+        b.addCursor(6);
+
+        List<Integer> positions = new ArrayList<>();
+        b.addEditListener(new TextBuffer.EditListener() {
+            @Override
+            public void inserted(int pos, CharSequence text) {
+                positions.add(pos);
+            }
+
+            @Override
+            public void deleted(int pos, CharSequence removed) {
+                positions.add(-pos);
+            }
+        });
+
+        b.insertAtCursors("#");
+        assertEquals(List.of(6, 3, 0), positions);
+    }
+
+    @Test
+    void insertAtCursors_replacesEverySelection() {
+        TextBuffer b = new TextBuffer("one two");
+        b.setCursor(0);
+        b.setCursorSelection(3);
+        b.addCursor(7);
+
+        b.insertAtCursors("X");
+        assertEquals("X twoX", b.getText());
+        assertEquals(List.of(caret(1), caret(6)), b.getSelections());
+
+        assertTrue(b.undo());
+        assertEquals("one two", b.getText());
+        assertEquals(0, b.getSelectionStart());
+        assertEquals(3, b.getSelectionEnd());
+    }
+
+    @Test
+    void deleteLeftAtCursors_deletesBeforeEveryCursor() {
+        TextBuffer b = new TextBuffer("a1\nb2\nc3");
+        b.setCursor(2);
+        b.addCursor(5);
+        b.addCursor(8);
+
+        b.deleteLeftAtCursors();
+        assertEquals("a\nb\nc", b.getText());
+        assertEquals(List.of(caret(1), caret(3), caret(5)), b.getSelections());
+
+        assertTrue(b.undo());
+        assertEquals("a1\nb2\nc3", b.getText());
+        assertEquals(List.of(caret(2), caret(5), caret(8)), b.getSelections());
+    }
+
+    @Test
+    void deleteRightAtCursors_mergesCursorsThatMeet() {
+        TextBuffer b = new TextBuffer("abcd");
+        b.setCursor(0);
+        b.addCursor(1);
+
+        b.deleteRightAtCursors();
+        assertEquals("cd", b.getText());
+        assertEquals(List.of(caret(0)), b.getSelections());
+    }
+
+    @Test
+    void deleteLeftAtCursors_atStartIsNoOp() {
+        TextBuffer b = new TextBuffer("abc");
+        b.setCursor(0);
+
+        b.deleteLeftAtCursors();
+        assertEquals("abc", b.getText());
+        assertFalse(b.undo());
+    }
+
+    @Test
+    void addCursor_rejectsCoveredPositions() {
+        TextBuffer b = new TextBuffer("abcdef");
+        b.setCursor(1);
+        b.setCursorSelection(3);
+
+        assertFalse(b.addCursor(2));
+        assertTrue(b.addCursor(5));
+        assertFalse(b.addCursor(5));
+        assertThrows(IllegalArgumentException.class, () -> b.addCursor(7));
+        assertEquals(2, b.getSelections().size());
+    }
+
+    @Test
+    void setCursor_dropsOtherCursors() {
+        TextBuffer b = new TextBuffer("abc");
+        b.setCursor(0);
+        b.addCursor(2);
+
+        b.setCursor(1);
+        assertEquals(List.of(caret(1)), b.getSelections());
+    }
+
+    @Test
+    void singleCursorEdit_shiftsOtherCursors() {
+        TextBuffer b = new TextBuffer("abc");
+        b.setCursor(0);
+        b.addCursor(3);
+
+        b.insert("xy");
+        assertEquals(List.of(caret(2), caret(5)), b.getSelections());
+
+        b.insertAtCursors("!");
+        assertEquals("xy!abc!", b.getText());
+    }
+
+    @Test
+    void insertAtCursors_columnEditAcrossManyLines() {
+        int lines = 5_000;
+        TextBuffer b = new TextBuffer("line\n".repeat(lines));
+        b.setCursor(0);
+        for (int i = 1; i < lines; i++) {
+            b.addCursor(i * 5);
+        }
+
+        b.insertAtCursors("// ");
+        assertEquals("// line\n".repeat(lines), b.getText());
+        assertEquals(lines, b.getSelections().size());
+
+        assertTrue(b.undo());
+        assertEquals("line\n".repeat(lines), b.getText());
+    }
+
+    private static TextBuffer.Selection caret(int pos) {
+        return new TextBuffer.Selection(pos, pos);
+    }
+
     @Test
     void invalidSnapshotThrows() {
         TextBuffer.Snapshot s =
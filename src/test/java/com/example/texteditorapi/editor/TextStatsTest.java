@@ -0,0 +1,67 @@
+package com.example.texteditorapi.editor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextStatsTest {
+
+    @Test
+    void of_countsCharsWordsAndLines() {
+        TextStats stats = TextStats.of("  hello world\n\nbye ");
+
+        assertEquals(19, stats.getChars());
+        assertEquals(3, stats.getWords());
+        assertEquals(3, stats.getLines());
+    }
+
+    @Test
+    void emptyText_hasOneLineAndNoWords() {
+        TextStats stats = TextStats.of("");
+
+        assertEquals(0, stats.getChars());
+        assertEquals(0, stats.getWords());
+        assertEquals(1, stats.getLines());
+    }
+
+    @Test
+    void maintainedCounts_matchRecountThroughEditsUndoAndRedo() {
+        Random random = new Random(17);
+        String alphabet = "ab \n\t";
+        TextBuffer buffer = new TextBuffer("one two\nthree");
+        TextStats initial = TextStats.of(buffer.getText());
+        TextStats stats = new TextStats(initial.getChars(), initial.getWords(), initial.getLines(), buffer::contents);
+        buffer.addEditListener(stats);
+
+        for (int step = 0; step < 1000; step++) {
+            switch (random.nextInt(6)) {
+                case 0, 1 -> {
+                    buffer.setCursor(random.nextInt(buffer.length() + 1));
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                    buffer.insert(sb.toString());
+                }
+                case 2 -> {
+                    buffer.setCursor(random.nextInt(buffer.length() + 1));
+                    buffer.deleteLeft();
+                }
+                case 3 -> {
+                    buffer.setCursor(random.nextInt(buffer.length() + 1));
+                    buffer.setCursorSelection(random.nextInt(buffer.length() + 1));
+                    buffer.deleteRight();
+                }
+                case 4 -> buffer.undo();
+                default -> buffer.redo();
+            }
+
+            TextStats expected = TextStats.of(buffer.getText());
+            assertEquals(expected.getChars(), stats.getChars(), "chars at step " + step);
+            assertEquals(expected.getWords(), stats.getWords(), "words at step " + step);
+            assertEquals(expected.getLines(), stats.getLines(), "lines at step " + step);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.texteditorapi.editor.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCommandCodecTest {
+
+    private static final List<CommandRequest> COMMANDS = List.of(
+            new CommandRequest(CommandType.INSERT, "héllo 👋", null, null, null, null),
+            new CommandRequest(CommandType.MOVE_LEFT, null, null, null, null, null),
+            new CommandRequest(CommandType.SET_CURSOR, null, 300_000, null, null, null),
+            new CommandRequest(CommandType.SET_CURSOR_SELECTION, null, 0, null, null, null),
+            new CommandRequest(CommandType.FIND_NEXT, null, null, "l+", null, true),
+            new CommandRequest(CommandType.REPLACE_ALL, null, null, "llo", "LLO", false),
+            new CommandRequest(CommandType.UNDO, null, null, null, null, null),
+            new CommandRequest(CommandType.ADD_CURSOR, null, 42, null, null, null),
+            new CommandRequest(CommandType.INSERT_AT_CURSORS, "// ", null, null, null, null),
+            new CommandRequest(CommandType.DELETE_LEFT_AT_CURSORS, null, null, null, null, null)
+    );
+
+    @Test
+    void roundTrip_decodesEveryCommand() throws IOException {
+        List<CommandRequest> decoded = BinaryCommandCodec.readAll(new ByteArrayInputStream(encode(COMMANDS)));
+
+        assertEquals(COMMANDS, decoded);
+    }
+
+    @Test
+    void movementCommand_isOneByte() {
+        assertEquals(1, encode(List.of(new CommandRequest(CommandType.MOVE_UP, null, null, null, null, null))).length);
+    }
+
+    @Test
+    void decode_returnsNullUntilCommandIsComplete() {
+        byte[] bytes = encode(List.of(COMMANDS.get(0)));
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+
+        for (int i = 0; i < bytes.length - 1; i++) {
+            buffer.put(bytes[i]);
+            buffer.flip();
+            assertNull(BinaryCommandCodec.decode(buffer));
+            assertEquals(0, buffer.position());
+            buffer.position(buffer.limit());
+            buffer.limit(buffer.capacity());
+        }
+
+        buffer.put(bytes[bytes.length - 1]);
+        buffer.flip();
+        assertEquals(COMMANDS.get(0), BinaryCommandCodec.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void readAll_handlesCommandsSplitAcrossReads() throws IOException {
+        byte[] bytes = encode(COMMANDS);
+
+        // Deliver the stream one byte per read, as a slow client would
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        assertEquals(COMMANDS, BinaryCommandCodec.readAll(trickle));
+    }
+
+    @Test
+    void readAll_growsBufferForLargeText() throws IOException {
+        CommandRequest big = new CommandRequest(CommandType.INSERT, "x".repeat(100_000), null, null, null, null);
+
+        assertEquals(List.of(big), BinaryCommandCodec.readAll(new ByteArrayInputStream(encode(List.of(big)))));
+    }
+
+    @Test
+    void truncatedStream_isRejected() {
+        byte[] bytes = encode(List.of(COMMANDS.get(0)));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCommandCodec.readAll(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    void unknownOpcode_isRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCommandCodec.readAll(new ByteArrayInputStream(new byte[] {(byte) 0xFF})));
+    }
+
+    @Test
+    void malformedUtf8_isRejected() {
+        byte[] bytes = {(byte) CommandType.INSERT.ordinal(), 2, (byte) 0xC3, (byte) 0x28};
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCommandCodec.readAll(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void varintOverflowingAnInt_isRejected() {
+        // 2^35 - 1 would wrap around to a positive int if its high bits were dropped
+        byte[] bytes = {(byte) CommandType.SET_CURSOR.ordinal(), (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x77};
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCommandCodec.readAll(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void tooManyCommands_areRejected() throws IOException {
+        byte[] bytes = new byte[BinaryCommandCodec.MAX_COMMANDS + 1];
+        Arrays.fill(bytes, (byte) CommandType.MOVE_LEFT.ordinal());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCommandCodec.readAll(new ByteArrayInputStream(bytes)));
+        assertEquals(BinaryCommandCodec.MAX_COMMANDS,
+                BinaryCommandCodec.readAll(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))).size());
+    }
+
+    private static byte[] encode(List<CommandRequest> commands) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (CommandRequest command : commands) {
+            BinaryCommandCodec.encode(command, out);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.texteditorapi.editor.api;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.commands.Command;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the allocation budget of command dispatch. Counts the bytes the current thread allocates
+ * while the same pre-decoded commands are applied many times, after a warm-up so the JIT has
+ * compiled the path. The counts depend on what the JIT manages to optimise away, so these tests are
+ * left out of {@code ./gradlew test} and run by {@code allocationTest}, in a JVM of their own, as
+ * part of {@code ./gradlew check}.
+ */
+@Tag("allocation")
+class CommandDispatchAllocationTest {
+
+    private static final int WARM_UP = 50_000;
+    private static final int RUNS = 100_000;
+
+    @Test
+    void statelessCommands_areSharedAndAllocateNothing() {
+        CommandRequest left = request(CommandType.MOVE_LEFT, null, null);
+        assertSame(CommandFactory.from(left), CommandFactory.from(request(CommandType.MOVE_LEFT, null, null)));
+
+        TextBuffer buffer = new TextBuffer("some text\non a few\nlines");
+        Command[] commands = {
+                CommandFactory.from(left),
+                CommandFactory.from(request(CommandType.MOVE_UP, null, null)),
+                CommandFactory.from(request(CommandType.MOVE_RIGHT, null, null)),
+                CommandFactory.from(request(CommandType.MOVE_DOWN, null, null)),
+        };
+
+        assertTrue(bytesPerApply(buffer, commands) < 8);
+    }
+
+    @Test
+    void parameterizedCommands_dispatchWithoutAllocating() {
+        TextBuffer buffer = new TextBuffer("find me, find me again");
+        Command[] commands = {
+                CommandFactory.from(request(CommandType.SET_CURSOR, null, 3)),
+                CommandFactory.from(request(CommandType.SET_CURSOR_SELECTION, null, 9)),
+                CommandFactory.from(new CommandRequest(CommandType.FIND_NEXT, null, null, "me", null, false)),
+        };
+
+        assertTrue(bytesPerApply(buffer, commands) < 8);
+    }
+
+    @Test
+    void insertAndUndo_stayWithinEditBudget() {
+        TextBuffer buffer = new TextBuffer("0123456789\n".repeat(10_000));
+        buffer.setCursor(50_000);
+        Command[] commands = {
+                CommandFactory.from(request(CommandType.INSERT, "x", null)),
+                CommandFactory.from(request(CommandType.UNDO, null, null)),
+        };
+
+        // The rope copies at most one leaf and rebuilds one root-to-leaf path per edit
+        assertTrue(bytesPerApply(buffer, commands) < 4 * 1024);
+    }
+
+    private static long bytesPerApply(TextBuffer buffer, Command[] commands) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            commands[i % commands.length].apply(buffer);
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < RUNS; i++) {
+            commands[i % commands.length].apply(buffer);
+        }
+        long after = threads.getThreadAllocatedBytes(thread);
+
+        return (after - before) / RUNS;
+    }
+
+    private static CommandRequest request(CommandType type, String text, Integer pos) {
+        return new CommandRequest(type, text, pos, null, null, null);
+    }
+}
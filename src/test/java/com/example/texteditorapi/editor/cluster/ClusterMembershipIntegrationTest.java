@@ -0,0 +1,100 @@
+package com.example.texteditorapi.editor.cluster;
+
+import com.example.texteditorapi.TestApplications;
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import com.example.texteditorapi.editor.service.DocumentBufferCache;
+import com.example.texteditorapi.editor.service.DocumentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Runs two nodes as separate application contexts against one database. */
+@Testcontainers
+class ClusterMembershipIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16");
+
+    @Test
+    void nodesAgreeOnOwners_andRebalanceWhenOneLeaves() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        try (ConfigurableApplicationContext a = start("node-a")) {
+            ClusterMembership nodeA = a.getBean(ClusterMembership.class);
+
+            try (ConfigurableApplicationContext b = start("node-b")) {
+                ClusterMembership nodeB = b.getBean(ClusterMembership.class);
+                nodeA.heartbeat();
+
+                assertEquals(2, nodeA.members().size());
+                assertEquals(2, nodeB.members().size());
+
+                int ownedByA = 0;
+                for (UUID id : ids) {
+                    assertEquals(nodeA.owner(id), nodeB.owner(id));
+                    assertNotEquals(nodeA.isLocal(id), nodeB.isLocal(id));
+                    if (nodeA.isLocal(id)) {
+                        ownedByA++;
+                    }
+                }
+                assertTrue(ownedByA > 0 && ownedByA < ids.size());
+            }
+
+            // node-b gave up its lease on shutdown, so node-a takes over its documents
+            nodeA.heartbeat();
+
+            assertEquals(1, nodeA.members().size());
+            for (UUID id : ids) {
+                assertTrue(nodeA.isLocal(id));
+            }
+        }
+    }
+
+    @Test
+    void onlyTheOwnerCachesBuffers() {
+        try (ConfigurableApplicationContext a = start("node-c");
+             ConfigurableApplicationContext b = start("node-d")) {
+            ClusterMembership nodeA = a.getBean(ClusterMembership.class);
+            nodeA.heartbeat();
+            DocumentService service = a.getBean(DocumentService.class);
+            DocumentBufferCache buffers = a.getBean(DocumentBufferCache.class);
+
+            UUID remote;
+            do {
+                remote = service.create("remote");
+            } while (nodeA.isLocal(remote));
+
+            UUID local;
+            do {
+                local = service.create("local");
+            } while (!nodeA.isLocal(local));
+
+            service.apply(remote, new InsertCommand("!"));
+            assertEquals(0, buffers.size());
+
+            service.apply(local, new InsertCommand("!"));
+            assertEquals(1, buffers.size());
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String nodeId) {
+        return TestApplications.start(postgres,
+                "texteditor.cluster.enabled=true",
+                "texteditor.cluster.node-id=" + nodeId,
+                "texteditor.cluster.url=http://" + nodeId,
+                // Heartbeats are driven by the test
+                "texteditor.cluster.heartbeat-ms=3600000");
+    }
+}
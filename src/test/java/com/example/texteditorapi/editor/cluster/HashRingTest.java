@@ -0,0 +1,97 @@
+package com.example.texteditorapi.editor.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    private static final int DOCUMENTS = 20_000;
+
+    @Test
+    void singleNode_ownsEverything() {
+        HashRing ring = new HashRing(List.of("a"), 16);
+
+        for (UUID id : ids()) {
+            assertEquals("a", ring.owner(id));
+        }
+    }
+
+    @Test
+    void emptyRing_hasNoOwner() {
+        HashRing ring = new HashRing(List.of(), 16);
+
+        assertTrue(ring.isEmpty());
+        assertNull(ring.owner(UUID.randomUUID()));
+    }
+
+    @Test
+    void owners_areSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("a", "b", "c", "d"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (UUID id : ids()) {
+            counts.merge(ring.owner(id), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > DOCUMENTS * 0.15 && count < DOCUMENTS * 0.35, "count " + count);
+        }
+    }
+
+    @Test
+    void join_onlyMovesDocumentsToTheNewNode() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (UUID id : ids()) {
+            String oldOwner = before.owner(id);
+            String newOwner = after.owner(id);
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("d", newOwner);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > DOCUMENTS * 0.15 && moved < DOCUMENTS * 0.35, "moved " + moved);
+    }
+
+    @Test
+    void leave_onlyMovesTheLeavingNodesDocuments() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "c"), 128);
+
+        for (UUID id : ids()) {
+            if (!before.owner(id).equals("b")) {
+                assertEquals(before.owner(id), after.owner(id));
+            }
+        }
+    }
+
+    @Test
+    void owner_doesNotDependOnNodeOrder() {
+        HashRing one = new HashRing(List.of("a", "b", "c"), 32);
+        HashRing other = new HashRing(List.of("c", "a", "b"), 32);
+
+        for (UUID id : ids()) {
+            assertEquals(one.owner(id), other.owner(id));
+        }
+    }
+
+    private static List<UUID> ids() {
+        Random random = new Random(42);
+        UUID[] ids = new UUID[DOCUMENTS];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        return List.of(ids);
+    }
+}
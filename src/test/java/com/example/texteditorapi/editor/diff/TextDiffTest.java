@@ -0,0 +1,128 @@
+package com.example.texteditorapi.editor.diff;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextDiffTest {
+
+    @Test
+    void identicalTexts_produceNoHunks() {
+        assertTrue(diff("same\ntext\n", "same\ntext\n", TextDiff.Mode.LINE).isEmpty());
+        assertTrue(diff("", "", TextDiff.Mode.CHAR).isEmpty());
+    }
+
+    @Test
+    void lineMode_reportsReplacedLines() {
+        List<TextDiff.Hunk> hunks = diff("a\nb\nc\nd\n", "a\nB\nc\nd\ne\n", TextDiff.Mode.LINE);
+
+        assertEquals(2, hunks.size());
+        assertEquals(new TextDiff.Hunk(1, 2, 1, 2, "b\n", "B\n"), hunks.get(0));
+        assertEquals(new TextDiff.Hunk(4, 4, 4, 5, "", "e\n"), hunks.get(1));
+    }
+
+    @Test
+    void charMode_mergesAdjacentDeleteAndInsert() {
+        List<TextDiff.Hunk> hunks = diff("hello world", "hello there world", TextDiff.Mode.CHAR);
+
+        assertEquals(1, hunks.size());
+        assertEquals("there ", hunks.get(0).added());
+        assertEquals("", hunks.get(0).removed());
+    }
+
+    @Test
+    void randomTexts_hunksRebuildTargetWithMinimalEdits() {
+        Random random = new Random(11);
+
+        for (int round = 0; round < 300; round++) {
+            String a = randomText(random, random.nextInt(40));
+            String b = mutate(random, a);
+
+            List<TextDiff.Hunk> hunks = diff(a, b, TextDiff.Mode.CHAR);
+
+            assertEquals(b, applyHunks(a, hunks));
+            int cost = hunks.stream().mapToInt(h -> h.removed().length() + h.added().length()).sum();
+            assertEquals(editDistance(a, b), cost, a + " -> " + b);
+        }
+    }
+
+    @Test
+    void largeTextsWithFewChanges_stayFast() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        String a = sb.toString();
+        String b = a.replace("line 1000\n", "changed\n").replace("line 150000\n", "");
+
+        List<TextDiff.Hunk> hunks = diff(a, b, TextDiff.Mode.LINE);
+
+        assertEquals(2, hunks.size());
+        assertEquals(b, applyLineHunks(a, hunks));
+    }
+
+    private static List<TextDiff.Hunk> diff(String a, String b, TextDiff.Mode mode) {
+        List<TextDiff.Hunk> hunks = new ArrayList<>();
+        TextDiff.diff(a, b, mode, hunks::add);
+        return hunks;
+    }
+
+    private static String applyHunks(String a, List<TextDiff.Hunk> hunks) {
+        StringBuilder sb = new StringBuilder();
+        int pos = 0;
+        for (TextDiff.Hunk h : hunks) {
+            sb.append(a, pos, h.oldStart()).append(h.added());
+            pos = h.oldEnd();
+        }
+        return sb.append(a.substring(pos)).toString();
+    }
+
+    private static String applyLineHunks(String a, List<TextDiff.Hunk> hunks) {
+        List<String> lines = TextDiff.lines(a);
+        StringBuilder sb = new StringBuilder();
+        int pos = 0;
+        for (TextDiff.Hunk h : hunks) {
+            sb.append(String.join("", lines.subList(pos, h.oldStart()))).append(h.added());
+            pos = h.oldEnd();
+        }
+        return sb.append(String.join("", lines.subList(pos, lines.size()))).toString();
+    }
+
+    // Insert/delete-only edit distance, which is what an optimal diff minimises
+    private static int editDistance(String a, String b) {
+        int[][] lcs = new int[a.length() + 1][b.length() + 1];
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                lcs[i][j] = a.charAt(i - 1) == b.charAt(j - 1)
+                        ? lcs[i - 1][j - 1] + 1
+                        : Math.max(lcs[i - 1][j], lcs[i][j - 1]);
+            }
+        }
+        return a.length() + b.length() - 2 * lcs[a.length()][b.length()];
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    private static String mutate(Random random, String text) {
+        StringBuilder sb = new StringBuilder(text);
+        for (int i = random.nextInt(6); i > 0; i--) {
+            int pos = random.nextInt(sb.length() + 1);
+            if (random.nextBoolean() && pos < sb.length()) {
+                sb.delete(pos, Math.min(sb.length(), pos + 1 + random.nextInt(4)));
+            } else {
+                sb.insert(pos, randomText(random, 1 + random.nextInt(4)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.texteditorapi.editor.persistence;
+
+import com.example.texteditorapi.TestApplications;
+import com.example.texteditorapi.editor.service.DocumentService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uses a second, unreplicated database as the replica: a document written to the primary is
+ * missing there, which shows which database a read went to.
+ */
+@Testcontainers
+class ReadReplicaIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16");
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void readOnlyTransactions_goToTheReplica() {
+        try (ConfigurableApplicationContext context = start(0)) {
+            DocumentService service = context.getBean(DocumentService.class);
+
+            UUID id = service.create("written to the primary");
+
+            assertThrows(NoSuchElementException.class, () -> service.get(id));
+        }
+    }
+
+    @Test
+    void readsWithinTheWindow_goToThePrimary() {
+        try (ConfigurableApplicationContext context = start(60_000)) {
+            DocumentService service = context.getBean(DocumentService.class);
+
+            UUID id = service.create("written to the primary");
+
+            assertEquals("written to the primary", service.getText(id, null));
+            // Documents nobody wrote to recently are still read from the replica
+            assertThrows(NoSuchElementException.class, () -> service.get(UUID.randomUUID()));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(long readYourWritesMs) {
+        return TestApplications.start(primary,
+                "texteditor.datasource.replica-urls=" + replica.getJdbcUrl(),
+                "texteditor.datasource.replica-username=" + replica.getUsername(),
+                "texteditor.datasource.replica-password=" + replica.getPassword(),
+                "texteditor.datasource.read-your-writes-ms=" + readYourWritesMs);
+    }
+}
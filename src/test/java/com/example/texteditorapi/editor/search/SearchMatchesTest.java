@@ -0,0 +1,99 @@
+package com.example.texteditorapi.editor.search;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchMatchesTest {
+
+    @Test
+    void literal_findsOverlappingOccurrences() {
+        assertEquals(List.of(0, 1, 2, 5), starts(SearchQuery.literal("aa"), "aaaa_aa"));
+    }
+
+    @Test
+    void literal_agreesWithIndexOf() {
+        Random random = new Random(3);
+
+        for (int round = 0; round < 500; round++) {
+            String text = randomText(random, random.nextInt(60));
+            String query = randomText(random, 1 + random.nextInt(4));
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = text.indexOf(query); i >= 0; i = text.indexOf(query, i + 1)) {
+                expected.add(i);
+            }
+            assertEquals(expected, starts(SearchQuery.literal(query), text), query + " in " + text);
+        }
+    }
+
+    @Test
+    void regex_skipsEmptyMatches() {
+        assertEquals(List.of(1, 4), starts(SearchQuery.regex("b+"), "abbabx"));
+        assertEquals(List.of(1), starts(SearchQuery.regex("b*"), "abb"));
+    }
+
+    @Test
+    void invalidRegex_isIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.regex("(unclosed"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.literal(""));
+    }
+
+    @Test
+    void cachedMatches_followEditsAndUndo() {
+        Random random = new Random(5);
+
+        for (SearchQuery query : List.of(SearchQuery.literal("ab"), SearchQuery.literal("aba"), SearchQuery.regex("b+a"))) {
+            TextBuffer buffer = new TextBuffer(randomText(random, 30));
+            SearchMatches matches = buffer.matches(query);
+
+            for (int step = 0; step < 400; step++) {
+                switch (random.nextInt(5)) {
+                    case 0, 1 -> {
+                        buffer.setCursor(random.nextInt(buffer.length() + 1));
+                        buffer.insert(randomText(random, 1 + random.nextInt(3)));
+                    }
+                    case 2 -> {
+                        buffer.setCursor(random.nextInt(buffer.length() + 1));
+                        buffer.deleteLeft();
+                    }
+                    case 3 -> {
+                        buffer.setCursor(random.nextInt(buffer.length() + 1));
+                        buffer.setCursorSelection(random.nextInt(buffer.length() + 1));
+                        buffer.deleteRight();
+                    }
+                    default -> buffer.undo();
+                }
+
+                assertEquals(starts(query, buffer.getText()), starts(matches), "step " + step + ": " + buffer.getText());
+            }
+        }
+    }
+
+    private static List<Integer> starts(SearchQuery query, String text) {
+        List<Integer> result = new ArrayList<>();
+        query.find(text, 0, text.length(), (start, end) -> result.add(start));
+        return result;
+    }
+
+    private static List<Integer> starts(SearchMatches matches) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) {
+            result.add(matches.start(i));
+        }
+        return result;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.persistence.DocumentEditEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchivedDocumentTest {
+
+    @Test
+    void encode_roundTrips() {
+        Instant created = Instant.parse("2024-01-02T03:04:05.123456Z");
+        ArchivedDocument doc = new ArchivedDocument(
+                List.of("hello ", "wörld 😀"),
+                List.of(new ArchivedDocument.Chunk(1L << 20, 0), new ArchivedDocument.Chunk(2L << 20, 1)),
+                List.of(
+                        new ArchivedDocument.Revision(0, created, true,
+                                List.of(new ArchivedDocument.Chunk(1L << 20, 0)), List.of()),
+                        new ArchivedDocument.Revision(1, created.plusSeconds(1), false, List.of(),
+                                List.of(new ArchivedDocument.Edit(DocumentEditEntity.Type.INSERT, 6, "wörld 😀")))
+                )
+        );
+
+        ArchivedDocument decoded = ArchivedDocument.decode(doc.encode());
+
+        assertEquals(doc, decoded);
+        assertEquals("hello wörld 😀", decoded.text());
+    }
+
+    @Test
+    void encode_compressesRepetitiveText() {
+        String text = "the quick brown fox ".repeat(1000);
+        ArchivedDocument doc = new ArchivedDocument(List.of(text), List.of(new ArchivedDocument.Chunk(1, 0)), List.of());
+
+        assertTrue(doc.encode().length < text.length() / 10);
+    }
+
+    @Test
+    void decode_rejectsGarbage() {
+        assertThrows(RuntimeException.class, () -> ArchivedDocument.decode(new byte[] {1, 2, 3}));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.texteditorapi.editor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandAdmissionTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void commandsForOneDocument_runOneAtATime() throws Exception {
+        CommandAdmission admission = new CommandAdmission(8, 16, 5_000);
+        UUID id = UUID.randomUUID();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int n = i;
+            results.add(pool.submit(() -> admission.run(id, () -> {
+                if (inside.incrementAndGet() > 1) overlaps.incrementAndGet();
+                sleep(5);
+                inside.decrementAndGet();
+                return n;
+            })));
+        }
+        for (Future<Integer> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, admission.queuedDocuments());
+    }
+
+    @Test
+    void fullDocumentQueue_isRejectedWithRetryAfter() throws Exception {
+        CommandAdmission admission = new CommandAdmission(8, 2, 5_000);
+        UUID id = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = pool.submit(() -> admission.run(id, () -> block(started, release)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<?> second = pool.submit(() -> admission.run(id, () -> "queued"));
+        waitFor(() -> admission.maxDepth() == 2);
+
+        CommandRejectedException rejected = assertThrows(CommandRejectedException.class,
+                () -> admission.run(id, () -> "rejected"));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        assertEquals(1, admission.rejected());
+
+        // Other documents are not affected by the full queue
+        assertEquals("other", admission.run(UUID.randomUUID(), () -> "other"));
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals("queued", second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, admission.queuedDocuments());
+    }
+
+    @Test
+    void saturatedNode_rejectsAfterTheQueueTimeout() throws Exception {
+        CommandAdmission admission = new CommandAdmission(1, 16, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> busy = pool.submit(() -> admission.run(UUID.randomUUID(), () -> block(started, release)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, admission.runningCount());
+
+        CommandRejectedException rejected = assertThrows(CommandRejectedException.class,
+                () -> admission.run(UUID.randomUUID(), () -> "rejected"));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+
+        release.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+        assertEquals("accepted", admission.run(UUID.randomUUID(), () -> "accepted"));
+        assertEquals(0, admission.runningCount());
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void failingCommand_releasesItsSlot() {
+        CommandAdmission admission = new CommandAdmission(1, 1, 50);
+        UUID id = UUID.randomUUID();
+
+        assertThrows(IllegalStateException.class, () -> admission.run(id, () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals("ok", admission.run(id, () -> "ok"));
+        assertEquals(0, admission.queuedDocuments());
+        assertEquals(0, admission.runningCount());
+    }
+
+    private static String block(CountDownLatch started, CountDownLatch release) {
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
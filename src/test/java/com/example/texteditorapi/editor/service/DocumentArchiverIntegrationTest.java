@@ -0,0 +1,80 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.commands.DeleteLeftCommand;
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "texteditor.archive.enabled=true",
+        "texteditor.archive.after-days=30"
+})
+@Testcontainers
+class DocumentArchiverIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private DocumentService service;
+
+    @Autowired
+    private DocumentArchiver archiver;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void archivedDocument_isRestoredWithItsHistoryWhenRead() {
+        UUID cold = service.create("hello");
+        service.apply(cold, new InsertCommand(" world"));
+        service.apply(cold, new DeleteLeftCommand());
+        UUID hot = service.create("recent");
+        long version = service.currentVersion(cold);
+
+        jdbc.update("UPDATE documents SET updated_at = now() - interval '100 days' WHERE id = ?", cold);
+        archiver.archiveCold();
+
+        assertEquals(0, count(jdbc, "SELECT count(*) FROM document_chunks WHERE document_id = ?", cold));
+        assertEquals(0, count(jdbc, "SELECT count(*) FROM document_revisions WHERE document_id = ?", cold));
+        assertEquals(1, count(jdbc, "SELECT count(*) FROM document_archives WHERE document_id = ?", cold));
+        assertEquals(0, count(jdbc, "SELECT count(*) FROM document_archives WHERE document_id = ?", hot));
+
+        assertEquals("hello worl", service.getText(cold, null));
+        assertEquals(version, service.currentVersion(cold));
+        assertEquals(0, count(jdbc, "SELECT count(*) FROM document_archives WHERE document_id = ?", cold));
+        assertEquals(3, service.getVersions(cold).size());
+        assertEquals("hello world", service.getVersion(cold, 1).text());
+
+        service.apply(cold, new InsertCommand("d!"));
+        assertEquals("hello world!", service.getText(cold, null));
+    }
+
+    @Test
+    void command_restoresArchivedDocument() {
+        UUID id = service.create("abc");
+        jdbc.update("UPDATE documents SET updated_at = now() - interval '100 days' WHERE id = ?", id);
+        archiver.archiveCold();
+        assertEquals(1, count(jdbc, "SELECT count(*) FROM document_archives WHERE document_id = ?", id));
+
+        service.apply(id, new InsertCommand("d"));
+
+        assertEquals("abcd", service.getText(id, null));
+        assertEquals(2, service.getVersions(id).size());
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql, UUID id) {
+        return ((Number) jdbc.queryForList(sql, id).get(0).get("count")).longValue();
+    }
+}
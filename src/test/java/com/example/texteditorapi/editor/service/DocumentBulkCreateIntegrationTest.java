@@ -0,0 +1,69 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import com.example.texteditorapi.editor.store.DocumentStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Testcontainers
+class DocumentBulkCreateIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private DocumentService service;
+
+    @Test
+    void createAll_createsDocumentsLikeCreateDoes() {
+        String large = "word ".repeat(5_000);
+        List<DocumentService.NewDocument> documents = new ArrayList<>();
+        documents.add(new DocumentService.NewDocument("First", "hello"));
+        documents.add(new DocumentService.NewDocument(null, null));
+        documents.add(new DocumentService.NewDocument("Large", large));
+
+        List<UUID> ids = service.createAll(documents);
+        assertEquals(3, ids.size());
+
+        DocumentStore.StoredDocument first = service.get(ids.get(0));
+        assertEquals("First", first.title());
+        assertEquals("hello", first.text().toString());
+        assertEquals(5, first.selection().cursor());
+        assertEquals(1, first.stats().words());
+
+        DocumentStore.StoredDocument empty = service.get(ids.get(1));
+        assertEquals("Untitled document", empty.title());
+        assertEquals("", empty.text().toString());
+
+        assertEquals(large, service.getText(ids.get(2), null));
+        assertEquals(5_000, service.get(ids.get(2)).stats().words());
+
+        // Each document starts its history with a snapshot, so it can be edited and rewound
+        service.apply(ids.get(0), new InsertCommand("!"));
+        assertEquals("hello", service.getText(ids.get(0), 0L));
+        assertEquals(large, service.getText(ids.get(2), 0L));
+
+        assertTrue(service.search("hello").stream().anyMatch(d -> d.id().equals(ids.get(0))));
+    }
+
+    @Test
+    void createAll_withNoDocuments_createsNothing() {
+        int before = service.getAll().size();
+
+        assertTrue(service.createAll(List.of()).isEmpty());
+        assertEquals(before, service.getAll().size());
+    }
+}
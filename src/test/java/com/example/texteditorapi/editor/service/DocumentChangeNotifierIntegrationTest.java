@@ -0,0 +1,65 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.TestApplications;
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import com.example.texteditorapi.editor.persistence.DocumentEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Runs two nodes as separate application contexts against one database. */
+@Testcontainers
+class DocumentChangeNotifierIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16");
+
+    @Test
+    void changeOnOneNode_evictsCachesOnTheOther() throws InterruptedException {
+        try (ConfigurableApplicationContext a = start("node-a");
+             ConfigurableApplicationContext b = start("node-b")) {
+            DocumentService serviceA = a.getBean(DocumentService.class);
+            DocumentService serviceB = b.getBean(DocumentService.class);
+            DocumentResponseCache responsesA = a.getBean(DocumentResponseCache.class);
+
+            UUID id = serviceA.create("hello");
+            long version = serviceA.currentVersion(id);
+            responsesA.put(id, version, new byte[] {'{', '}'});
+
+            // Search on node a builds its index, so it must also learn about the edit made on node b
+            assertEquals(List.of(id), serviceA.search("hello").stream().map(DocumentEntity::getId).toList());
+
+            serviceB.apply(id, new InsertCommand(" world"));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (responsesA.get(id, version) != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertNull(responsesA.get(id, version));
+            assertEquals(1, serviceA.search("world").size());
+
+            serviceB.delete(id);
+            deadline = System.currentTimeMillis() + 10_000;
+            while (!serviceA.search("hello").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(serviceA.search("hello").isEmpty());
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String nodeId) {
+        return TestApplications.start(postgres,
+                "texteditor.cluster.enabled=true",
+                "texteditor.cluster.node-id=" + nodeId,
+                "texteditor.cluster.url=http://" + nodeId,
+                "texteditor.cluster.notify-poll-ms=50");
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.cluster.ClusterMembership;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentChangeNotifierTest {
+
+    private final ClusterMembership membership =
+            new ClusterMembership(null, null, null, false, "node a", "http://a", 15000, 16);
+    private final DocumentBufferCache buffers = new DocumentBufferCache(16);
+    private final DocumentResponseCache responses = new DocumentResponseCache(1 << 20, 1024);
+    private final DocumentChangeNotifier notifier = new DocumentChangeNotifier(
+            null, null, membership, buffers, responses, new DocumentSearchIndex(null, null, null), false, 500);
+
+    private final UUID id = UUID.randomUUID();
+
+    @Test
+    void payload_roundTrips() {
+        DocumentChangeNotifier.Change change = new DocumentChangeNotifier.Change(id, 42, "node with spaces");
+
+        assertEquals(change, DocumentChangeNotifier.Change.parse(change.payload()));
+    }
+
+    @Test
+    void parse_rejectsMalformedPayload() {
+        assertThrows(IllegalArgumentException.class, () -> DocumentChangeNotifier.Change.parse("nonsense"));
+        assertThrows(IllegalArgumentException.class, () -> DocumentChangeNotifier.Change.parse("not-a-uuid 1 node"));
+    }
+
+    @Test
+    void changeFromAnotherNode_evictsCachedState() {
+        cache(3);
+
+        notifier.received(new DocumentChangeNotifier.Change(id, 4, "node b"));
+
+        assertEquals(0, buffers.size());
+        assertNull(responses.get(id, 3));
+    }
+
+    @Test
+    void ownChange_keepsCachedState() {
+        cache(4);
+
+        notifier.received(new DocumentChangeNotifier.Change(id, 4, "node a"));
+
+        assertEquals(1, buffers.size());
+        assertNotNull(responses.get(id, 4));
+    }
+
+    private void cache(long version) {
+        buffers.put(id, version, new TextBuffer("text"));
+        responses.put(id, version, new byte[] {'{', '}'});
+    }
+}
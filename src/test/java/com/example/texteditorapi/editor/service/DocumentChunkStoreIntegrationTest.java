@@ -0,0 +1,74 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import com.example.texteditorapi.editor.persistence.ChunkContentEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Testcontainers
+class DocumentChunkStoreIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private DocumentService service;
+
+    @Autowired
+    private DocumentBufferCache buffers;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void apply_withCachedBuffer_loadsNoChunkText() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        UUID id = service.create("word ".repeat(20_000));
+        service.apply(id, new InsertCommand("!"));
+        assertTrue(buffers.contains(id));
+
+        statistics.clear();
+        for (int i = 0; i < 10; i++) {
+            service.apply(id, new InsertCommand("?"));
+        }
+
+        assertEquals(0, statistics.getEntityStatistics(ChunkContentEntity.class.getName()).getLoadCount());
+        assertEquals("word ".repeat(20_000) + "!" + "?".repeat(10), service.getText(id, null));
+    }
+
+    @Test
+    void storedLengths_matchTheChunkText() {
+        UUID id = service.create("\uD83D\uDE00 ".repeat(5_000));
+        service.apply(id, new InsertCommand("abc"));
+        UUID copy = service.clone(id);
+
+        Integer mismatched = jdbc.queryForObject("""
+                SELECT count(*) FROM document_chunks dc
+                JOIN chunk_contents c ON c.id = dc.content_id
+                WHERE dc.document_id IN (?, ?)
+                  AND dc.text_length <> char_length(c.text)
+                        + (SELECT count(*) FROM regexp_matches(c.text, '[\\U00010000-\\U0010FFFF]', 'g'))
+                """, Integer.class, id, copy);
+        assertEquals(0, mismatched);
+        assertEquals(service.getText(id, null), service.getText(copy, null));
+    }
+}
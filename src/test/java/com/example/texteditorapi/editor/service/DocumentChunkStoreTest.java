@@ -0,0 +1,257 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.ChangedRange;
+import com.example.texteditorapi.editor.Rope;
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.persistence.DocumentChunkEntity;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentChunkStoreTest {
+
+    private final UUID id = UUID.randomUUID();
+
+    @Test
+    void split_keepsSmallTextInOneChunk() {
+        assertEquals(List.of("abc"), DocumentChunkStore.split("abc"));
+        assertTrue(DocumentChunkStore.split("").isEmpty());
+    }
+
+    @Test
+    void split_cutsLargeTextIntoBoundedPieces() {
+        String text = "x".repeat(DocumentChunkStore.MAX_CHUNK_SIZE * 3 + 17);
+
+        List<String> pieces = DocumentChunkStore.split(text);
+
+        assertEquals(text, String.join("", pieces));
+        for (String piece : pieces) {
+            assertTrue(piece.length() <= DocumentChunkStore.MAX_CHUNK_SIZE);
+            assertTrue(piece.length() >= DocumentChunkStore.MIN_CHUNK_SIZE);
+        }
+    }
+
+    @Test
+    void split_neverSeparatesSurrogatePair() {
+        String text = "\uD83D\uDE00".repeat(DocumentChunkStore.MAX_CHUNK_SIZE);
+
+        for (String piece : DocumentChunkStore.split(text)) {
+            assertFalse(Character.isHighSurrogate(piece.charAt(piece.length() - 1)));
+        }
+    }
+
+    @Test
+    void plan_singleInsertRewritesOnlyOneChunk() {
+        String text = "a".repeat(DocumentChunkStore.TARGET_CHUNK_SIZE * 4);
+        List<DocumentChunkEntity> chunks = chunksOf(text);
+
+        TextBuffer buffer = new TextBuffer(text);
+        ChangedRange change = new ChangedRange(buffer.length());
+        buffer.addEditListener(change);
+        buffer.setCursor(DocumentChunkStore.TARGET_CHUNK_SIZE + 10);
+        buffer.insert("hello");
+
+        DocumentChunkStore.Plan plan = DocumentChunkStore.plan(id, chunks, buffer.contents(), change);
+
+        assertEquals(1, plan.saved().size());
+        assertTrue(plan.deleted().isEmpty());
+        assertEquals(buffer.getText(), DocumentChunkStore.join(apply(chunks, plan)));
+    }
+
+    @Test
+    void plan_readsTextOnlyOfTheChunksItRewrites() {
+        List<String> read = new ArrayList<>();
+        List<DocumentChunkEntity> chunks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String piece = String.valueOf((char) ('a' + i)).repeat(DocumentChunkStore.TARGET_CHUNK_SIZE);
+            chunks.add(new DocumentChunkEntity(id, (i + 1L) * DocumentChunkStore.SEQ_GAP, piece) {
+                @Override
+                public String getContent() {
+                    read.add(piece);
+                    return super.getContent();
+                }
+            });
+        }
+
+        TextBuffer buffer = new TextBuffer(DocumentChunkStore.join(chunks));
+        read.clear();
+        ChangedRange change = new ChangedRange(buffer.length());
+        buffer.addEditListener(change);
+        buffer.setCursor(DocumentChunkStore.TARGET_CHUNK_SIZE * 2 + 10);
+        buffer.insert("hello");
+
+        DocumentChunkStore.Plan plan = DocumentChunkStore.plan(id, chunks, buffer.contents(), change);
+
+        // The changed chunk is told apart by its length, so no stored text is read at all
+        assertTrue(read.isEmpty());
+        assertEquals(1, plan.saved().size());
+        assertEquals(buffer.getText(), DocumentChunkStore.join(apply(chunks, plan)));
+    }
+
+    @Test
+    void plan_randomEditsKeepChunksConsistentAndBounded() {
+        Random random = new Random(42);
+        TextBuffer buffer = new TextBuffer("seed".repeat(5000));
+        List<DocumentChunkEntity> chunks = chunksOf(buffer.getText());
+
+        for (int round = 0; round < 300; round++) {
+            ChangedRange change = new ChangedRange(buffer.length());
+            buffer.addEditListener(change);
+
+            buffer.setCursor(random.nextInt(buffer.length() + 1));
+            switch (random.nextInt(4)) {
+                case 0 -> buffer.insert("z".repeat(1 + random.nextInt(3000)));
+                case 1 -> buffer.insert("q");
+                case 2 -> {
+                    buffer.setCursorSelection(random.nextInt(buffer.length() + 1));
+                    buffer.deleteLeft();
+                }
+                default -> {
+                    buffer.deleteRight();
+                    buffer.undo();
+                    buffer.redo();
+                }
+            }
+            buffer.removeEditListener(change);
+
+            chunks = apply(chunks, DocumentChunkStore.plan(id, chunks, buffer.contents(), change));
+
+            assertEquals(buffer.getText(), DocumentChunkStore.join(chunks));
+            for (DocumentChunkEntity chunk : chunks) {
+                assertEquals(chunk.getContent().length(), chunk.getLength());
+                assertTrue(chunk.getContent().length() <= DocumentChunkStore.MAX_CHUNK_SIZE);
+                if (chunks.size() > 1) {
+                    assertTrue(chunk.getContent().length() >= DocumentChunkStore.MIN_CHUNK_SIZE);
+                }
+            }
+        }
+    }
+
+    @Test
+    void readPieces_cutsStreamIntoTargetSizedPieces() throws IOException {
+        String text = "abc".repeat(DocumentChunkStore.TARGET_CHUNK_SIZE);
+        List<String> pieces = new ArrayList<>();
+
+        DocumentChunkStore.readPieces(new StringReader(text), pieces::add);
+
+        assertEquals(3, pieces.size());
+        assertEquals(text, String.join("", pieces));
+        assertTrue(pieces.stream().allMatch(p -> p.length() == DocumentChunkStore.TARGET_CHUNK_SIZE));
+    }
+
+    @Test
+    void readPieces_handlesShortReadsAndSurrogatePairs() throws IOException {
+        String text = "x".repeat(DocumentChunkStore.TARGET_CHUNK_SIZE - 1) + "\uD83D\uDE00" + "tail";
+        List<String> pieces = new ArrayList<>();
+
+        // A reader that returns at most 7 chars per call, like a slow network stream
+        Reader trickle = new StringReader(text) {
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException {
+                return super.read(buf, off, Math.min(len, 7));
+            }
+        };
+        DocumentChunkStore.readPieces(trickle, pieces::add);
+
+        assertEquals(text, String.join("", pieces));
+        for (String piece : pieces) {
+            assertFalse(Character.isHighSurrogate(piece.charAt(piece.length() - 1)));
+        }
+    }
+
+    @Test
+    void readPieces_emptyStreamHasNoPieces() throws IOException {
+        List<String> pieces = new ArrayList<>();
+        DocumentChunkStore.readPieces(new StringReader(""), pieces::add);
+        assertTrue(pieces.isEmpty());
+    }
+
+    @Test
+    void contains_findsMatchesInsideAndAcrossPieces() {
+        List<String> pieces = List.of("the quick br", "own fox j", "u", "mps");
+
+        assertTrue(DocumentChunkStore.contains(pieces, "quick"));
+        assertTrue(DocumentChunkStore.contains(pieces, "brown"));
+        assertTrue(DocumentChunkStore.contains(pieces, "fox jumps"));
+        assertFalse(DocumentChunkStore.contains(pieces, "lazy"));
+        assertFalse(DocumentChunkStore.contains(List.of(), "abc"));
+    }
+
+    @Test
+    void contains_scansLongTextInSlices() {
+        String text = "x".repeat(DocumentChunkStore.TARGET_CHUNK_SIZE - 2) + "needle" + "y".repeat(DocumentChunkStore.TARGET_CHUNK_SIZE);
+
+        assertTrue(DocumentChunkStore.contains(Rope.of(text), "needle"));
+        assertFalse(DocumentChunkStore.contains(Rope.of(text), "needlex"));
+        assertTrue(DocumentChunkStore.contains(Rope.of(text), "xneedleyy"));
+    }
+
+    private List<DocumentChunkEntity> chunksOf(String text) {
+        ChangedRange change = new ChangedRange(0);
+        change.inserted(0, text);
+        return apply(new ArrayList<>(), DocumentChunkStore.plan(id, List.of(), text, change));
+    }
+
+    // Mimics the repository: drop deleted rows, upsert saved ones, read back in seq order
+    private static List<DocumentChunkEntity> apply(List<DocumentChunkEntity> chunks, DocumentChunkStore.Plan plan) {
+        List<DocumentChunkEntity> result = new ArrayList<>(chunks);
+        result.removeAll(plan.deleted());
+        for (DocumentChunkEntity chunk : plan.saved()) {
+            if (!result.contains(chunk)) {
+                result.add(chunk);
+            }
+        }
+        result.sort(Comparator.comparingLong(DocumentChunkEntity::getSeq));
+        return result;
+    }
+
+    @Test
+    void resolve_followsHttpByteRanges() {
+        assertArrayEquals(new long[] {0, 10}, DocumentChunkStore.resolve(0L, 9L, 100));
+        assertArrayEquals(new long[] {90, 100}, DocumentChunkStore.resolve(90L, null, 100));
+        assertArrayEquals(new long[] {90, 100}, DocumentChunkStore.resolve(90L, 500L, 100));
+        assertArrayEquals(new long[] {70, 100}, DocumentChunkStore.resolve(null, 30L, 100));
+        assertArrayEquals(new long[] {0, 100}, DocumentChunkStore.resolve(null, 500L, 100));
+
+        assertNull(DocumentChunkStore.resolve(100L, null, 100));
+        assertNull(DocumentChunkStore.resolve(null, 0L, 100));
+        assertNull(DocumentChunkStore.resolve(0L, null, 0));
+    }
+
+    @Test
+    void slice_returnsOnlyBytesInsideTheWindow() {
+        List<String> pieces = List.of("héllo", " wörld", "!");
+        byte[] all = String.join("", pieces).getBytes(StandardCharsets.UTF_8);
+
+        for (int start = 0; start < all.length; start++) {
+            for (int end = start + 1; end <= all.length; end++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (byte[] part : DocumentChunkStore.slice(pieces, 0, start, end)) {
+                    out.writeBytes(part);
+                }
+                assertArrayEquals(Arrays.copyOfRange(all, start, end), out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    void slice_startsFromOffsetOfFirstLoadedPiece() {
+        // "héllo" is 6 bytes, so the loaded pieces begin at byte 6
+        List<byte[]> parts = DocumentChunkStore.slice(List.of(" wörld", "!"), 6, 7, 14);
+
+        assertEquals(2, parts.size());
+        assertEquals("wörld!", new String(parts.get(0), StandardCharsets.UTF_8) + new String(parts.get(1), StandardCharsets.UTF_8));
+    }
+}
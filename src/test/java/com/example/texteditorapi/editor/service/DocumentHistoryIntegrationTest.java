@@ -0,0 +1,178 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.api.DocumentController;
+import com.example.texteditorapi.editor.commands.BatchCommand;
+import com.example.texteditorapi.editor.commands.Command;
+import com.example.texteditorapi.editor.commands.DeleteLeftCommand;
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import com.example.texteditorapi.editor.commands.MoveLeftSelectionCommand;
+import com.example.texteditorapi.editor.commands.SetCursorCommand;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.env.Environment;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "texteditor.history.snapshot-every-edits=" + DocumentHistoryIntegrationTest.SNAPSHOT_EVERY_EDITS,
+                "texteditor.history.snapshot-every-chars=" + DocumentHistoryIntegrationTest.SNAPSHOT_EVERY_CHARS
+        }
+)
+@Testcontainers
+class DocumentHistoryIntegrationTest {
+
+    static final int SNAPSHOT_EVERY_EDITS = 5;
+    static final int SNAPSHOT_EVERY_CHARS = 30;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private DocumentService service;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Autowired
+    private Environment environment;
+
+    @Test
+    void everyRevision_isRebuiltAcrossSnapshots() throws Exception {
+        StringBuilder text = new StringBuilder("The quick brown fox jumps over the lazy dog");
+        UUID id = service.create(text.toString());
+
+        // What each revision's text and snapshot flag should be, kept alongside the edits
+        List<String> expected = new ArrayList<>(List.of(text.toString()));
+        List<Boolean> snapshots = new ArrayList<>(List.of(true));
+        int edits = 0;
+        int chars = 0;
+        int byEdits = 0;
+        int byChars = 0;
+
+        for (int i = 0; i < 60; i++) {
+            if (i == 30) {
+                // A whole-text replacement is a snapshot revision of its own
+                text = new StringBuilder("replaced ".repeat(4));
+                service.replaceContent(id, new StringReader(text.toString()));
+                expected.add(text.toString());
+                snapshots.add(true);
+                edits = 0;
+                chars = 0;
+                continue;
+            }
+
+            int kind = i % 10 == 9 ? 3 : i % 3;
+            if (text.length() < 15) {
+                kind = 0;
+            }
+
+            List<Command> commands = new ArrayList<>();
+            int commandEdits;
+            int commandChars;
+            if (kind == 0 || kind == 3) {
+                String s = kind == 3 ? "x".repeat(35) : "abcdefghijkl".substring(0, 2 + (i * 7) % 11);
+                int pos = (i * 37) % (text.length() + 1);
+                commands.add(new SetCursorCommand(pos));
+                commands.add(new InsertCommand(s));
+                text.insert(pos, s);
+                commandEdits = 1;
+                commandChars = s.length();
+            } else {
+                int n = kind == 1 ? 2 : 3 + i % 9;
+                int pos = n + (i * 37) % (text.length() - n + 1);
+                commands.add(new SetCursorCommand(pos));
+                if (kind == 1) {
+                    // One edit per character
+                    for (int k = 0; k < n; k++) {
+                        commands.add(new DeleteLeftCommand());
+                    }
+                    commandEdits = n;
+                } else {
+                    // A single edit removing the whole selection
+                    for (int k = 0; k < n; k++) {
+                        commands.add(new MoveLeftSelectionCommand());
+                    }
+                    commands.add(new DeleteLeftCommand());
+                    commandEdits = 1;
+                }
+                text.delete(pos - n, pos);
+                commandChars = n;
+            }
+
+            service.apply(id, new BatchCommand(commands));
+            assertEquals(text.toString(), service.getText(id, null));
+
+            edits += commandEdits;
+            chars += commandChars;
+            boolean snapshot = edits >= SNAPSHOT_EVERY_EDITS || chars >= SNAPSHOT_EVERY_CHARS;
+            if (snapshot) {
+                if (edits >= SNAPSHOT_EVERY_EDITS) byEdits++;
+                else byChars++;
+                edits = 0;
+                chars = 0;
+            }
+            expected.add(text.toString());
+            snapshots.add(snapshot);
+        }
+
+        // Both limits were reached, and most revisions have to be replayed from an earlier snapshot
+        assertTrue(byEdits > 0);
+        assertTrue(byChars > 0);
+        assertTrue(snapshots.stream().filter(s -> !s).count() > snapshots.size() / 2);
+
+        // A command that changes no text makes no revision
+        service.apply(id, new SetCursorCommand(0));
+        assertEquals(expected.size(), service.getVersions(id).size());
+
+        for (int revision = 0; revision < expected.size(); revision++) {
+            assertEquals(expected.get(revision), service.getVersion(id, revision).text(), "revision " + revision);
+        }
+
+        String base = "http://localhost:" + environment.getProperty("local.server.port") + "/api/documents/" + id;
+
+        HttpResponse<String> list = get(base + "/versions");
+        assertEquals(200, list.statusCode());
+        DocumentController.VersionSummaryResponse[] versions =
+                json.readValue(list.body(), DocumentController.VersionSummaryResponse[].class);
+        assertEquals(expected.size(), versions.length);
+        for (int revision = 0; revision < versions.length; revision++) {
+            assertEquals(revision, versions[revision].revision());
+            assertEquals(snapshots.get(revision), versions[revision].snapshot(), "revision " + revision);
+        }
+
+        for (int revision : new int[] {0, 7, 29, 31, expected.size() - 1}) {
+            HttpResponse<String> one = get(base + "/versions/" + revision);
+            assertEquals(200, one.statusCode());
+            DocumentController.VersionResponse version = json.readValue(one.body(), DocumentController.VersionResponse.class);
+            assertEquals(id, version.id());
+            assertEquals(revision, version.revision());
+            assertEquals(expected.get(revision), version.text());
+        }
+
+        assertEquals(404, get(base + "/versions/" + expected.size()).statusCode());
+    }
+
+    private static HttpResponse<String> get(String url) throws Exception {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.TestApplications;
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class DocumentPreloaderIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Test
+    void startup_preloadsMostRecentlyUpdatedDocumentsWithinBudget() {
+        UUID oldest;
+        UUID large;
+        UUID recent;
+        UUID newest;
+        try (ConfigurableApplicationContext context = TestApplications.start(postgres, "texteditor.preload.enabled=false")) {
+            DocumentService service = context.getBean(DocumentService.class);
+            oldest = service.create("oldest");
+            large = service.create("x".repeat(10_000));
+            recent = service.create("recent");
+            newest = service.create("newest");
+            service.apply(oldest, new InsertCommand("!"));
+            service.apply(oldest, new InsertCommand("?"));
+            // Recent enough, but larger than the whole budget
+            service.apply(large, new InsertCommand("x"));
+            // Updated last, so it is the most recent again
+            service.apply(newest, new InsertCommand("."));
+        }
+
+        try (ConfigurableApplicationContext context = TestApplications.start(postgres,
+                "texteditor.preload.max-documents=2",
+                "texteditor.preload.max-bytes=1000")) {
+            DocumentBufferCache buffers = context.getBean(DocumentBufferCache.class);
+            DocumentService service = context.getBean(DocumentService.class);
+
+            assertTrue(buffers.contains(newest));
+            assertTrue(buffers.contains(oldest));
+            assertFalse(buffers.contains(recent));
+            assertFalse(buffers.contains(large));
+
+            // The preloaded buffer is the one the next command edits
+            assertEquals("newest.!", service.apply(newest, new InsertCommand("!")).text.toString());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.texteditorapi.editor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentResponseCacheTest {
+
+    @Test
+    void get_onlyReturnsTheCachedVersion() {
+        DocumentResponseCache cache = new DocumentResponseCache(1 << 20, 1024);
+        UUID id = UUID.randomUUID();
+
+        cache.put(id, 3, bytes("{\"v\":3}"));
+
+        assertNotNull(cache.get(id, 3));
+        assertNull(cache.get(id, 4));
+        assertNull(cache.get(UUID.randomUUID(), 3));
+    }
+
+    @Test
+    void put_doesNotReplaceNewerVersion() {
+        DocumentResponseCache cache = new DocumentResponseCache(1 << 20, 1024);
+        UUID id = UUID.randomUUID();
+
+        cache.put(id, 5, bytes("new"));
+        cache.put(id, 4, bytes("old"));
+
+        assertArrayEquals(bytes("new"), cache.get(id, 5).body());
+        assertNull(cache.get(id, 4));
+    }
+
+    @Test
+    void evict_dropsEntryAndItsBytes() {
+        DocumentResponseCache cache = new DocumentResponseCache(1 << 20, 1024);
+        UUID id = UUID.randomUUID();
+
+        cache.put(id, 1, bytes("hello"));
+        cache.evict(id);
+
+        assertNull(cache.get(id, 1));
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsedBeyondByteBudget() {
+        DocumentResponseCache cache = new DocumentResponseCache(25, 1024);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+
+        cache.put(a, 1, new byte[10]);
+        cache.put(b, 1, new byte[10]);
+        cache.get(a, 1);
+        cache.put(c, 1, new byte[10]);
+
+        assertNotNull(cache.get(a, 1));
+        assertNull(cache.get(b, 1));
+        assertNotNull(cache.get(c, 1));
+        assertEquals(20, cache.bytes());
+    }
+
+    @Test
+    void put_gzipsLargeBodiesOnly() throws IOException {
+        DocumentResponseCache cache = new DocumentResponseCache(1 << 20, 64);
+        String large = "{\"text\":\"" + "abc ".repeat(100) + "\"}";
+
+        DocumentResponseCache.Entry small = cache.put(UUID.randomUUID(), 1, bytes("{}"));
+        DocumentResponseCache.Entry big = cache.put(UUID.randomUUID(), 1, bytes(large));
+
+        assertNull(small.gzipped());
+        assertTrue(big.gzipped().length < big.body().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(big.gzipped()))) {
+            assertEquals(large, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentSearchIndexTest {
+
+    @Test
+    void lookup_returnsDocumentsHavingEveryTrigram() {
+        DocumentSearchIndex index = new DocumentSearchIndex(null, null, null);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        index.put(a, 0, "the quick brown fox");
+        index.put(b, 0, "a quick red fox");
+
+        assertEquals(Set.of(a, b), new HashSet<>(index.lookup("quick")));
+        assertEquals(List.of(a), index.lookup("brown"));
+        assertTrue(index.lookup("purple").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.lookup("ox"));
+
+        index.remove(a);
+        assertTrue(index.lookup("brown").isEmpty());
+    }
+
+    @Test
+    void candidates_includeDocumentsWaitingToBeIndexedAgain() {
+        DocumentSearchIndex index = new DocumentSearchIndex(null, null, null);
+        UUID indexed = UUID.randomUUID();
+        UUID changed = UUID.randomUUID();
+        UUID created = UUID.randomUUID();
+        index.markBuilt(List.of());
+        index.put(indexed, 0, "the quick brown fox");
+        index.put(changed, 0, "nothing to see");
+
+        index.markDirty(changed);
+        index.reindexAfterCommit(created);
+
+        assertEquals(Set.of(indexed, changed, created), new HashSet<>(index.candidates("quick")));
+        assertEquals(Set.of(changed, created), new HashSet<>(index.candidates("purple")));
+        assertThrows(IllegalArgumentException.class, () -> index.candidates("fo"));
+    }
+
+    @Test
+    void updater_deltasMatchRecountAfterEveryEdit() {
+        Random random = new Random(9);
+        TextBuffer buffer = new TextBuffer("abcabcabc");
+        Map<Long, Integer> counts = counts(buffer.getText());
+
+        for (int step = 0; step < 500; step++) {
+            DocumentSearchIndex.Updater updater = new DocumentSearchIndex.Updater(buffer::contents);
+            buffer.addEditListener(updater);
+
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    buffer.setCursor(random.nextInt(buffer.length() + 1));
+                    buffer.insert(randomText(random, 1 + random.nextInt(4)));
+                }
+                case 2 -> {
+                    buffer.setCursor(random.nextInt(buffer.length() + 1));
+                    buffer.setCursorSelection(random.nextInt(buffer.length() + 1));
+                    buffer.deleteLeft();
+                }
+                default -> buffer.undo();
+            }
+            buffer.removeEditListener(updater);
+
+            apply(counts, updater.delta());
+            assertEquals(counts(buffer.getText()), counts, "step " + step);
+        }
+    }
+
+    @Test
+    void apply_fromUnexpectedVersionLeavesDocumentDirty() {
+        DocumentSearchIndex index = new DocumentSearchIndex(null, null, null);
+        UUID id = UUID.randomUUID();
+        index.put(id, 3, "hello");
+
+        TextBuffer buffer = new TextBuffer("hello");
+        DocumentSearchIndex.Updater updater = index.updater(buffer);
+        buffer.addEditListener(updater);
+        buffer.insert(" world");
+
+        index.applyAfterCommit(id, 2, 4, updater);
+        assertTrue(index.lookup("world").isEmpty());
+
+        index.applyAfterCommit(id, 3, 4, updater);
+        assertEquals(List.of(id), index.lookup("world"));
+    }
+
+    private static void apply(Map<Long, Integer> counts, Map<Long, Integer> delta) {
+        delta.forEach((trigram, d) -> {
+            int n = counts.getOrDefault(trigram, 0) + d;
+            if (n == 0) {
+                counts.remove(trigram);
+            } else {
+                counts.put(trigram, n);
+            }
+        });
+    }
+
+    private static Map<Long, Integer> counts(String text) {
+        Map<Long, Integer> counts = new HashMap<>();
+        DocumentSearchIndex.count(text, 0, text.length(), counts, 1);
+        counts.values().removeIf(n -> n == 0);
+        return counts;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
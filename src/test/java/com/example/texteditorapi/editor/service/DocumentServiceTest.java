@@ -0,0 +1,94 @@
+package com.example.texteditorapi.editor.service;
+
+import com.example.texteditorapi.editor.TextBuffer;
+import com.example.texteditorapi.editor.cluster.ClusterMembership;
+import com.example.texteditorapi.editor.commands.DeleteLeftCommand;
+import com.example.texteditorapi.editor.commands.InsertCommand;
+import com.example.texteditorapi.editor.commands.SetCursorCommand;
+import com.example.texteditorapi.editor.store.DocumentStore;
+import com.example.texteditorapi.editor.store.InMemoryDocumentStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentServiceTest {
+
+    private final InMemoryDocumentStore store = new InMemoryDocumentStore();
+
+    @Test
+    void apply_appendsEditsToStore() {
+        DocumentService service = service(100, 16);
+        UUID id = service.create("Notes", "hello");
+
+        TextBuffer.Snapshot snap = service.apply(id, new InsertCommand(" world"));
+        assertEquals("hello world", snap.text.toString());
+
+        DocumentStore.StoredDocument doc = store.load(id).orElseThrow();
+        assertEquals("hello world", doc.text().toString());
+        assertEquals(1, doc.version());
+        assertEquals(11, doc.selection().cursor());
+        assertEquals(new DocumentStore.Stats(11, 2, 1), doc.stats());
+    }
+
+    @Test
+    void apply_checkpointsAfterEnoughEdits() {
+        DocumentService service = service(3, 16);
+        UUID id = service.create("t", "");
+
+        service.apply(id, new InsertCommand("a"));
+        service.apply(id, new InsertCommand("b"));
+        assertEquals(2, store.load(id).orElseThrow().editsSinceCheckpoint());
+
+        service.apply(id, new InsertCommand("c"));
+        DocumentStore.StoredDocument doc = store.load(id).orElseThrow();
+        assertEquals("abc", doc.text().toString());
+        assertEquals(0, doc.editsSinceCheckpoint());
+    }
+
+    @Test
+    void apply_reloadsFromStoreWhenNotLive() {
+        DocumentService service = service(100, 0);
+        UUID id = service.create("t", "abc");
+
+        service.apply(id, new SetCursorCommand(1));
+        TextBuffer.Snapshot snap = service.apply(id, new DeleteLeftCommand());
+
+        assertEquals("bc", snap.text.toString());
+        assertEquals(0, snap.cursor);
+        assertEquals(2, service.currentVersion(id));
+    }
+
+    @Test
+    void apply_unknownDocument_throws() {
+        DocumentService service = service(100, 16);
+        assertThrows(NoSuchElementException.class, () -> service.apply(UUID.randomUUID(), new InsertCommand("x")));
+    }
+
+    @Test
+    void postgresOnlyFeatures_withOtherStore_areUnsupported() {
+        DocumentService service = service(100, 16);
+        UUID id = service.create("t", "abc");
+
+        assertEquals("abc", service.getText(id, null));
+        assertThrows(UnsupportedOperationException.class, () -> service.getText(id, 0L));
+        assertThrows(UnsupportedOperationException.class, () -> service.search("abc"));
+    }
+
+    @Test
+    void delete_removesFromStore() {
+        DocumentService service = service(100, 16);
+        UUID id = service.create("t", "x");
+
+        assertTrue(service.delete(id));
+        assertThrows(NoSuchElementException.class, () -> service.get(id));
+        assertTrue(service.getAll().isEmpty());
+    }
+
+    private DocumentService service(int checkpointEveryEdits, int liveDocuments) {
+        ClusterMembership membership = new ClusterMembership(null, null, null, false, "node a", "http://a", 15000, 16);
+        return new DocumentService(store, new DocumentBufferCache(liveDocuments), membership, checkpointEveryEdits);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.texteditorapi.editor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(5_000, now::get);
+
+    @Test
+    void write_isRecentUntilTheWindowPasses() {
+        UUID id = UUID.randomUUID();
+
+        readYourWrites.writtenAfterCommit(id);
+        now.addAndGet(4_999);
+        assertTrue(readYourWrites.isRecent(id));
+
+        now.addAndGet(1);
+        assertFalse(readYourWrites.isRecent(id));
+    }
+
+    @Test
+    void unwrittenDocument_isNotRecent() {
+        assertFalse(readYourWrites.isRecent(UUID.randomUUID()));
+    }
+
+    @Test
+    void rewrite_restartsTheWindow() {
+        UUID id = UUID.randomUUID();
+
+        readYourWrites.written(id);
+        now.addAndGet(4_000);
+        readYourWrites.written(id);
+        now.addAndGet(4_000);
+
+        assertTrue(readYourWrites.isRecent(id));
+    }
+
+    @Test
+    void expiredWrites_arePrunedOnceThereAreMany() {
+        for (int i = 0; i < 10_000; i++) {
+            readYourWrites.written(UUID.randomUUID());
+        }
+        now.addAndGet(5_000);
+
+        readYourWrites.written(UUID.randomUUID());
+
+        assertEquals(1, readYourWrites.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.texteditorapi.editor.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDocumentStoreTest {
+
+    private static final DocumentStore.Selection SELECTION = new DocumentStore.Selection(0, 0, 0);
+    private static final DocumentStore.Stats STATS = new DocumentStore.Stats(0, 0, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void load_replaysAppendedEditsAfterReopening() {
+        FileDocumentStore store = new FileDocumentStore(dir);
+        UUID id = UUID.randomUUID();
+        store.create(id, "Notes", "hello", SELECTION, STATS, Instant.now());
+
+        long v1 = store.append(id, 0, List.of(DocumentStore.Edit.insert(5, " world")), "hello world", new DocumentStore.Selection(11, 11, 11), STATS, Instant.now());
+        long v2 = store.append(id, v1, List.of(DocumentStore.Edit.delete(0, "h"), DocumentStore.Edit.insert(0, "H")), "Hello world", SELECTION, STATS, Instant.now());
+
+        DocumentStore.StoredDocument doc = new FileDocumentStore(dir).load(id).orElseThrow();
+        assertEquals("Hello world", doc.text().toString());
+        assertEquals("Notes", doc.title());
+        assertEquals(v2, doc.version());
+        assertEquals(3, doc.editsSinceCheckpoint());
+        assertEquals(SELECTION, doc.selection());
+    }
+
+    @Test
+    void append_rejectsStaleVersion() {
+        FileDocumentStore store = new FileDocumentStore(dir);
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "", SELECTION, STATS, Instant.now());
+        store.append(id, 0, List.of(DocumentStore.Edit.insert(0, "a")), "a", SELECTION, STATS, Instant.now());
+
+        assertThrows(ConcurrentModificationException.class,
+                () -> store.append(id, 0, List.of(DocumentStore.Edit.insert(0, "b")), "b", SELECTION, STATS, Instant.now()));
+        assertEquals("a", store.load(id).orElseThrow().text().toString());
+    }
+
+    @Test
+    void checkpoint_foldsEditsIntoText() throws IOException {
+        FileDocumentStore store = new FileDocumentStore(dir);
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "ab", SELECTION, STATS, Instant.now());
+        long v = store.append(id, 0, List.of(DocumentStore.Edit.insert(2, "c")), "abc", SELECTION, STATS, Instant.now());
+
+        store.checkpoint(id, v, "abc");
+
+        DocumentStore.StoredDocument doc = new FileDocumentStore(dir).load(id).orElseThrow();
+        assertEquals("abc", doc.text().toString());
+        assertEquals(v, doc.version());
+        assertEquals(0, doc.editsSinceCheckpoint());
+        assertEquals(0, Files.size(dir.resolve(id.toString()).resolve(FileDocumentStore.EDITS)));
+    }
+
+    @Test
+    void load_ignoresTornRecordAndNextAppendReplacesIt() throws IOException {
+        FileDocumentStore store = new FileDocumentStore(dir);
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "", SELECTION, STATS, Instant.now());
+        store.append(id, 0, List.of(DocumentStore.Edit.insert(0, "a")), "a", SELECTION, STATS, Instant.now());
+
+        // A crash in the middle of writing the next record
+        Files.write(dir.resolve(id.toString()).resolve(FileDocumentStore.EDITS), new byte[]{0, 0, 0, 100, 1, 2},
+                StandardOpenOption.APPEND);
+
+        FileDocumentStore reopened = new FileDocumentStore(dir);
+        assertEquals("a", reopened.load(id).orElseThrow().text().toString());
+
+        reopened.append(id, 1, List.of(DocumentStore.Edit.insert(1, "b")), "ab", SELECTION, STATS, Instant.now());
+        DocumentStore.StoredDocument doc = new FileDocumentStore(dir).load(id).orElseThrow();
+        assertEquals("ab", doc.text().toString());
+        assertEquals(2, doc.version());
+    }
+
+    @Test
+    void listAndDelete() {
+        FileDocumentStore store = new FileDocumentStore(dir);
+        UUID id = UUID.randomUUID();
+        store.create(id, "Notes", "x", SELECTION, new DocumentStore.Stats(1, 1, 1), Instant.now());
+
+        List<DocumentStore.Summary> summaries = store.list();
+        assertEquals(1, summaries.size());
+        assertEquals("Notes", summaries.get(0).title());
+        assertEquals(1, summaries.get(0).stats().chars());
+
+        assertTrue(store.delete(id));
+        assertFalse(store.delete(id));
+        assertTrue(store.load(id).isEmpty());
+        assertTrue(store.list().isEmpty());
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.texteditorapi.editor.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalDocumentStoreTest {
+
+    private static final DocumentStore.Selection SELECTION = new DocumentStore.Selection(0, 0, 0);
+    private static final DocumentStore.Stats STATS = new DocumentStore.Stats(0, 0, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recover_replaysLogWithoutClose() {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "Notes", "hello", SELECTION, STATS, Instant.now());
+        long v = store.append(id, 0, List.of(DocumentStore.Edit.insert(5, " world")), "hello world", new DocumentStore.Selection(11, 11, 11), STATS, Instant.now());
+        store.append(id, v, List.of(DocumentStore.Edit.delete(0, "h"), DocumentStore.Edit.insert(0, "H")), "Hello world", SELECTION, STATS, Instant.now());
+
+        DocumentStore.StoredDocument doc = new WalDocumentStore(dir, WalDocumentStore.Options.defaults()).load(id).orElseThrow();
+        assertEquals("Hello world", doc.text().toString());
+        assertEquals("Notes", doc.title());
+        assertEquals(2, doc.version());
+        assertEquals(3, doc.editsSinceCheckpoint());
+    }
+
+    @Test
+    void append_rejectsStaleVersion() {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "", SELECTION, STATS, Instant.now());
+        store.append(id, 0, List.of(DocumentStore.Edit.insert(0, "a")), "a", SELECTION, STATS, Instant.now());
+
+        assertThrows(ConcurrentModificationException.class,
+                () -> store.append(id, 0, List.of(DocumentStore.Edit.insert(0, "b")), "b", SELECTION, STATS, Instant.now()));
+    }
+
+    @Test
+    void recover_dropsTornRecordAndAppendsAfterLastCompleteOne() throws IOException {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "", SELECTION, STATS, Instant.now());
+        store.append(id, 0, List.of(DocumentStore.Edit.insert(0, "a")), "a", SELECTION, STATS, Instant.now());
+        store.close();
+
+        // A crash in the middle of writing the next record
+        Files.write(segments().get(0), new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        WalDocumentStore reopened = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        assertEquals("a", reopened.load(id).orElseThrow().text().toString());
+        reopened.append(id, 1, List.of(DocumentStore.Edit.insert(1, "b")), "ab", SELECTION, STATS, Instant.now());
+        reopened.close();
+
+        assertEquals("ab", new WalDocumentStore(dir, WalDocumentStore.Options.defaults()).load(id).orElseThrow().text().toString());
+    }
+
+    @Test
+    void append_snapshotsEveryFewEdits() {
+        WalDocumentStore store = new WalDocumentStore(dir, new WalDocumentStore.Options(1 << 20, 4, 3, 0, true));
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "", SELECTION, STATS, Instant.now());
+
+        long v = 0;
+        StringBuilder text = new StringBuilder();
+        for (String s : List.of("a", "b", "c", "d")) {
+            text.append(s);
+            v = store.append(id, v, List.of(DocumentStore.Edit.insert((int) v, s)), text, SELECTION, STATS, Instant.now());
+        }
+
+        DocumentStore.StoredDocument doc = new WalDocumentStore(dir, WalDocumentStore.Options.defaults()).load(id).orElseThrow();
+        assertEquals("abcd", doc.text().toString());
+        assertEquals(1, doc.editsSinceCheckpoint());
+    }
+
+    @Test
+    void checkpoint_replacesPendingEdits() {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "ab", SELECTION, STATS, Instant.now());
+        long v = store.append(id, 0, List.of(DocumentStore.Edit.insert(2, "c")), "abc", SELECTION, STATS, Instant.now());
+
+        store.checkpoint(id, v, "abc");
+
+        DocumentStore.StoredDocument doc = new WalDocumentStore(dir, WalDocumentStore.Options.defaults()).load(id).orElseThrow();
+        assertEquals("abc", doc.text().toString());
+        assertEquals(0, doc.editsSinceCheckpoint());
+    }
+
+    @Test
+    void checkpoint_ofOutdatedVersionWritesNothing() throws IOException {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "ab", SELECTION, STATS, Instant.now());
+        long v = store.append(id, 0, List.of(DocumentStore.Edit.insert(2, "c")), "abc", SELECTION, STATS, Instant.now());
+        store.append(id, v, List.of(DocumentStore.Edit.insert(3, "d")), "abcd", SELECTION, STATS, Instant.now());
+
+        store.checkpoint(id, v, "abc");
+        // Left over from a snapshot file being written when the process died
+        Files.writeString(dir.resolve(WalDocumentStore.SNAPSHOTS).resolve(id + "-9.snap123.tmp"), "partial");
+
+        DocumentStore.StoredDocument doc = new WalDocumentStore(dir, WalDocumentStore.Options.defaults()).load(id).orElseThrow();
+        assertEquals("abcd", doc.text().toString());
+        assertEquals(2, doc.editsSinceCheckpoint());
+        try (Stream<Path> files = Files.list(dir.resolve(WalDocumentStore.SNAPSHOTS))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void compaction_dropsOldSegmentsAndKeepsEveryDocument() throws IOException {
+        WalDocumentStore store = new WalDocumentStore(dir, new WalDocumentStore.Options(512, 3, 1000, 0, true));
+        UUID kept = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        store.create(kept, "kept", "", SELECTION, STATS, Instant.now());
+        store.create(deleted, "deleted", "x", SELECTION, STATS, Instant.now());
+        store.delete(deleted);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            String s = Integer.toString(i % 10);
+            expected.append(s);
+            store.append(kept, i, List.of(DocumentStore.Edit.insert(i, s)), expected, SELECTION, STATS, Instant.now());
+        }
+
+        assertTrue(store.segmentCount() <= 4);
+        assertEquals(store.segmentCount(), segments().size());
+
+        WalDocumentStore reopened = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        assertEquals(expected.toString(), reopened.load(kept).orElseThrow().text().toString());
+        assertEquals(200, reopened.load(kept).orElseThrow().version());
+        assertTrue(reopened.load(deleted).isEmpty());
+        try (Stream<Path> files = Files.list(dir.resolve(WalDocumentStore.SNAPSHOTS))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void append_concurrentWritersAreAllDurable() throws Exception {
+        WalDocumentStore store = new WalDocumentStore(dir, new WalDocumentStore.Options(1 << 20, 4, 1000, 100, true));
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            UUID id = UUID.randomUUID();
+            store.create(id, "t", "", SELECTION, STATS, Instant.now());
+            ids.add(id);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (UUID id : ids) {
+            Thread t = new Thread(() -> {
+                for (int v = 0; v < 50; v++) {
+                    store.append(id, v, List.of(DocumentStore.Edit.insert(v, "x")), "x".repeat(v + 1), SELECTION, STATS, Instant.now());
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        WalDocumentStore reopened = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        for (UUID id : ids) {
+            assertEquals("x".repeat(50), reopened.load(id).orElseThrow().text().toString());
+        }
+    }
+
+    @Test
+    void delete_survivesRecovery() {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "t", "x", SELECTION, STATS, Instant.now());
+
+        assertTrue(store.delete(id));
+        assertFalse(store.delete(id));
+
+        WalDocumentStore reopened = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        assertTrue(reopened.load(id).isEmpty());
+        assertTrue(reopened.list().isEmpty());
+    }
+
+    @Test
+    void delete_thenCreateSameId_keepsNewSnapshot() throws IOException {
+        WalDocumentStore store = new WalDocumentStore(dir, WalDocumentStore.Options.defaults());
+        UUID id = UUID.randomUUID();
+        store.create(id, "old", "before", SELECTION, STATS, Instant.now());
+        store.delete(id);
+        store.create(id, "new", "after", SELECTION, STATS, Instant.now());
+        store.close();
+
+        DocumentStore.StoredDocument doc = new WalDocumentStore(dir, WalDocumentStore.Options.defaults()).load(id).orElseThrow();
+        assertEquals("after", doc.text().toString());
+        assertEquals("new", doc.title());
+        try (Stream<Path> files = Files.list(dir.resolve(WalDocumentStore.SNAPSHOTS))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}